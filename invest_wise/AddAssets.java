@@ -1,62 +1,64 @@
 package invest_wise;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.event.*;
-import java.io.*;
-import java.util.ArrayList;
-import java.text.DecimalFormat;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Provides functionality for adding and managing financial assets.
  * Allows users to input asset details and maintains a list of assets.
+ * The list is a table fed by an {@link AssetTableModel}, so each change only touches its own rows.
  */
 public class AddAssets extends styles {
     /** Combo box for selecting asset type */
-    private JComboBox<String> assetTypeCombo;
+    private JComboBox<AssetType> assetTypeCombo;
     /** Text field for asset name */
     private JTextField assetNameField;
     /** Text field for asset value */
     private JTextField assetValueField;
+    /** Combo box for selecting the currency of the value */
+    private JComboBox<CurrencyCode> currencyCombo;
     /** Button for adding new assets */
     private JButton addButton;
     /** Button for clearing all assets */
     private JButton clearButton;
+    /** Button for importing assets from a CSV file */
+    private JButton importButton;
     /** Button for returning to previous screen */
     private JButton backButton;
-    /** Text area for displaying asset list */
-    private JTextArea assetListArea;
+    /** Table for displaying the asset list */
+    private JTable assetTable;
     /** Label for displaying messages */
     private JLabel messageLabel;
     /** Label for displaying total value */
     private JLabel totalValueLabel;
-    /** List of user's assets */
-    private ArrayList<Asset> assets;
-    /** Formatter for currency values */
-    private DecimalFormat currencyFormat = new DecimalFormat("$#,##0.00");
+    /** Shared store of the user's assets */
+    private final AssetRepository repository = AssetRepository.getInstance();
+    /** Rows of the asset table, kept current by repository changes */
+    private final AssetTableModel assetModel = new AssetTableModel(repository);
     /** Reference to the main Home window */
     private Home home;
-    /** File path for storing asset data */
-    private static final String ASSETS_FILE = "invest_wise/assets.txt";
 
     /**
      * Constructs the Add Assets window with input fields and asset management functionality.
      *
      * @param home Reference to the main Home window
-     * @param assets List of existing assets
      */
-    public AddAssets(Home home, ArrayList<Asset> assets) {
+    public AddAssets(Home home) {
         this.window();
         this.home = home;
-        this.assets = assets;
-        loadAssetsFromFile(); // Load assets from file on startup
 
         JPanel mainPanel = new JPanel(new BorderLayout());
         mainPanel.setBackground(Color.decode("#f5efe7"));
         mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
 
         // === FORM PANEL ===
-        JPanel formPanel = new JPanel(new GridLayout(3, 2, 15, 15));  // 3 rows, 2 columns
+        JPanel formPanel = new JPanel(new GridLayout(4, 2, 15, 15));  // 4 rows, 2 columns
         formPanel.setBackground(Color.decode("#f5efe7"));
 
         Font labelFont = new Font("Segoe UI Emoji", Font.PLAIN, 16);
@@ -75,10 +77,16 @@ public class AddAssets extends styles {
         valueLabel.setFont(labelFont);
         valueLabel.setForeground(labelColor);
 
+        JLabel currencyLabel = new JLabel("Select Currency:");
+        currencyLabel.setFont(labelFont);
+        currencyLabel.setForeground(labelColor);
+
         // Form components
-        assetTypeCombo = new JComboBox<>(new String[]{"Stocks", "Real Estate", "Crypto", "Gold", "Bonds", "Mutual Funds"});
+        assetTypeCombo = new JComboBox<>(AssetType.values());
         assetNameField = new JTextField();
         assetValueField = new JTextField();
+        currencyCombo = new JComboBox<>(CurrencyCode.values());
+        currencyCombo.setSelectedItem(CurrencyCode.REPORTING);
 
         // Input verification
         assetValueField.setInputVerifier(new InputVerifier() {
@@ -102,20 +110,24 @@ public class AddAssets extends styles {
         formPanel.add(assetNameField);
         formPanel.add(valueLabel);
         formPanel.add(assetValueField);
+        formPanel.add(currencyLabel);
+        formPanel.add(currencyCombo);
 
         // === FORM WRAPPER ===
         JPanel formWrapper = new JPanel(new GridBagLayout());
         formWrapper.setBackground(Color.decode("#f5efe7"));
         formWrapper.add(formPanel);
 
-        // === ASSET LIST AREA ===
-        assetListArea = new JTextArea();
-        assetListArea.setEditable(false);
-        assetListArea.setFont(new Font("Monospaced", Font.PLAIN, 14));
-        assetListArea.setLineWrap(true);
-        assetListArea.setWrapStyleWord(true);
+        // === ASSET TABLE ===
+        assetTable = new JTable(assetModel);
+        assetTable.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        assetTable.setRowHeight(22);
+        assetTable.setFillsViewportHeight(true);
+        DefaultTableCellRenderer valueRenderer = new DefaultTableCellRenderer();
+        valueRenderer.setHorizontalAlignment(SwingConstants.RIGHT);
+        assetTable.getColumnModel().getColumn(AssetTableModel.VALUE_COLUMN).setCellRenderer(valueRenderer);
 
-        JScrollPane scrollPane = new JScrollPane(assetListArea);
+        JScrollPane scrollPane = new JScrollPane(assetTable);
         scrollPane.setBorder(BorderFactory.createTitledBorder("Your Assets"));
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
 
@@ -124,7 +136,7 @@ public class AddAssets extends styles {
         messageLabel.setHorizontalAlignment(SwingConstants.CENTER);
         messageLabel.setFont(new Font("Segoe UI Emoji", Font.PLAIN, 12));
 
-        totalValueLabel = new JLabel("Total Value: $0.00");
+        totalValueLabel = new JLabel("Total Value: " + CurrencyCode.REPORTING.format(0));
         totalValueLabel.setHorizontalAlignment(SwingConstants.CENTER);
         totalValueLabel.setFont(new Font("Segoe UI Emoji", Font.BOLD, 14));
         totalValueLabel.setForeground(Color.decode("#3e5879"));
@@ -143,6 +155,7 @@ public class AddAssets extends styles {
         // === BUTTON PANEL ===
         addButton = styledButton("Add Asset");
         clearButton = styledButton("Clear All");
+        importButton = styledButton("Import CSV");
         backButton = styledButton("Back");
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 20, 10));
@@ -150,6 +163,7 @@ public class AddAssets extends styles {
         buttonPanel.add(backButton);
         buttonPanel.add(addButton);
         buttonPanel.add(clearButton);
+        buttonPanel.add(importButton);
 
         // === MAIN PANEL LAYOUT ===
         mainPanel.add(centerPanel, BorderLayout.NORTH);
@@ -159,15 +173,11 @@ public class AddAssets extends styles {
         add(mainPanel, BorderLayout.CENTER);
 
         // === EVENT LISTENERS ===
-        addButton.addActionListener(e -> {
-            addAsset();
-            saveAssetsToFile();
-        });
+        addButton.addActionListener(e -> addAsset());
 
-        clearButton.addActionListener(e -> {
-            clearAssets();
-            saveAssetsToFile();
-        });
+        clearButton.addActionListener(e -> clearAssets());
+
+        importButton.addActionListener(e -> importAssets());
 
         backButton.addActionListener(e -> goBack());
 
@@ -176,49 +186,17 @@ public class AddAssets extends styles {
             public void keyPressed(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_ENTER) {
                     addAsset();
-                    saveAssetsToFile();
                 }
             }
         });
 
-        updateAssetList(); // Update UI with loaded assets
-    }
-
-    /**
-     * Loads assets from the assets file.
-     * Clears existing assets before loading new ones.
-     */
-    private void loadAssetsFromFile() {
-        File file = new File(ASSETS_FILE);
-        if (!file.exists()) return;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            assets.clear(); // Clear existing assets before loading
-            while ((line = br.readLine()) != null) {
-                Asset asset = Asset.fromCSV(line);
-                if (asset != null) {
-                    assets.add(asset);
-                }
-            }
-        } catch (IOException e) {
+        updateTotal(); // Update UI with loaded assets
+        assetModel.addTableModelListener(e -> updateTotal());
+        AssetRowIndex.getInstance().addListener(assetModel);
+        if (repository.hasLoadFailed()) {
             showMessage("Error loading assets from file.", Color.RED);
-        }
-    }
-
-    /**
-     * Saves the current list of assets to the assets file.
-     * Writes each asset in CSV format.
-     */
-    private void saveAssetsToFile() {
-        try (FileWriter fw = new FileWriter(ASSETS_FILE);
-             BufferedWriter bw = new BufferedWriter(fw)) {
-            for (Asset asset : assets) {
-                bw.write(asset.toCSV());
-                bw.newLine();
-            }
-        } catch (IOException e) {
-            showMessage("Error saving assets to file.", Color.RED);
+        } else if (!repository.getLoadErrors().isEmpty()) {
+            showMessage("Skipped " + repository.getLoadErrors().size() + " unreadable asset record(s).", Color.RED);
         }
     }
 
@@ -242,7 +220,7 @@ public class AddAssets extends styles {
      * Validates input fields and updates the asset list display.
      */
     private void addAsset() {
-        String type = (String) assetTypeCombo.getSelectedItem();
+        String type = ((AssetType) assetTypeCombo.getSelectedItem()).label;
         String name = assetNameField.getText().trim();
         String valueStr = assetValueField.getText().trim();
 
@@ -258,9 +236,8 @@ public class AddAssets extends styles {
                 return;
             }
 
-            Asset newAsset = new Asset(type, name, value);
-            assets.add(newAsset);
-            updateAssetList();
+            Asset newAsset = new Asset(type, name, value, (CurrencyCode) currencyCombo.getSelectedItem());
+            repository.add(newAsset);
             showMessage("Asset added successfully!", new Color(0, 128, 0));
 
             assetNameField.setText("");
@@ -272,27 +249,67 @@ public class AddAssets extends styles {
     }
 
     /**
-     * Updates the asset list display with current assets.
-     * Calculates and displays the total value of all assets.
+     * Lets the user pick a CSV file of {@code type,name,value[,currency]} lines and imports it in the background.
+     * Progress is shown while the file is parsed, and all valid assets are added as one batch.
+     * The file chooser notes that imported assets count as held from the import day.
      */
-    private void updateAssetList() {
-        StringBuilder sb = new StringBuilder();
-        double totalValue = 0;
-
-        if (assets.isEmpty()) {
-            sb.append("No assets found.");
-        } else {
-            for (Asset asset : assets) {
-                sb.append("⇛ Type: ").append(asset.type)
-                        .append(", Name: ").append(asset.name)
-                        .append(", Value: ").append(currencyFormat.format(asset.value))
-                        .append("\n");
-                totalValue += asset.value;
+    private void importAssets() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Assets from CSV");
+        // imported holdings have no purchase date, so their hawl for Zakat starts on the import day
+        JLabel hawlNote = new JLabel("<html>Imported assets are recorded as held from today,<br>"
+                + "so their Zakat year (hawl) starts today.</html>");
+        hawlNote.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
+        chooser.setAccessory(hawlNote);
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+
+        importButton.setEnabled(false);
+        showMessage("Importing " + file.getName() + "...", Color.BLUE);
+
+        new SwingWorker<AssetImporter.Result, Integer>() {
+            @Override
+            protected AssetImporter.Result doInBackground() throws Exception {
+                return AssetImporter.importFile(file.toPath(), this::publish);
+            }
+
+            @Override
+            protected void process(List<Integer> chunks) {
+                showMessage("Importing " + file.getName() + "... " + chunks.get(chunks.size() - 1) + "%", Color.BLUE);
             }
-        }
 
-        assetListArea.setText(sb.toString());
-        totalValueLabel.setText("Total Value: " + currencyFormat.format(totalValue));
+            @Override
+            protected void done() {
+                importButton.setEnabled(true);
+                AssetImporter.Result result;
+                try {
+                    result = get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() instanceof IOException ? ex.getCause() : ex;
+                    showMessage("Error importing assets: " + cause.getMessage(), Color.RED);
+                    return;
+                }
+
+                repository.addAll(result.assets);
+                if (result.skipped == 0) {
+                    showMessage("Imported " + result.assets.size() + " assets.", new Color(0, 128, 0));
+                    return;
+                }
+                showMessage("Imported " + result.assets.size() + " assets, skipped "
+                        + result.skipped + " invalid lines.", Color.RED);
+                JTextArea errorArea = new JTextArea(String.join("\n", result.errors), 15, 50);
+                errorArea.setEditable(false);
+                JOptionPane.showMessageDialog(AddAssets.this, new JScrollPane(errorArea),
+                        "Skipped Lines", JOptionPane.WARNING_MESSAGE);
+            }
+        }.execute();
+    }
+
+    /**
+     * Shows the total value of all assets in the reporting currency, as kept by the table model.
+     */
+    private void updateTotal() {
+        totalValueLabel.setText("Total Value: " + CurrencyCode.REPORTING.format(assetModel.getTotal()));
     }
 
     /**
@@ -300,8 +317,7 @@ public class AddAssets extends styles {
      * Updates the display and saves changes to file.
      */
     private void clearAssets() {
-        assets.clear();
-        updateAssetList();
+        repository.clear();
         showMessage("All assets cleared.", Color.BLUE);
     }
 
@@ -318,10 +334,11 @@ public class AddAssets extends styles {
 
     /**
      * Returns to the previous screen.
-     * Updates the home window with current assets.
+     * Stops listening for asset changes and closes this window.
      */
     private void goBack() {
-        this.setVisible(false);
+        AssetRowIndex.getInstance().removeListener(assetModel);
+        dispose();
         home.setVisible(true);
     }
 }
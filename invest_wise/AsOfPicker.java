@@ -0,0 +1,96 @@
+package invest_wise;
+
+import javax.swing.*;
+import java.awt.*;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * A check box and a date spinner for showing the assets held at the end of a past day instead of the
+ * current ones. The past assets are rebuilt by {@link AssetHistory} in the background and handed to
+ * a callback on the event dispatch thread; a result is dropped if the choice changed while it was
+ * rebuilt. Unticking the box hands over null for the day and the assets.
+ */
+class AsOfPicker {
+    /** Check box for showing a past day instead of the current assets */
+    private final JCheckBox asOfBox;
+    /** Spinner for choosing the past day */
+    private final JSpinner asOfSpinner;
+    /** Component the error dialog is shown over */
+    private final Component parent;
+    /** Receives the chosen day and its assets, or null and null for the current assets */
+    private final BiConsumer<LocalDate, List<Asset>> onChange;
+
+    /**
+     * Constructs the picker.
+     *
+     * @param label Text of the check box
+     * @param background Background color of the check box
+     * @param parent Component the error dialog is shown over
+     * @param onChange Receives the chosen day and its assets, or null and null for the current assets
+     */
+    AsOfPicker(String label, Color background, Component parent, BiConsumer<LocalDate, List<Asset>> onChange) {
+        this.parent = parent;
+        this.onChange = onChange;
+        asOfBox = new JCheckBox(label);
+        asOfBox.setBackground(background);
+        asOfSpinner = new JSpinner(new SpinnerDateModel());
+        asOfSpinner.setEditor(new JSpinner.DateEditor(asOfSpinner, "yyyy-MM-dd"));
+        asOfBox.addActionListener(e -> apply());
+        asOfSpinner.addChangeListener(e -> {
+            if (asOfBox.isSelected()) apply();
+        });
+    }
+
+    /**
+     * Adds the check box and the spinner to a panel.
+     *
+     * @param panel The panel to add them to
+     */
+    void addTo(JPanel panel) {
+        panel.add(asOfBox);
+        panel.add(asOfSpinner);
+    }
+
+    /**
+     * Hands the current assets, or rebuilds and hands the assets of the day in the spinner, to the callback.
+     */
+    private void apply() {
+        if (!asOfBox.isSelected()) {
+            onChange.accept(null, null);
+            return;
+        }
+        LocalDate date = chosenDate();
+        new SwingWorker<List<Asset>, Void>() {
+            @Override
+            protected List<Asset> doInBackground() {
+                return AssetHistory.getInstance().asOf(date);
+            }
+
+            @Override
+            protected void done() {
+                if (!asOfBox.isSelected() || !date.equals(chosenDate())) return;
+                try {
+                    onChange.accept(date, get());
+                } catch (InterruptedException | ExecutionException e) {
+                    JOptionPane.showMessageDialog(parent, "Error reading the asset history: " + e.getMessage());
+                    asOfBox.setSelected(false);
+                    onChange.accept(null, null);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Gets the day in the spinner.
+     *
+     * @return The chosen day
+     */
+    private LocalDate chosenDate() {
+        return ((Date) asOfSpinner.getValue()).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
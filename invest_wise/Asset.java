@@ -1,16 +1,27 @@
 package invest_wise;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Represents a financial asset in the InvestWise application.
- * This class stores information about different types of assets including their type, name, and value.
+ * This class stores information about different types of assets including their type, name, value
+ * and the currency the value is held in.
+ * Assets are immutable; an edit replaces the asset with a new one carrying the same id.
  */
 public class Asset {
+    /** Source of stable asset identifiers, kept ahead of every id seen on disk */
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong(1);
+
+    /** The stable identifier used to journal edits and removals of this asset */
+    final long id;
     /** The type of the asset (e.g., "Stock", "Real Estate", "Cash") */
-    String type;
+    final String type;
     /** The name or identifier of the asset */
-    String name;
+    final String name;
     /** The monetary value of the asset */
-    double value;
+    final double value;
+    /** The currency the value is held in */
+    final CurrencyCode currency;
 
     /**
      * Constructs a new Asset with the specified type, name, and value.
@@ -20,9 +31,83 @@ public class Asset {
      * @param value The monetary value of the asset
      */
     public Asset(String type, String name, double value) {
+        this(type, name, value, CurrencyCode.REPORTING);
+    }
+
+    /**
+     * Constructs a new Asset held in the given currency.
+     *
+     * @param type The type of the asset
+     * @param name The name of the asset
+     * @param value The monetary value of the asset
+     * @param currency The currency the value is held in
+     */
+    public Asset(String type, String name, double value, CurrencyCode currency) {
+        this(ID_SEQUENCE.getAndIncrement(), type, name, value, currency);
+    }
+
+    /**
+     * Constructs an Asset with a known identifier, as read back from storage.
+     *
+     * @param id The stable identifier of the asset
+     * @param type The type of the asset
+     * @param name The name of the asset
+     * @param value The monetary value of the asset
+     */
+    Asset(long id, String type, String name, double value) {
+        this(id, type, name, value, CurrencyCode.REPORTING);
+    }
+
+    /**
+     * Constructs an Asset with a known identifier and currency, as read back from storage.
+     *
+     * @param id The stable identifier of the asset
+     * @param type The type of the asset
+     * @param name The name of the asset
+     * @param value The monetary value of the asset
+     * @param currency The currency the value is held in
+     */
+    Asset(long id, String type, String name, double value, CurrencyCode currency) {
+        reserveId(id);
+        this.id = id;
         this.type = type;
         this.name = name;
         this.value = value;
+        this.currency = currency;
+    }
+
+    /**
+     * Makes sure newly created assets never reuse the given identifier.
+     *
+     * @param id An identifier already in use
+     */
+    static void reserveId(long id) {
+        if (ID_SEQUENCE.get() > id) return; // the common case, without writing the shared counter
+        ID_SEQUENCE.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /**
+     * Reserves a block of consecutive identifiers for assets created in bulk.
+     *
+     * @param count Number of identifiers needed
+     * @return The first identifier of the block
+     */
+    static long reserveIds(int count) {
+        return ID_SEQUENCE.getAndAdd(count);
+    }
+
+    /**
+     * Checks whether this asset already has the given type, name, value and currency.
+     *
+     * @param type The type to compare with
+     * @param name The name to compare with
+     * @param value The value to compare with
+     * @param currency The currency to compare with
+     * @return true if all four match
+     */
+    boolean hasSameValues(String type, String name, double value, CurrencyCode currency) {
+        return this.type.equals(type) && this.name.equals(name) && this.value == value
+                && this.currency == currency;
     }
 
     /**
@@ -31,28 +116,43 @@ public class Asset {
      * @return A string representation of the asset in CSV format
      */
     public String toCSV() {
-        return type + "," + name + "," + value;
+        return CsvWriter.record(type, name, value, id, currency.name());
     }
 
     /**
-     * Creates an Asset object from a CSV string.
+     * Creates an Asset object from the current record of a CSV reader.
+     * Lines written before assets had identifiers get a fresh one, and lines written before
+     * assets had a currency are in the reporting currency. Invalid records are reported to the reader.
      *
-     * @param csv The CSV string containing asset information
-     * @return A new Asset object if the CSV is valid, null otherwise
+     * @param csv The reader positioned on a record
+     * @return A new Asset object if the record is valid, null otherwise
      */
-    public static Asset fromCSV(String csv) {
+    public static Asset fromCSV(CsvReader csv) {
+        int fields = csv.fieldCount();
+        if (fields < 3 || fields > 5) {
+            csv.error("expected 3 to 5 fields but found " + fields);
+            return null;
+        }
         try {
-            String[] parts = csv.split(",");
-            if (parts.length == 3) {
-                String type = parts[0];
-                String name = parts[1];
-                double value = Double.parseDouble(parts[2]);
+            String type = csv.getInterned(0);
+            String name = csv.getString(1);
+            double value = csv.getDouble(2);
+            if (fields == 3) {
                 return new Asset(type, name, value);
             }
-        } catch (Exception e) {
+            CurrencyCode currency = CurrencyCode.REPORTING;
+            if (fields == 5) {
+                currency = CurrencyCode.fromCode(csv.getString(4));
+                if (currency == null) {
+                    csv.error("unsupported currency " + csv.getString(4));
+                    return null;
+                }
+            }
+            return new Asset(csv.getLong(3), type, name, value, currency);
+        } catch (NumberFormatException e) {
+            csv.error("invalid number (" + e.getMessage() + ")");
             return null;
         }
-        return null;
     }
 
     /**
@@ -62,6 +162,6 @@ public class Asset {
      */
     @Override
     public String toString() {
-        return String.format("⇛ %-12s %-20s $%,.2f", type + ":", name, value);
+        return String.format("⇛ %-12s %-20s %s", type + ":", name, currency.format(value));
     }
 }
@@ -0,0 +1,206 @@
+package invest_wise;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.io.StringReader;
+import java.nio.file.*;
+
+/**
+ * Watches the asset journal for records written by other processes and applies them to the repository.
+ * The watcher remembers how far into the journal it has read and only parses bytes appended after that
+ * offset, so each change costs one short read no matter how long the journal is. Records written by this
+ * process move the offset forward as they are appended and are never applied twice.
+ * Each rotation of the journal starts a new version with the offset back at zero; if the journal is found
+ * shorter than the offset for any other reason, the repository is reloaded from disk instead.
+ */
+public class AssetFileWatcher {
+    /** The running watcher, or null before {@link #start} */
+    private static volatile AssetFileWatcher instance;
+
+    /** Repository receiving the changes */
+    private final AssetRepository repository;
+    /** The journal file being watched */
+    private final Path journal = Paths.get(AssetJournal.JOURNAL_FILE);
+    /** Bytes of the current journal already applied; guarded by {@link AssetJournal#LOCK} */
+    private long offset;
+    /** Number of journal versions seen since the watcher started; guarded by {@link AssetJournal#LOCK} */
+    private long version;
+
+    /**
+     * Constructs a watcher positioned at the current end of the journal.
+     *
+     * @param repository Repository receiving the changes
+     */
+    private AssetFileWatcher(AssetRepository repository) {
+        this.repository = repository;
+        synchronized (AssetJournal.LOCK) {
+            offset = journalLength();
+        }
+    }
+
+    /**
+     * Starts watching the asset journal for the given repository.
+     * Calls after the first one have no effect.
+     *
+     * @param repository Repository receiving the changes
+     */
+    static synchronized void start(AssetRepository repository) {
+        if (instance != null) return;
+        instance = new AssetFileWatcher(repository);
+        PersistenceQueue.observeAppends(AssetJournal.JOURNAL_FILE, AssetJournal.LOCK, instance::appendedByThisProcess);
+
+        Thread thread = new Thread(instance::watch, "asset-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Called while holding {@link AssetJournal#LOCK} after this process rotated the journal.
+     */
+    static void journalRotated() {
+        AssetFileWatcher watcher = instance;
+        if (watcher != null) {
+            watcher.offset = 0;
+            watcher.version++;
+        }
+    }
+
+    /**
+     * Gets the number of journal versions the watcher has gone through.
+     *
+     * @return The journal version
+     */
+    long getVersion() {
+        synchronized (AssetJournal.LOCK) {
+            return version;
+        }
+    }
+
+    /**
+     * Moves the offset past records written by this process.
+     * Called while holding {@link AssetJournal#LOCK}.
+     *
+     * @param journalLength The journal length after the append
+     */
+    private void appendedByThisProcess(long journalLength) {
+        offset = journalLength;
+    }
+
+    /**
+     * Body of the watcher thread: waits for changes in the asset directory and reads new journal records.
+     */
+    private void watch() {
+        Path directory = journal.toAbsolutePath().getParent();
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean journalChanged = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object changed = event.context();
+                    journalChanged |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || journal.getFileName().equals(changed);
+                }
+                if (journalChanged) {
+                    readNewRecords();
+                }
+                if (!key.reset()) return;
+            }
+        } catch (IOException e) {
+            System.err.println("Asset file watcher stopped: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads the complete records appended since the last read and hands them to the repository
+     * on the Event Dispatch Thread.
+     */
+    private void readNewRecords() {
+        String records = null;
+        boolean reload = false;
+        synchronized (AssetJournal.LOCK) {
+            long length = journalLength();
+            if (length < offset) {
+                // rotated or truncated by someone else: the read position is meaningless now
+                offset = length;
+                version++;
+                reload = true;
+            } else if (length > offset) {
+                StringBuilder read = new StringBuilder();
+                offset += readRecords(offset, length, read);
+                records = read.toString();
+            }
+        }
+
+        if (reload) {
+            SwingUtilities.invokeLater(repository::reload);
+        } else if (records != null && !records.isEmpty()) {
+            String newRecords = records;
+            SwingUtilities.invokeLater(() -> applyRecords(newRecords));
+        }
+    }
+
+    /**
+     * Applies journal records to the repository without journaling them again.
+     *
+     * @param records Complete journal lines
+     */
+    private void applyRecords(String records) {
+        AssetJournal.RecordHandler handler = repository.externalChanges();
+        try (CsvReader csv = new CsvReader(new StringReader(records))) {
+            while (csv.next()) {
+                AssetJournal.apply(csv, handler);
+            }
+            for (String error : csv.errors()) {
+                System.err.println("Asset file watcher skipped a record: " + error);
+            }
+        } catch (IOException e) {
+            // a string source cannot fail
+        }
+    }
+
+    /**
+     * Reads the complete lines between two positions of the journal.
+     * A trailing partial line is left for the next read.
+     *
+     * @param from Position to start reading at
+     * @param to Current journal length
+     * @param records Receives the lines read, each with its line break
+     * @return The number of bytes consumed
+     */
+    private long readRecords(long from, long to, StringBuilder records) {
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(to - from, Integer.MAX_VALUE));
+            while (buffer.hasRemaining() && channel.read(buffer, from + buffer.position()) > 0) {
+                // keep reading until the buffer is full
+            }
+            byte[] bytes = buffer.array();
+            int end = buffer.position();
+            while (end > 0 && bytes[end - 1] != '\n') {
+                end--;
+            }
+            records.append(new String(bytes, 0, end, StandardCharsets.UTF_8));
+            return end;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Gets the current length of the journal.
+     *
+     * @return The journal length in bytes, or 0 if there is no journal
+     */
+    private long journalLength() {
+        try {
+            return Files.exists(journal) ? Files.size(journal) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package invest_wise;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Answers what the assets looked like at the end of a past day. The whole change history read by
+ * {@link AssetJournal#readHistory} is kept as a list of dated events, and a sparse set of checkpoints
+ * holds the full list of assets after every so many events and at the start of each month.
+ * A query binary-searches the last event of the day, starts from the nearest checkpoint before it and
+ * applies only the events in between. Changes made after the history was read arrive through the
+ * {@link AssetRepository} listener and are dated the day they were made. Changes arriving while the
+ * history is still being read are held back and applied after it, so they neither wait for the read
+ * nor change the dates of the older events.
+ *
+ * <p>Checkpoints are spaced at least as many events apart as there are assets, so together they never
+ * hold more asset references than there are events. Changes journaled before day records existed
+ * carry no day and count as made before any date.</p>
+ */
+class AssetHistory implements AssetRepository.Listener {
+    /** Smallest number of events between two checkpoints */
+    static final int CHECKPOINT_INTERVAL = 1024;
+    /** Day of the events journaled before day records existed */
+    private static final int UNDATED = Integer.MIN_VALUE;
+    /** Event kind of an added or edited asset */
+    private static final byte PUT = 0;
+    /** Event kind of a removed asset */
+    private static final byte REMOVE = 1;
+    /** Event kind of clearing all assets */
+    private static final byte CLEAR = 2;
+
+    /** The shared history, built on first use */
+    private static AssetHistory instance;
+
+    /** Kind of each event */
+    private byte[] kinds = new byte[256];
+    /** Asset of each put event, null for the other kinds */
+    private Asset[] assets = new Asset[256];
+    /** Asset id of each remove event */
+    private long[] ids = new long[256];
+    /** Day of each event, never decreasing, as an epoch day */
+    private int[] days = new int[256];
+    /** Number of events */
+    private int events;
+
+    /** Number of events applied before each checkpoint */
+    private int[] checkpointEvents = new int[16];
+    /** Assets at each checkpoint, in the order they were first added */
+    private Asset[][] checkpointAssets = new Asset[16][];
+    /** Number of checkpoints */
+    private int checkpoints;
+
+    /** Assets after all events, used to take checkpoints */
+    private final LinkedHashMap<Long, Asset> current = new LinkedHashMap<>();
+    /** Day of the events being read from the files */
+    private int day = UNDATED;
+    /** Changes reported while the history is read, applied once it is; also guards {@link #historyRead} */
+    private final ArrayList<Runnable> heldBack = new ArrayList<>();
+    /** Whether the recorded history was read; guarded by {@link #heldBack} */
+    private boolean historyRead;
+
+    /**
+     * Constructs a history; {@link #getInstance} reads the recorded events into it.
+     */
+    private AssetHistory() {
+    }
+
+    /**
+     * Gets the shared history, reading the whole recorded history on the first call.
+     * The first call can take a while and should not run on the event dispatch thread.
+     *
+     * @return The shared history
+     */
+    static synchronized AssetHistory getInstance() {
+        if (instance == null) {
+            AssetRepository repository = AssetRepository.getInstance();
+            AssetHistory history = new AssetHistory();
+            // listen first so no change is missed; a change both in the files and held back is applied
+            // again after the read, which leaves the same assets
+            repository.addListener(history);
+            PersistenceQueue.flush();
+            synchronized (history) {
+                history.read();
+            }
+            synchronized (history.heldBack) {
+                synchronized (history) {
+                    for (Runnable change : history.heldBack) {
+                        change.run();
+                    }
+                }
+                history.heldBack.clear();
+                history.historyRead = true;
+            }
+            instance = history;
+        }
+        return instance;
+    }
+
+    /**
+     * Rebuilds the assets as they were at the end of a day.
+     *
+     * @param date The day
+     * @return The assets on that day, in the order they were first added
+     */
+    synchronized List<Asset> asOf(LocalDate date) {
+        long target = date.toEpochDay();
+        // number of events made on or before the day
+        int low = 0;
+        int high = events;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] <= target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+
+        // last checkpoint taken at or before that event
+        low = 0;
+        high = checkpoints - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (checkpointEvents[mid] <= end) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        LinkedHashMap<Long, Asset> state = new LinkedHashMap<>();
+        for (Asset asset : checkpointAssets[low]) {
+            state.put(asset.id, asset);
+        }
+        for (int e = checkpointEvents[low]; e < end; e++) {
+            switch (kinds[e]) {
+                case PUT -> state.put(assets[e].id, assets[e]);
+                case REMOVE -> state.remove(ids[e]);
+                default -> state.clear();
+            }
+        }
+        return new ArrayList<>(state.values());
+    }
+
+    @Override
+    public void assetAdded(Asset asset) {
+        int today = today();
+        live(() -> put(asset, today));
+    }
+
+    @Override
+    public void assetsAdded(List<Asset> added) {
+        int today = today();
+        live(() -> {
+            for (Asset asset : added) {
+                put(asset, today);
+            }
+        });
+    }
+
+    @Override
+    public void assetUpdated(Asset previous, Asset updated) {
+        int today = today();
+        live(() -> put(updated, today));
+    }
+
+    @Override
+    public void assetRemoved(Asset asset) {
+        int today = today();
+        live(() -> remove(asset.id, today));
+    }
+
+    @Override
+    public void assetsCleared() {
+        int today = today();
+        live(() -> clear(today));
+    }
+
+    /**
+     * Applies a change reported by the repository, or holds it back while the history is read.
+     *
+     * @param change Records the change
+     */
+    private void live(Runnable change) {
+        synchronized (heldBack) {
+            if (!historyRead) {
+                heldBack.add(change);
+                return;
+            }
+            synchronized (this) {
+                change.run();
+            }
+        }
+    }
+
+    /**
+     * Reads the recorded history into the events, starting with a checkpoint of the base assets.
+     */
+    private void read() {
+        ArrayList<String> errors = new ArrayList<>();
+        try {
+            AssetJournal.readHistory(asset -> current.put(asset.id, asset), new AssetJournal.RecordHandler() {
+                @Override
+                public void put(Asset asset) {
+                    AssetHistory.this.put(asset, day);
+                }
+
+                @Override
+                public void remove(long id) {
+                    AssetHistory.this.remove(id, day);
+                }
+
+                @Override
+                public void clear() {
+                    AssetHistory.this.clear(day);
+                }
+
+                @Override
+                public void day(int epochDay) {
+                    day = Math.max(day, epochDay);
+                }
+            }, errors);
+        } catch (IOException e) {
+            System.err.println("Error reading asset history: " + e.getMessage());
+        }
+        for (String error : errors) {
+            System.err.println("Asset history skipped a record: " + error);
+        }
+        if (checkpoints == 0) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Gets the day a change reported now was made.
+     *
+     * @return Today, as an epoch day
+     */
+    private static int today() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+
+    /**
+     * Records an added or edited asset.
+     *
+     * @param asset The asset after the change
+     * @param eventDay Day of the change
+     */
+    private void put(Asset asset, int eventDay) {
+        addEvent(PUT, asset, asset.id, eventDay);
+        current.put(asset.id, asset);
+        checkpointIfDue();
+    }
+
+    /**
+     * Records a removed asset.
+     *
+     * @param id The asset id
+     * @param eventDay Day of the change
+     */
+    private void remove(long id, int eventDay) {
+        addEvent(REMOVE, null, id, eventDay);
+        current.remove(id);
+        checkpointIfDue();
+    }
+
+    /**
+     * Records the removal of all assets.
+     *
+     * @param eventDay Day of the change
+     */
+    private void clear(int eventDay) {
+        addEvent(CLEAR, null, 0, eventDay);
+        current.clear();
+        checkpointIfDue();
+    }
+
+    /**
+     * Appends an event. It is dated no earlier than the last event, so the days never decrease.
+     * The first event is preceded by a checkpoint of the assets the history starts from, and so is
+     * the first event of a month once a sixteenth of the checkpoint spacing has passed since the
+     * last checkpoint.
+     *
+     * @param kind The event kind
+     * @param asset The asset of a put event
+     * @param id The asset id of a remove event
+     * @param eventDay Day of the change
+     */
+    private void addEvent(byte kind, Asset asset, long id, int eventDay) {
+        if (events > 0) {
+            eventDay = Math.max(eventDay, days[events - 1]);
+        }
+        if (checkpoints == 0
+                || (startsMonth(eventDay) && (events - checkpointEvents[checkpoints - 1]) * 16 >= spacing())) {
+            checkpoint();
+        }
+        if (events == kinds.length) {
+            int capacity = events * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            assets = Arrays.copyOf(assets, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            days = Arrays.copyOf(days, capacity);
+        }
+        kinds[events] = kind;
+        assets[events] = asset;
+        ids[events] = id;
+        days[events] = eventDay;
+        events++;
+    }
+
+    /**
+     * Takes a checkpoint once enough events passed since the last one.
+     */
+    private void checkpointIfDue() {
+        if (events - checkpointEvents[checkpoints - 1] >= spacing()) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Gets the number of events between two checkpoints.
+     *
+     * @return {@link #CHECKPOINT_INTERVAL}, or the number of assets if that is larger
+     */
+    private int spacing() {
+        return Math.max(CHECKPOINT_INTERVAL, current.size());
+    }
+
+    /**
+     * Checks whether the next event is the first of its month.
+     *
+     * @param eventDay Day of the next event
+     * @return true if that day is in a later month than the last event
+     */
+    private boolean startsMonth(int eventDay) {
+        if (events == 0 || eventDay == UNDATED) return false;
+        if (days[events - 1] == UNDATED) return true;
+        LocalDate date = LocalDate.ofEpochDay(eventDay);
+        LocalDate previous = LocalDate.ofEpochDay(days[events - 1]);
+        return date.getMonthValue() != previous.getMonthValue() || date.getYear() != previous.getYear();
+    }
+
+    /**
+     * Stores the current assets as a checkpoint after the events so far.
+     */
+    private void checkpoint() {
+        if (checkpoints == checkpointEvents.length) {
+            checkpointEvents = Arrays.copyOf(checkpointEvents, checkpoints * 2);
+            checkpointAssets = Arrays.copyOf(checkpointAssets, checkpoints * 2);
+        }
+        checkpointEvents[checkpoints] = events;
+        checkpointAssets[checkpoints] = current.values().toArray(new Asset[0]);
+        checkpoints++;
+    }
+}
@@ -0,0 +1,309 @@
+package invest_wise;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Imports assets in bulk from a CSV file with one {@code type,name,value} record per line,
+ * optionally followed by a {@code currency} code; values without one are in the reporting currency.
+ * The file is split into chunks on record boundaries and the chunks are parsed in parallel,
+ * one per core. Each record is checked with the same rules as adding an asset by hand:
+ * a known type, a name, and a positive value. Nothing is added to the repository here;
+ * the caller commits the whole result as one batch.
+ *
+ * <p>Chunks are handed to the parsing threads through a small window, so only a few chunks
+ * are read into memory ahead of the threads that parse them. Lines that cannot be read as a
+ * record or fail the checks are skipped and reported with their line numbers.</p>
+ *
+ * <p>A quoted field may contain line breaks, so finding the boundaries scans the whole file once,
+ * following quotes the way {@link CsvReader} does, and only ends a chunk at a line break that
+ * ends a record.</p>
+ */
+class AssetImporter {
+    /** Target size in bytes of one chunk */
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    /** Bytes read at a time while looking for the record breaks ending the chunks */
+    private static final int BOUNDARY_WINDOW = 64 * 1024;
+    /** Boundary scan state: at the start of a field, possibly after spaces */
+    private static final int FIELD_START = 0;
+    /** Boundary scan state: inside an unquoted field, or in text after a quoted one */
+    private static final int UNQUOTED = 1;
+    /** Boundary scan state: inside a quoted field */
+    private static final int QUOTED = 2;
+    /** Boundary scan state: just after a quote inside a quoted field */
+    private static final int QUOTE_SEEN = 3;
+    /** Number of skipped lines reported in detail */
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    /**
+     * The outcome of an import.
+     */
+    static class Result {
+        /** Valid assets, in file order */
+        final List<Asset> assets;
+        /** Number of lines skipped because they could not be read or failed the checks */
+        final int skipped;
+        /** Reasons for the first skipped lines, each starting with its line number */
+        final List<String> errors;
+
+        /**
+         * Constructs an import result.
+         *
+         * @param assets Valid assets, in file order
+         * @param skipped Number of lines skipped
+         * @param errors Reasons for the first skipped lines
+         */
+        Result(List<Asset> assets, int skipped, List<String> errors) {
+            this.assets = assets;
+            this.skipped = skipped;
+            this.errors = errors;
+        }
+    }
+
+    /**
+     * What one chunk produced.
+     */
+    private static class ChunkResult {
+        /** Valid assets of the chunk, in file order */
+        final ArrayList<Asset> assets = new ArrayList<>();
+        /** Number of lines in the chunk */
+        int lines;
+        /** Number of lines skipped */
+        int skipped;
+        /** Reader that parsed the chunk, kept for its error details */
+        CsvReader reader;
+    }
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private AssetImporter() {
+    }
+
+    /**
+     * Parses and checks every record of a CSV file using all cores.
+     * A first line starting with "type" is treated as a header.
+     *
+     * @param file The file to import
+     * @param progress Receives the percentage of the file processed; called from the parsing threads
+     * @return The valid assets and the problems found
+     * @throws IOException If the file cannot be read
+     * @throws InterruptedException If the import was cancelled
+     */
+    static Result importFile(Path file, IntConsumer progress) throws IOException, InterruptedException {
+        long[] boundaries = chunkBoundaries(file);
+        int chunks = boundaries.length - 1;
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), chunks));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "asset-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore window = new Semaphore(threads * 2); // chunks submitted but not yet parsed
+        AtomicLong bytesDone = new AtomicLong();
+        long totalBytes = Math.max(1, boundaries[chunks]);
+        ArrayList<Future<ChunkResult>> results = new ArrayList<>(chunks);
+
+        try {
+            for (int i = 0; i < chunks; i++) {
+                window.acquire();
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                boolean first = i == 0;
+                results.add(pool.submit(() -> {
+                    try {
+                        return parseChunk(file, start, end, first);
+                    } finally {
+                        window.release();
+                        progress.accept((int) (bytesDone.addAndGet(end - start) * 100 / totalBytes));
+                    }
+                }));
+            }
+
+            ArrayList<Asset> assets = new ArrayList<>();
+            ArrayList<String> errors = new ArrayList<>();
+            int skipped = 0;
+            int lineOffset = 0;
+            for (Future<ChunkResult> future : results) {
+                ChunkResult chunk = future.get();
+                assets.addAll(chunk.assets);
+                skipped += chunk.skipped;
+                for (String error : chunk.reader.errors(lineOffset)) {
+                    if (errors.size() < MAX_REPORTED_ERRORS) errors.add(error);
+                }
+                lineOffset += chunk.lines;
+            }
+            return new Result(assets, skipped, Collections.unmodifiableList(errors));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IOException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Splits a file into chunks of roughly {@link #CHUNK_SIZE} bytes that each end after a line break
+     * outside quotes, so no record is split between two chunks.
+     *
+     * @param file The file to split
+     * @return Chunk start offsets followed by the file size
+     * @throws IOException If the file cannot be read
+     */
+    private static long[] chunkBoundaries(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ArrayList<Long> boundaries = new ArrayList<>();
+            boundaries.add(0L);
+            ByteBuffer window = ByteBuffer.allocate(BOUNDARY_WINDOW);
+
+            // quotes, commas and line breaks are single bytes in UTF-8, so the bytes can be scanned directly
+            int state = FIELD_START;
+            long next = CHUNK_SIZE;
+            long position = 0;
+            while (next < size) {
+                window.clear();
+                int read = channel.read(window, position);
+                if (read <= 0) break;
+                for (int i = 0; i < read; i++) {
+                    byte b = window.get(i);
+                    if (state == QUOTED) {
+                        if (b == '"') state = QUOTE_SEEN;
+                    } else if (b == '\n' || b == '\r') {
+                        state = FIELD_START;
+                        long recordEnd = position + i + 1;
+                        if (b == '\n' && recordEnd >= next && recordEnd < size) {
+                            boundaries.add(recordEnd);
+                            next = recordEnd + CHUNK_SIZE;
+                        }
+                    } else if (b == ',') {
+                        state = FIELD_START;
+                    } else if (b == '"' && (state == FIELD_START || state == QUOTE_SEEN)) {
+                        state = QUOTED; // an opening quote, or a doubled one
+                    } else if (state == QUOTE_SEEN || b != ' ' && b != '\t') {
+                        state = UNQUOTED;
+                    }
+                }
+                position += read;
+            }
+            boundaries.add(size);
+
+            long[] result = new long[boundaries.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = boundaries.get(i);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Reads one chunk and turns its valid records into assets.
+     * Identifiers are reserved as one block for the whole chunk.
+     *
+     * @param file The file being imported
+     * @param start Offset of the chunk's first byte
+     * @param end Offset just past the chunk's last byte
+     * @param first Whether this is the first chunk, which may start with a header
+     * @return The chunk's assets and problems
+     * @throws IOException If the chunk cannot be read
+     */
+    private static ChunkResult parseChunk(Path file, long start, long end, boolean first) throws IOException {
+        byte[] bytes = new byte[(int) (end - start)];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                // keep reading until the chunk is complete
+            }
+        }
+
+        ChunkResult chunk = new ChunkResult();
+        ArrayList<String> types = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        double[] values = new double[1024];
+        byte[] currencies = new byte[1024];
+
+        try (CsvReader csv = new CsvReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+            chunk.reader = csv;
+            while (csv.next()) {
+                if (csv.hasErrors()) {
+                    chunk.skipped++; // already reported by the reader
+                    continue;
+                }
+                if (first && csv.lineNumber() == 1 && csv.getString(0).equalsIgnoreCase("type")) {
+                    continue; // header
+                }
+                if (csv.fieldCount() != 3 && csv.fieldCount() != 4) {
+                    csv.error("expected type,name,value[,currency] but found " + csv.fieldCount() + " fields");
+                    chunk.skipped++;
+                    continue;
+                }
+                String type = csv.getInterned(0);
+                String name = csv.getString(1);
+                if (AssetType.fromLabel(type) == null) {
+                    csv.error("unknown asset type \"" + type + "\"");
+                    chunk.skipped++;
+                    continue;
+                }
+                if (name.isEmpty()) {
+                    csv.error("missing asset name");
+                    chunk.skipped++;
+                    continue;
+                }
+                double value;
+                try {
+                    value = csv.getDouble(2);
+                } catch (NumberFormatException e) {
+                    csv.error("asset value must be a valid number");
+                    chunk.skipped++;
+                    continue;
+                }
+                if (!(value > 0) || Double.isInfinite(value)) {
+                    csv.error("asset value must be positive");
+                    chunk.skipped++;
+                    continue;
+                }
+                CurrencyCode currency = CurrencyCode.REPORTING;
+                if (csv.fieldCount() == 4) {
+                    currency = CurrencyCode.fromCode(csv.getString(3));
+                    if (currency == null) {
+                        csv.error("unsupported currency \"" + csv.getString(3) + "\"");
+                        chunk.skipped++;
+                        continue;
+                    }
+                }
+
+                if (types.size() == values.length) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                    currencies = Arrays.copyOf(currencies, currencies.length * 2);
+                }
+                values[types.size()] = value;
+                currencies[types.size()] = (byte) currency.ordinal();
+                types.add(type);
+                names.add(name);
+            }
+            chunk.lines = csv.linesRead();
+        }
+
+        long firstId = Asset.reserveIds(types.size());
+        chunk.assets.ensureCapacity(types.size());
+        for (int i = 0; i < types.size(); i++) {
+            chunk.assets.add(new Asset(firstId + i, types.get(i), names.get(i), values[i],
+                    CurrencyCode.of(currencies[i])));
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,589 @@
+package invest_wise;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Stores assets as a binary snapshot file plus an append-only journal of changes.
+ * Every add, edit, remove or clear appends one short record to the journal, so the cost
+ * of a save does not depend on the size of the portfolio. Records are written through the
+ * {@link PersistenceQueue}, and once the journal grows past a threshold it is folded back
+ * into the snapshot on a background thread. The snapshot format is described in {@link AssetSnapshot}.
+ * Folded journal segments are not deleted but moved to {@link #HISTORY_DIR}, so the full history of
+ * changes is kept while loading only reads the snapshot and the records written since. The snapshot
+ * the history starts from is kept there too, and a day record precedes the first change of each day,
+ * so {@link AssetHistory} can rebuild the assets as they were on any date.
+ */
+public class AssetJournal {
+    /** File holding the last compacted state of all assets */
+    static final String SNAPSHOT_FILE = "invest_wise/assets.bin";
+    /** Text snapshot written by earlier versions, converted on the first load */
+    static final String TEXT_SNAPSHOT_FILE = "invest_wise/assets.txt";
+    /** File receiving one record per change since the last compaction */
+    static final String JOURNAL_FILE = "invest_wise/assets.journal";
+    /** Journal segment currently being folded into the snapshot */
+    static final String COMPACTING_FILE = "invest_wise/assets.journal.compacting";
+    /** Directory keeping every journal segment already folded into the snapshot */
+    static final String HISTORY_DIR = "invest_wise/history";
+    /** Snapshot the archived segments apply to, inside {@link #HISTORY_DIR} */
+    private static final String HISTORY_BASE = "assets-base.bin";
+    /** Number of journal records that triggers a background compaction */
+    private static final int COMPACTION_THRESHOLD = 1000;
+
+    /** Record marker for an added asset */
+    static final String ADD = "A";
+    /** Record marker for an edited asset */
+    static final String EDIT = "E";
+    /** Record marker for a removed asset */
+    static final String REMOVE = "R";
+    /** Record marker for clearing all assets */
+    static final String CLEAR = "C";
+    /** Record marker for the day of the records that follow */
+    static final String DAY = "D";
+    /** Message shown when journal records cannot be written */
+    private static final String SAVE_FAILED = "Error saving assets to file.";
+
+    /** Guards the asset files while they are loaded, appended to, rotated or replaced */
+    static final Object LOCK = new Object();
+    /** Records appended to the journal since it was last rotated */
+    private static final AtomicInteger journalRecords = new AtomicInteger();
+    /** Epoch day of the last day record queued by this process */
+    private static final AtomicLong markedDay = new AtomicLong(Long.MIN_VALUE);
+    /** Whether a compaction is running on its background thread */
+    private static final AtomicBoolean compactionRunning = new AtomicBoolean();
+
+    /**
+     * Receives the changes described by journal records.
+     */
+    interface RecordHandler {
+        /**
+         * Called for an added or edited asset.
+         *
+         * @param asset The asset as it is after the change
+         */
+        void put(Asset asset);
+
+        /**
+         * Called for a removed asset.
+         *
+         * @param id The id of the removed asset
+         */
+        void remove(long id);
+
+        /**
+         * Called when all assets were removed.
+         */
+        void clear();
+
+        /**
+         * Called for a day record; the changes that follow were made on that day.
+         *
+         * @param epochDay The day, as an epoch day
+         */
+        default void day(int epochDay) {
+        }
+    }
+
+    /**
+     * Applies journal records to a map of assets keyed by id.
+     */
+    private static class MapHandler implements RecordHandler {
+        /** Assets keyed by id */
+        private final LinkedHashMap<Long, Asset> state;
+
+        /**
+         * Constructs a handler updating the given map.
+         *
+         * @param state Assets keyed by id
+         */
+        MapHandler(LinkedHashMap<Long, Asset> state) {
+            this.state = state;
+        }
+
+        @Override
+        public void put(Asset asset) {
+            state.put(asset.id, asset);
+        }
+
+        @Override
+        public void remove(long id) {
+            state.remove(id);
+        }
+
+        @Override
+        public void clear() {
+            state.clear();
+        }
+    }
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private AssetJournal() {
+    }
+
+    /**
+     * Loads the current assets by reading the snapshot and replaying the journal on top of it.
+     *
+     * @param errors Receives a message for every line that could not be read
+     * @return ArrayList of assets in the order they were first added
+     * @throws IOException If one of the asset files cannot be read
+     */
+    public static ArrayList<Asset> load(List<String> errors) throws IOException {
+        synchronized (LOCK) {
+            LinkedHashMap<Long, Asset> state = new LinkedHashMap<>();
+            File textSnapshot = new File(TEXT_SNAPSHOT_FILE);
+            boolean convert = !new File(SNAPSHOT_FILE).exists() && textSnapshot.exists();
+            if (convert) {
+                readTextSnapshot(textSnapshot, state, errors);
+            } else {
+                readSnapshot(Paths.get(SNAPSHOT_FILE), state);
+            }
+            replay(new File(COMPACTING_FILE), state, errors);
+            journalRecords.set(replay(new File(JOURNAL_FILE), state, errors));
+
+            // A text snapshot is converted once, folding in the journals. This also fixes the ids
+            // of lines written before assets had ids, so journal records keep pointing at the same
+            // assets on the next start
+            if (convert) {
+                writeSnapshot(state);
+                Files.deleteIfExists(Paths.get(COMPACTING_FILE));
+                Files.deleteIfExists(Paths.get(JOURNAL_FILE));
+                Files.delete(textSnapshot.toPath());
+                journalRecords.set(0);
+            }
+            return new ArrayList<>(state.values());
+        }
+    }
+
+    /**
+     * Journals a newly added asset.
+     *
+     * @param asset The asset that was added
+     */
+    public static void recordAdd(Asset asset) {
+        append(putRecord(ADD, asset));
+    }
+
+    /**
+     * Journals a batch of added assets with a single queued write.
+     *
+     * @param assets The assets that were added; the list must not change afterwards
+     */
+    public static void recordAddAll(List<Asset> assets) {
+        markDay();
+        PersistenceQueue.appendLines(JOURNAL_FILE, assets.size(), i -> putRecord(ADD, assets.get(i)), SAVE_FAILED);
+        countRecords(assets.size());
+    }
+
+    /**
+     * Journals the new state of an edited asset.
+     *
+     * @param asset The asset after the edit
+     */
+    public static void recordEdit(Asset asset) {
+        append(putRecord(EDIT, asset));
+    }
+
+    /**
+     * Journals a batch of edited assets with a single queued write.
+     *
+     * @param assets The assets after the edit; the list must not change afterwards
+     */
+    public static void recordEditAll(List<Asset> assets) {
+        markDay();
+        PersistenceQueue.appendLines(JOURNAL_FILE, assets.size(), i -> putRecord(EDIT, assets.get(i)), SAVE_FAILED);
+        countRecords(assets.size());
+    }
+
+    /**
+     * Formats the record of an added or edited asset.
+     *
+     * @param marker {@link #ADD} or {@link #EDIT}
+     * @param asset The asset after the change
+     * @return The journal record
+     */
+    static String putRecord(String marker, Asset asset) {
+        return CsvWriter.record(marker, asset.id, asset.type, asset.name, asset.value, asset.currency.name());
+    }
+
+    /**
+     * Journals the removal of an asset.
+     *
+     * @param asset The asset that was removed
+     */
+    public static void recordRemove(Asset asset) {
+        append(CsvWriter.record(REMOVE, asset.id));
+    }
+
+    /**
+     * Journals a batch of removed assets with a single queued write.
+     *
+     * @param assets The assets that were removed; the list must not change afterwards
+     */
+    public static void recordRemoveAll(List<Asset> assets) {
+        markDay();
+        PersistenceQueue.appendLines(JOURNAL_FILE, assets.size(), i -> CsvWriter.record(REMOVE, assets.get(i).id),
+                SAVE_FAILED);
+        countRecords(assets.size());
+    }
+
+    /**
+     * Journals the removal of all assets.
+     */
+    public static void recordClear() {
+        append(CLEAR);
+    }
+
+    /**
+     * Queues one record for the journal and schedules a compaction when it gets too long.
+     *
+     * @param record The journal record to append
+     */
+    private static void append(String record) {
+        markDay();
+        PersistenceQueue.appendLine(JOURNAL_FILE, record, SAVE_FAILED);
+        countRecords(1);
+    }
+
+    /**
+     * Queues a day record if nothing was journaled yet today by this process.
+     */
+    private static void markDay() {
+        long today = LocalDate.now().toEpochDay();
+        if (markedDay.getAndSet(today) != today) {
+            PersistenceQueue.appendLine(JOURNAL_FILE, CsvWriter.record(DAY, LocalDate.ofEpochDay(today).toString()),
+                    SAVE_FAILED);
+        }
+    }
+
+    /**
+     * Counts queued journal records and schedules a compaction once there are enough.
+     * The rotation is queued behind the records, so it only moves records that were written.
+     *
+     * @param records Number of records just queued
+     */
+    private static void countRecords(int records) {
+        if (journalRecords.addAndGet(records) >= COMPACTION_THRESHOLD) {
+            journalRecords.set(0);
+            PersistenceQueue.replace(COMPACTING_FILE, AssetJournal::startCompaction, null);
+        }
+    }
+
+    /**
+     * Moves the journal aside and folds it into the snapshot on a background thread.
+     * New changes keep going to a fresh journal while the compaction runs. A segment left behind by
+     * a compaction that failed or was cut short is folded instead, and the journal is rotated the next time.
+     * Runs on the persistence thread, in order with the journal appends.
+     */
+    private static void startCompaction() {
+        if (!compactionRunning.compareAndSet(false, true)) {
+            return; // the previous compaction is still running
+        }
+        Path compacting = Paths.get(COMPACTING_FILE);
+        synchronized (LOCK) {
+            if (!Files.exists(compacting)) {
+                try {
+                    Files.move(Paths.get(JOURNAL_FILE), compacting);
+                } catch (IOException e) {
+                    compactionRunning.set(false);
+                    return; // keep appending to the current journal and retry later
+                }
+                AssetFileWatcher.journalRotated();
+            }
+        }
+
+        Thread worker = new Thread(AssetJournal::compact, "asset-journal-compaction");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Replays the snapshot and the rotated journal, then writes the result as the new snapshot and
+     * archives the rotated journal. Replaying is idempotent, so a crash between the steps only repeats
+     * work on the next load. If a step fails the rotated journal stays in place; it is still replayed
+     * on load and is folded again by the next compaction.
+     */
+    private static void compact() {
+        try {
+            ArrayList<String> errors = new ArrayList<>();
+            LinkedHashMap<Long, Asset> state = fold(Paths.get(SNAPSHOT_FILE), new File(COMPACTING_FILE), errors);
+            for (String error : errors) {
+                System.err.println("Asset journal compaction skipped a record: " + error);
+            }
+            synchronized (LOCK) {
+                keepHistoryBase();
+                writeSnapshot(state);
+                archive(Paths.get(COMPACTING_FILE));
+            }
+        } catch (IOException e) {
+            System.err.println("Asset journal compaction failed, retrying with the next one: " + e.getMessage());
+        } finally {
+            compactionRunning.set(false);
+        }
+    }
+
+    /**
+     * Reads a snapshot and replays a journal segment on top of it, giving the state a compaction writes.
+     *
+     * @param snapshot The snapshot file; a missing file stands for no assets
+     * @param segment The journal segment; a missing file stands for no changes
+     * @param errors Receives a message for every record that could not be read
+     * @return Assets keyed by id, in the order they were first added
+     * @throws IOException If one of the files cannot be read
+     */
+    static LinkedHashMap<Long, Asset> fold(Path snapshot, File segment, List<String> errors) throws IOException {
+        LinkedHashMap<Long, Asset> state = new LinkedHashMap<>();
+        readSnapshot(snapshot, state);
+        replay(segment, state, errors);
+        return state;
+    }
+
+    /**
+     * Copies the snapshot into the history directory before the first segment is archived,
+     * so the archived segments have a known starting point.
+     *
+     * @throws IOException If the copy cannot be written
+     */
+    private static void keepHistoryBase() throws IOException {
+        Path base = Paths.get(HISTORY_DIR, HISTORY_BASE);
+        if (Files.exists(base)) return;
+        Files.createDirectories(base.getParent());
+        Path snapshot = Paths.get(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            Files.copy(snapshot, base);
+        } else {
+            AssetSnapshot.write(base, List.of());
+        }
+    }
+
+    /**
+     * Reads the whole recorded history of the assets: the snapshot it starts from, then every archived
+     * and live journal segment in the order written. Without archived segments the history starts from
+     * the current snapshot.
+     *
+     * @param start Receives the assets the history starts from
+     * @param handler Receives every journaled change, in order
+     * @param errors Receives a message for every record that could not be read
+     * @throws IOException If one of the files cannot be read
+     */
+    static void readHistory(Consumer<Asset> start, RecordHandler handler, List<String> errors) throws IOException {
+        synchronized (LOCK) {
+            Path base = Paths.get(HISTORY_DIR, HISTORY_BASE);
+            List<Path> segments = List.of();
+            if (Files.exists(base)) {
+                try (Stream<Path> files = Files.list(Paths.get(HISTORY_DIR))) {
+                    segments = files.filter(path -> path.getFileName().toString().endsWith(".journal"))
+                            .sorted(Comparator.comparingLong(AssetJournal::archiveNumber))
+                            .toList();
+                }
+            } else {
+                base = Paths.get(SNAPSHOT_FILE);
+            }
+            if (Files.exists(base)) {
+                try (AssetSnapshot snapshot = AssetSnapshot.open(base)) {
+                    snapshot.forEach(start);
+                }
+            }
+            for (Path segment : segments) {
+                replay(segment.toFile(), handler, errors);
+            }
+            replay(new File(COMPACTING_FILE), handler, errors);
+            replay(new File(JOURNAL_FILE), handler, errors);
+        }
+    }
+
+    /**
+     * Gets the sequence number of an archived segment from its name. Segments archived by earlier
+     * versions carry the time they were archived instead, which sorts the same way.
+     *
+     * @param segment The archived segment
+     * @return The sequence number, or 0 if the name holds none
+     */
+    private static long archiveNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(name.indexOf('-') + 1, name.lastIndexOf('.')));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Moves a journal segment that was folded into the snapshot to the history directory.
+     * Segments are numbered one past the highest number already archived, so they sort in the order
+     * they were written whatever the clock does, and an existing segment is never overwritten.
+     * If the segment cannot be archived it stays in place: replaying it again on load is harmless,
+     * and the next compaction archives it.
+     *
+     * @param segment The folded journal segment
+     * @throws IOException If the segment cannot be archived
+     */
+    private static void archive(Path segment) throws IOException {
+        if (!Files.exists(segment)) return;
+        Path history = Files.createDirectories(Paths.get(HISTORY_DIR));
+        long number;
+        try (Stream<Path> files = Files.list(history)) {
+            number = files.filter(path -> path.getFileName().toString().endsWith(".journal"))
+                    .mapToLong(AssetJournal::archiveNumber).max().orElse(0);
+        }
+        Files.move(segment, history.resolve("assets-" + (number + 1) + ".journal"));
+    }
+
+    /**
+     * Reads a binary snapshot file into the given state.
+     *
+     * @param file The snapshot file
+     * @param state Assets keyed by id
+     * @throws IOException If the file cannot be read or is not a valid snapshot
+     */
+    private static void readSnapshot(Path file, LinkedHashMap<Long, Asset> state) throws IOException {
+        if (!Files.exists(file)) return;
+
+        try (AssetSnapshot snapshot = AssetSnapshot.open(file)) {
+            snapshot.forEach(asset -> state.put(asset.id, asset));
+        }
+    }
+
+    /**
+     * Reads a text snapshot written by an earlier version into the given state.
+     * Lines without ids get fresh ones.
+     *
+     * @param file The text snapshot file
+     * @param state Assets keyed by id
+     * @param errors Receives a message for every line that could not be read
+     * @throws IOException If the file cannot be read
+     */
+    private static void readTextSnapshot(File file, LinkedHashMap<Long, Asset> state,
+                                         List<String> errors) throws IOException {
+        try (CsvReader csv = CsvReader.open(file)) {
+            while (csv.next()) {
+                Asset asset = Asset.fromCSV(csv);
+                if (asset != null) {
+                    state.put(asset.id, asset);
+                }
+            }
+            addErrors(file, csv, errors);
+        }
+    }
+
+    /**
+     * Applies every record of a journal file to the given state.
+     *
+     * @param file The journal file
+     * @param state Assets keyed by id
+     * @param errors Receives a message for every record that could not be read
+     * @return The number of records read
+     * @throws IOException If the file cannot be read
+     */
+    private static int replay(File file, LinkedHashMap<Long, Asset> state, List<String> errors) throws IOException {
+        return replay(file, new MapHandler(state), errors);
+    }
+
+    /**
+     * Passes every record of a journal file to a handler.
+     *
+     * @param file The journal file
+     * @param handler Receives the changes
+     * @param errors Receives a message for every record that could not be read
+     * @return The number of records read
+     * @throws IOException If the file cannot be read
+     */
+    private static int replay(File file, RecordHandler handler, List<String> errors) throws IOException {
+        if (!file.exists()) return 0;
+
+        int records = 0;
+        try (CsvReader csv = CsvReader.open(file)) {
+            while (csv.next()) {
+                apply(csv, handler);
+                records++;
+            }
+            addErrors(file, csv, errors);
+        }
+        return records;
+    }
+
+    /**
+     * Applies the current record of a journal reader. Malformed records, such as a line cut short
+     * by a crash, are skipped and reported to the reader. Add and edit records written before assets
+     * had a currency lack the last field and are read in the reporting currency.
+     *
+     * @param csv The reader positioned on a journal record
+     * @param handler Receiver of the change described by the record
+     */
+    static void apply(CsvReader csv, RecordHandler handler) {
+        String marker = csv.getInterned(0);
+        int expectedFields = switch (marker) {
+            case ADD, EDIT -> 5;
+            case REMOVE -> 2;
+            case CLEAR -> 1;
+            case DAY -> 2;
+            default -> -1;
+        };
+        if (expectedFields < 0) {
+            csv.error("unknown journal record \"" + marker + "\"");
+            return;
+        }
+        boolean withCurrency = expectedFields == 5 && csv.fieldCount() == 6;
+        if (csv.fieldCount() != expectedFields && !withCurrency) {
+            csv.error("expected " + expectedFields + " fields but found " + csv.fieldCount());
+            return;
+        }
+
+        try {
+            switch (marker) {
+                case ADD, EDIT -> {
+                    CurrencyCode currency = withCurrency ? CurrencyCode.fromCode(csv.getString(5))
+                            : CurrencyCode.REPORTING;
+                    if (currency == null) {
+                        csv.error("unsupported currency " + csv.getString(5));
+                        return;
+                    }
+                    handler.put(new Asset(csv.getLong(1), csv.getInterned(2), csv.getString(3),
+                            csv.getDouble(4), currency));
+                }
+                case REMOVE -> handler.remove(csv.getLong(1));
+                case DAY -> handler.day((int) LocalDate.parse(csv.getString(1)).toEpochDay());
+                default -> handler.clear();
+            }
+        } catch (NumberFormatException e) {
+            csv.error("invalid number (" + e.getMessage() + ")");
+        } catch (DateTimeException e) {
+            csv.error("invalid date (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Copies the problems found by a reader, naming the file they came from.
+     *
+     * @param file The file that was read
+     * @param csv The reader that read it
+     * @param errors Receives the messages
+     */
+    private static void addErrors(File file, CsvReader csv, List<String> errors) {
+        for (String error : csv.errors()) {
+            errors.add(file.getName() + ", " + error);
+        }
+    }
+
+    /**
+     * Writes the given state as the new snapshot, replacing the old one atomically.
+     *
+     * @param state Assets keyed by id
+     * @throws IOException If the snapshot cannot be written
+     */
+    private static void writeSnapshot(LinkedHashMap<Long, Asset> state) throws IOException {
+        AssetSnapshot.write(Paths.get(SNAPSHOT_FILE), state.values());
+    }
+}
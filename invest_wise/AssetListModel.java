@@ -0,0 +1,78 @@
+package invest_wise;
+
+import javax.swing.AbstractListModel;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * List model showing the assets of the {@link AssetRepository} in the order they were added.
+ * Indexes come from the shared {@link AssetRowIndex}, which holds only asset ids, and the asset at an
+ * index is read from the repository when asked for, so no copy of the assets is kept. Each change is
+ * reported for just the indexes it touches, so an edit repaints one cell instead of the list being
+ * cleared and filled again. The display text of each asset is formatted the first time its cell is
+ * painted and kept by id until that asset is edited or removed.
+ *
+ * <p>Repository changes are delivered on the event dispatch thread, which is the only thread
+ * touching the model.</p>
+ */
+class AssetListModel extends AbstractListModel<Asset> implements AssetRowIndex.Listener {
+    /** Indexes shown */
+    private final AssetRowIndex rows = AssetRowIndex.getInstance();
+    /** Display text of each asset painted since it last changed, by asset id */
+    private final HashMap<Long, String> texts = new HashMap<>();
+
+    @Override
+    public int getSize() {
+        return rows.size();
+    }
+
+    @Override
+    public Asset getElementAt(int index) {
+        return rows.asset(index);
+    }
+
+    /**
+     * Gets the display text of an asset, formatting it only if it was not formatted since the asset last changed.
+     *
+     * @param index Index of the asset
+     * @return The text from {@link Asset#toString}, or an empty text if the asset is gone
+     */
+    String getText(int index) {
+        long id = rows.id(index);
+        String text = texts.get(id);
+        if (text == null) {
+            Asset asset = rows.asset(index);
+            if (asset == null) return "";
+            text = asset.toString();
+            texts.put(id, text);
+        }
+        return text;
+    }
+
+    @Override
+    public void rowsInserted(int first, int last, List<Asset> assets) {
+        fireIntervalAdded(this, first, last);
+    }
+
+    @Override
+    public void rowsUpdated(int first, int last, List<Asset> previous, List<Asset> updated) {
+        for (Asset asset : updated) {
+            texts.remove(asset.id);
+        }
+        fireContentsChanged(this, first, last);
+    }
+
+    @Override
+    public void rowsRemoved(int first, int last, List<Asset> assets) {
+        for (Asset asset : assets) {
+            texts.remove(asset.id);
+        }
+        fireIntervalRemoved(this, first, last);
+    }
+
+    @Override
+    public void rowsCleared(int count) {
+        texts.clear();
+        fireIntervalRemoved(this, 0, count - 1);
+    }
+}
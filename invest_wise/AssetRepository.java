@@ -0,0 +1,540 @@
+package invest_wise;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide owner of the user's assets.
+ * Loads the asset files once, keeps the authoritative state in memory in a columnar {@link AssetStore},
+ * journals every change
+ * through {@link AssetJournal}, and tells registered screens about each change.
+ * Changes take effect in memory immediately; the journal records are written in the background.
+ * Records appended to the journal by another process are picked up by {@link AssetFileWatcher}.
+ * Screens read the assets through immutable snapshots instead of reading the files themselves.
+ */
+public class AssetRepository {
+    /** The single shared repository, created on first use */
+    private static AssetRepository instance;
+
+    /** Current assets, in the order they were added */
+    private final AssetStore assets = new AssetStore();
+    /** Screens to notify after each change */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    /** Whether reading the asset files failed when the repository was created */
+    private boolean loadFailed;
+    /** Lines of the asset files that were skipped when the repository was created */
+    private final List<String> loadErrors = new ArrayList<>();
+
+    /**
+     * Receives a notification after each change to the repository.
+     * Notifications are delivered on the thread that made the change.
+     */
+    public interface Listener {
+        /**
+         * Called after an asset was added.
+         *
+         * @param asset The new asset
+         */
+        void assetAdded(Asset asset);
+
+        /**
+         * Called after a batch of assets was added at once.
+         * By default each asset is reported through {@link #assetAdded}.
+         *
+         * @param assets The new assets, in the order they were added
+         */
+        default void assetsAdded(List<Asset> assets) {
+            for (Asset asset : assets) {
+                assetAdded(asset);
+            }
+        }
+
+        /**
+         * Called after an asset was replaced by an edited version.
+         *
+         * @param previous The asset before the edit
+         * @param updated The asset after the edit, with the same id
+         */
+        void assetUpdated(Asset previous, Asset updated);
+
+        /**
+         * Called after a batch of assets was edited at once.
+         * By default each edit is reported through {@link #assetUpdated}.
+         *
+         * @param previous The assets before the edit
+         * @param updated The assets after the edit, in the same order as {@code previous}
+         */
+        default void assetsUpdated(List<Asset> previous, List<Asset> updated) {
+            for (int i = 0; i < updated.size(); i++) {
+                assetUpdated(previous.get(i), updated.get(i));
+            }
+        }
+
+        /**
+         * Called after an asset was removed.
+         *
+         * @param asset The removed asset
+         */
+        void assetRemoved(Asset asset);
+
+        /**
+         * Called after a batch of assets was removed at once.
+         * By default each asset is reported through {@link #assetRemoved}.
+         *
+         * @param assets The removed assets
+         */
+        default void assetsRemoved(List<Asset> assets) {
+            for (Asset asset : assets) {
+                assetRemoved(asset);
+            }
+        }
+
+        /**
+         * Called after all assets were removed.
+         */
+        void assetsCleared();
+
+        /**
+         * Creates a listener that runs the same action for every kind of change.
+         *
+         * @param action The action to run
+         * @return A listener delegating to the action
+         */
+        static Listener onAnyChange(Runnable action) {
+            return new Listener() {
+                @Override
+                public void assetAdded(Asset asset) {
+                    action.run();
+                }
+
+                @Override
+                public void assetsAdded(List<Asset> assets) {
+                    action.run();
+                }
+
+                @Override
+                public void assetUpdated(Asset previous, Asset updated) {
+                    action.run();
+                }
+
+                @Override
+                public void assetsUpdated(List<Asset> previous, List<Asset> updated) {
+                    action.run();
+                }
+
+                @Override
+                public void assetRemoved(Asset asset) {
+                    action.run();
+                }
+
+                @Override
+                public void assetsRemoved(List<Asset> assets) {
+                    action.run();
+                }
+
+                @Override
+                public void assetsCleared() {
+                    action.run();
+                }
+            };
+        }
+    }
+
+    /**
+     * Creates the repository and loads the stored assets.
+     */
+    private AssetRepository() {
+        try {
+            for (Asset asset : AssetJournal.load(loadErrors)) {
+                assets.put(asset);
+            }
+        } catch (IOException e) {
+            loadFailed = true;
+        }
+        for (String error : loadErrors) {
+            System.err.println("Skipped asset record: " + error);
+        }
+    }
+
+    /**
+     * Applies changes that were already journaled elsewhere, such as records written by another
+     * process. Changes are only applied in memory and reported to the listeners, never journaled again.
+     */
+    private class ExternalChanges implements AssetJournal.RecordHandler {
+        @Override
+        public void put(Asset asset) {
+            Asset previous;
+            synchronized (AssetRepository.this) {
+                previous = assets.put(asset);
+            }
+            if (previous == null) {
+                fireAdded(asset);
+            } else if (!previous.hasSameValues(asset.type, asset.name, asset.value, asset.currency)) {
+                fireUpdated(previous, asset);
+            }
+        }
+
+        @Override
+        public void remove(long id) {
+            Asset removed;
+            synchronized (AssetRepository.this) {
+                removed = assets.remove(id);
+            }
+            if (removed != null) {
+                fireRemoved(removed);
+            }
+        }
+
+        @Override
+        public void clear() {
+            boolean wasEmpty;
+            synchronized (AssetRepository.this) {
+                wasEmpty = assets.size() == 0;
+                assets.clear();
+            }
+            if (!wasEmpty) {
+                fireCleared();
+            }
+        }
+    }
+
+    /**
+     * Gets the shared repository, loading the stored assets on the first call.
+     *
+     * @return The shared asset repository
+     */
+    public static synchronized AssetRepository getInstance() {
+        if (instance == null) {
+            instance = new AssetRepository();
+            AssetFileWatcher.start(instance);
+            HoldingHistory.start(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether the stored assets could not be read when the repository was created.
+     *
+     * @return true if loading the asset files failed
+     */
+    public boolean hasLoadFailed() {
+        return loadFailed;
+    }
+
+    /**
+     * Gets the lines of the asset files that could not be read when the repository was created.
+     *
+     * @return An unmodifiable list of messages naming the file and line
+     */
+    public List<String> getLoadErrors() {
+        return Collections.unmodifiableList(loadErrors);
+    }
+
+    /**
+     * Returns a read-only copy of the current assets.
+     *
+     * @return An unmodifiable list of the assets in the order they were added
+     */
+    public synchronized List<Asset> snapshot() {
+        return Collections.unmodifiableList(assets.toList());
+    }
+
+    /**
+     * Gets the ids of the current assets without creating the assets themselves.
+     *
+     * @return The ids in the order the assets were added
+     */
+    public synchronized long[] ids() {
+        return assets.liveIds();
+    }
+
+    /**
+     * Gets one asset.
+     *
+     * @param id The asset id
+     * @return The asset, or null if there is no asset with the id
+     */
+    public synchronized Asset get(long id) {
+        return assets.get(id);
+    }
+
+    /**
+     * Sums the asset values in the reporting currency in one pass over the columns.
+     *
+     * @return The total value
+     */
+    public double totalValue() {
+        double[] factors = FxRates.getInstance().factorsTo(CurrencyCode.REPORTING);
+        synchronized (this) {
+            return assets.totalValue(factors);
+        }
+    }
+
+    /**
+     * Checks whether there are no assets.
+     *
+     * @return true if the repository holds no assets
+     */
+    public synchronized boolean isEmpty() {
+        return assets.size() == 0;
+    }
+
+    /**
+     * Sums the asset values in the reporting currency and counts the assets per {@link AssetType},
+     * in one pass over the columns.
+     *
+     * @param totals Receives the summed value per type ordinal, plus a last slot for other types
+     * @param counts Receives the number of assets per type ordinal, plus a last slot for other types
+     */
+    public void sumByType(double[] totals, int[] counts) {
+        double[] factors = FxRates.getInstance().factorsTo(CurrencyCode.REPORTING);
+        synchronized (this) {
+            assets.sumByType(totals, counts, factors);
+        }
+    }
+
+    /**
+     * Registers a listener for asset changes.
+     *
+     * @param listener The listener to add
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener for asset changes.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets a handler that applies journal records written elsewhere without journaling them again.
+     *
+     * @return A handler updating this repository
+     */
+    AssetJournal.RecordHandler externalChanges() {
+        return new ExternalChanges();
+    }
+
+    /**
+     * Re-reads the asset files and reports the differences to the listeners as individual changes.
+     * Used when the journal was replaced behind the repository's back.
+     */
+    void reload() {
+        List<Asset> stored;
+        try {
+            stored = AssetJournal.load(new ArrayList<>());
+        } catch (IOException e) {
+            return;
+        }
+
+        ExternalChanges changes = new ExternalChanges();
+        HashSet<Long> storedIds = new HashSet<>();
+        for (Asset asset : stored) {
+            storedIds.add(asset.id);
+        }
+        for (Asset asset : snapshot()) {
+            if (!storedIds.contains(asset.id)) {
+                changes.remove(asset.id);
+            }
+        }
+        for (Asset asset : stored) {
+            changes.put(asset);
+        }
+    }
+
+    /**
+     * Adds a new asset and journals the change.
+     *
+     * @param asset The asset to add
+     */
+    public void add(Asset asset) {
+        synchronized (this) {
+            assets.put(asset);
+            AssetJournal.recordAdd(asset);
+        }
+        fireAdded(asset);
+    }
+
+    /**
+     * Adds a batch of new assets as one change: they are journaled with a single write
+     * and reported to each listener with a single notification.
+     *
+     * @param batch The assets to add
+     */
+    public void addAll(List<Asset> batch) {
+        if (batch.isEmpty()) return;
+        List<Asset> added = Collections.unmodifiableList(new ArrayList<>(batch));
+        synchronized (this) {
+            for (Asset asset : added) {
+                assets.put(asset);
+            }
+            AssetJournal.recordAddAll(added);
+        }
+        for (Listener listener : listeners) {
+            listener.assetsAdded(added);
+        }
+    }
+
+    /**
+     * Replaces an asset with an edited version and journals the change.
+     * Nothing is written and no listener is notified if the values did not change.
+     *
+     * @param id The id of the asset to edit
+     * @param type The new asset type
+     * @param name The new asset name
+     * @param value The new asset value
+     * @param currency The new currency of the value
+     * @return The edited asset, the unchanged asset if nothing differs, or null if no asset has the given id
+     */
+    public Asset update(long id, String type, String name, double value, CurrencyCode currency) {
+        Asset previous;
+        Asset updated;
+        synchronized (this) {
+            previous = assets.get(id);
+            if (previous == null) return null;
+            if (previous.hasSameValues(type, name, value, currency)) {
+                return previous;
+            }
+            updated = new Asset(id, type, name, value, currency);
+            assets.put(updated);
+            AssetJournal.recordEdit(updated);
+        }
+        fireUpdated(previous, updated);
+        return updated;
+    }
+
+    /**
+     * Edits a batch of assets as one change: the edits are journaled with a single write and reported
+     * to each listener with a single notification. Assets that no longer exist or whose values did not
+     * change are skipped.
+     *
+     * @param edits The assets after the edit, each with the id of the asset it replaces
+     * @return The number of assets that changed
+     */
+    public int updateAll(List<Asset> edits) {
+        ArrayList<Asset> previous = new ArrayList<>();
+        ArrayList<Asset> updated = new ArrayList<>();
+        synchronized (this) {
+            for (Asset edit : edits) {
+                Asset current = assets.get(edit.id);
+                if (current == null || current.hasSameValues(edit.type, edit.name, edit.value, edit.currency)) {
+                    continue;
+                }
+                assets.put(edit);
+                previous.add(current);
+                updated.add(edit);
+            }
+            if (updated.isEmpty()) return 0;
+            AssetJournal.recordEditAll(Collections.unmodifiableList(updated));
+        }
+        for (Listener listener : listeners) {
+            listener.assetsUpdated(Collections.unmodifiableList(previous), Collections.unmodifiableList(updated));
+        }
+        return updated.size();
+    }
+
+    /**
+     * Removes an asset and journals the change.
+     *
+     * @param id The id of the asset to remove
+     * @return true if an asset was removed
+     */
+    public boolean remove(long id) {
+        Asset removed;
+        synchronized (this) {
+            removed = assets.remove(id);
+            if (removed == null) return false;
+            AssetJournal.recordRemove(removed);
+        }
+        fireRemoved(removed);
+        return true;
+    }
+
+    /**
+     * Removes a batch of assets as one change: the removals are journaled with a single write and
+     * reported to each listener with a single notification.
+     *
+     * @param ids The ids of the assets to remove
+     * @return The number of assets removed
+     */
+    public int removeAll(List<Long> ids) {
+        ArrayList<Asset> removed = new ArrayList<>();
+        synchronized (this) {
+            for (long id : ids) {
+                Asset asset = assets.remove(id);
+                if (asset != null) {
+                    removed.add(asset);
+                }
+            }
+            if (removed.isEmpty()) return 0;
+            AssetJournal.recordRemoveAll(Collections.unmodifiableList(removed));
+        }
+        for (Listener listener : listeners) {
+            listener.assetsRemoved(Collections.unmodifiableList(removed));
+        }
+        return removed.size();
+    }
+
+    /**
+     * Removes all assets and journals the change.
+     */
+    public void clear() {
+        synchronized (this) {
+            assets.clear();
+            AssetJournal.recordClear();
+        }
+        fireCleared();
+    }
+
+    /**
+     * Tells the listeners about an added asset.
+     *
+     * @param asset The new asset
+     */
+    private void fireAdded(Asset asset) {
+        for (Listener listener : listeners) {
+            listener.assetAdded(asset);
+        }
+    }
+
+    /**
+     * Tells the listeners about an edited asset.
+     *
+     * @param previous The asset before the edit
+     * @param updated The asset after the edit
+     */
+    private void fireUpdated(Asset previous, Asset updated) {
+        for (Listener listener : listeners) {
+            listener.assetUpdated(previous, updated);
+        }
+    }
+
+    /**
+     * Tells the listeners about a removed asset.
+     *
+     * @param asset The removed asset
+     */
+    private void fireRemoved(Asset asset) {
+        for (Listener listener : listeners) {
+            listener.assetRemoved(asset);
+        }
+    }
+
+    /**
+     * Tells the listeners that all assets were removed.
+     */
+    private void fireCleared() {
+        for (Listener listener : listeners) {
+            listener.assetsCleared();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package invest_wise;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rows shown by the asset screens, shared by {@link AssetTableModel} and {@link AssetListModel}.
+ * Each row holds only an asset id, in the order the assets were added, and a {@link LongIntMap} maps
+ * each id back to its row; the models read the asset of a row from the {@link AssetRepository} when
+ * it is painted, so no copy of all the assets is kept. The assets of recently painted rows are kept
+ * in a small cache, dropped on every change, so painting the cells of a row locks the repository and
+ * builds the asset once. The index listens to the repository once and reports each change to its own
+ * listeners as ranges of rows, a batch as few ranges as its rows allow.
+ *
+ * <p>Removing rows shifts the later ones up. Their ids are re-indexed lazily, the first time a row
+ * at or past the first shifted one is looked up, so a run of removals re-indexes at most once.</p>
+ *
+ * <p>Repository changes are delivered on the event dispatch thread, which is the only thread
+ * touching the index.</p>
+ */
+class AssetRowIndex implements AssetRepository.Listener {
+    /** The single shared index, created on first use */
+    private static AssetRowIndex instance;
+    /** Number of rows whose assets are cached; a power of two, more than a screen of rows */
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * Receives the rows touched by each change, after the index was updated.
+     */
+    interface Listener {
+        /**
+         * Called after rows were appended.
+         *
+         * @param first The first new row
+         * @param last The last new row
+         * @param assets The assets of the new rows, in row order
+         */
+        void rowsInserted(int first, int last, List<Asset> assets);
+
+        /**
+         * Called after the assets of some rows were edited. Rows in the range whose asset is not
+         * in {@code updated} did not change.
+         *
+         * @param first The first edited row
+         * @param last The last edited row
+         * @param previous The assets before the edit
+         * @param updated The assets after the edit, in the same order as {@code previous}
+         */
+        void rowsUpdated(int first, int last, List<Asset> previous, List<Asset> updated);
+
+        /**
+         * Called after a range of adjacent rows was removed. The rows after it have already moved up.
+         *
+         * @param first The first removed row
+         * @param last The last removed row
+         * @param assets The assets of the removed rows, in row order
+         */
+        void rowsRemoved(int first, int last, List<Asset> assets);
+
+        /**
+         * Called after all rows were removed.
+         *
+         * @param count The number of rows before the change
+         */
+        void rowsCleared(int count);
+    }
+
+    /** Repository the rows are read from */
+    private final AssetRepository repository;
+    /** Asset id of each row; only the first {@link #size} are in use */
+    private long[] ids;
+    /** Number of rows */
+    private int size;
+    /** Row of each asset id; rows from {@link #indexedRows} on may be stale */
+    private final LongIntMap rows;
+    /** Number of leading rows whose entries in {@link #rows} are known to be current */
+    private int indexedRows;
+    /** Models to notify after each change */
+    private final List<Listener> listeners = new ArrayList<>();
+    /** Row of each cached asset, or -1, in the slot given by the row's low bits */
+    private final int[] cachedRows = new int[CACHE_SIZE];
+    /** Cached asset of the row in the same slot of {@link #cachedRows} */
+    private final Asset[] cachedAssets = new Asset[CACHE_SIZE];
+
+    /**
+     * Creates the index over the current assets and starts following the repository.
+     *
+     * @param repository The repository to index
+     */
+    private AssetRowIndex(AssetRepository repository) {
+        this.repository = repository;
+        Arrays.fill(cachedRows, -1);
+        // listen first, so a change made meanwhile is either in the ids or reported afterwards
+        repository.addListener(this);
+        ids = repository.ids();
+        size = ids.length;
+        rows = new LongIntMap(Math.max(16, Integer.highestOneBit(Math.max(1, size)) * 4));
+        reindex();
+        if (ids.length == 0) {
+            ids = new long[16];
+        }
+    }
+
+    /**
+     * Gets the shared index, creating it over the current assets on the first call.
+     *
+     * @return The shared row index
+     */
+    static synchronized AssetRowIndex getInstance() {
+        if (instance == null) {
+            instance = new AssetRowIndex(AssetRepository.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a model for row changes.
+     *
+     * @param listener The model to add
+     */
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a model for row changes.
+     *
+     * @param listener The model to remove
+     */
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return The number of assets shown
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the asset id of a row.
+     *
+     * @param row The row
+     * @return The asset id
+     */
+    long id(int row) {
+        if (row >= size) throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        return ids[row];
+    }
+
+    /**
+     * Gets the asset of a row, reading it from the repository unless it is cached.
+     *
+     * @param row The row
+     * @return The asset, or null if it was removed and the removal is not reported yet
+     */
+    Asset asset(int row) {
+        int slot = row & (CACHE_SIZE - 1);
+        if (cachedRows[slot] == row) return cachedAssets[slot];
+        Asset asset = repository.get(id(row));
+        if (asset != null) {
+            cachedRows[slot] = row;
+            cachedAssets[slot] = asset;
+        }
+        return asset;
+    }
+
+    /**
+     * Finds the row of an asset.
+     *
+     * @param id The asset id
+     * @return The row, or -1 if the asset is not shown
+     */
+    int rowOf(long id) {
+        int row = rows.get(id, -1);
+        if (row >= indexedRows) {
+            reindex();
+            row = rows.get(id, -1);
+        }
+        return row;
+    }
+
+    @Override
+    public void assetAdded(Asset asset) {
+        assetsAdded(Collections.singletonList(asset));
+    }
+
+    @Override
+    public void assetsAdded(List<Asset> assets) {
+        ArrayList<Asset> added = new ArrayList<>(assets.size());
+        int first = size;
+        for (Asset asset : assets) {
+            if (rowOf(asset.id) >= 0) continue; // already read when the index was created
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size] = asset.id;
+            rows.put(asset.id, size);
+            if (indexedRows == size) {
+                indexedRows++;
+            }
+            size++;
+            added.add(asset);
+        }
+        if (added.isEmpty()) return;
+        clearCache();
+        List<Asset> inserted = Collections.unmodifiableList(added);
+        for (Listener listener : listeners) {
+            listener.rowsInserted(first, size - 1, inserted);
+        }
+    }
+
+    @Override
+    public void assetUpdated(Asset previous, Asset updated) {
+        assetsUpdated(Collections.singletonList(previous), Collections.singletonList(updated));
+    }
+
+    @Override
+    public void assetsUpdated(List<Asset> previous, List<Asset> updated) {
+        int first = Integer.MAX_VALUE;
+        int last = -1;
+        for (Asset asset : updated) {
+            int row = rowOf(asset.id);
+            if (row < 0) continue;
+            first = Math.min(first, row);
+            last = Math.max(last, row);
+        }
+        if (last < 0) return;
+        clearCache();
+        for (Listener listener : listeners) {
+            listener.rowsUpdated(first, last, previous, updated);
+        }
+    }
+
+    @Override
+    public void assetRemoved(Asset asset) {
+        assetsRemoved(Collections.singletonList(asset));
+    }
+
+    @Override
+    public void assetsRemoved(List<Asset> assets) {
+        // sort the removed rows, each packed with the position of its asset in the batch
+        long[] removed = new long[assets.size()];
+        int count = 0;
+        for (int i = 0; i < assets.size(); i++) {
+            int row = rowOf(assets.get(i).id);
+            if (row >= 0) {
+                removed[count++] = (long) row << 32 | i;
+            }
+        }
+        Arrays.sort(removed, 0, count);
+
+        // remove each run of adjacent rows at once, from the back so the earlier rows stay valid
+        int end = count;
+        while (end > 0) {
+            int start = end - 1;
+            while (start > 0 && (int) (removed[start - 1] >>> 32) == (int) (removed[start] >>> 32) - 1) {
+                start--;
+            }
+            int firstRow = (int) (removed[start] >>> 32);
+            int lastRow = (int) (removed[end - 1] >>> 32);
+            ArrayList<Asset> run = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                Asset asset = assets.get((int) removed[i]);
+                rows.remove(asset.id);
+                run.add(asset);
+            }
+            System.arraycopy(ids, lastRow + 1, ids, firstRow, size - lastRow - 1);
+            size -= end - start;
+            indexedRows = Math.min(indexedRows, firstRow);
+            clearCache();
+            List<Asset> runAssets = Collections.unmodifiableList(run);
+            for (Listener listener : listeners) {
+                listener.rowsRemoved(firstRow, lastRow, runAssets);
+            }
+            end = start;
+        }
+    }
+
+    @Override
+    public void assetsCleared() {
+        int count = size;
+        if (count == 0) return;
+        ids = new long[16];
+        size = 0;
+        rows.clear();
+        indexedRows = 0;
+        clearCache();
+        for (Listener listener : listeners) {
+            listener.rowsCleared(count);
+        }
+    }
+
+    /**
+     * Drops the cached assets, after rows were changed or moved.
+     */
+    private void clearCache() {
+        Arrays.fill(cachedRows, -1);
+        Arrays.fill(cachedAssets, null);
+    }
+
+    /**
+     * Brings the row of every id from {@link #indexedRows} on up to date.
+     */
+    private void reindex() {
+        for (int row = indexedRows; row < size; row++) {
+            rows.put(ids[row], row);
+        }
+        indexedRows = size;
+    }
+}
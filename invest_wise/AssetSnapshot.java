@@ -0,0 +1,382 @@
+package invest_wise;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Binary, column-oriented snapshot of all assets.
+ * The file starts with a fixed header holding a magic number, the format version, the record count
+ * and the offset of every section. A small dictionary lists the asset types and a second dictionary
+ * lists each distinct name once. The records follow as columns: ids, values, one type code byte per
+ * asset, one {@link CurrencyCode} ordinal byte per asset and one name index per asset. Columns are
+ * aligned for their element size. Version 1 files have no currency column; their assets are read in
+ * the reporting currency.
+ *
+ * <p>The file is read through {@link FileChannel#map}, so opening it costs no parsing: columns are
+ * read in place, every distinct name is decoded once and shared by all assets carrying it. The
+ * snapshot owns its mapping and releases it when closed, instead of leaving that to the garbage
+ * collector, because some platforms refuse to replace a file that is still mapped.</p>
+ */
+class AssetSnapshot implements Closeable {
+    /** Marks a file as an asset snapshot ("IWAS") */
+    private static final int MAGIC = 0x49574153;
+    /** Current format version */
+    private static final int VERSION = 2;
+    /** Size in bytes of the header */
+    private static final int HEADER_SIZE = 88;
+    /** Size in bytes of the header of version 1, which has no currency column */
+    private static final int VERSION_1_HEADER_SIZE = 80;
+    /** Number of currencies a stored ordinal may refer to */
+    private static final int CURRENCIES = CurrencyCode.values().length;
+    /** Releases a mapping at once, or null if the platform offers no way to */
+    private static final Consumer<ByteBuffer> UNMAPPER = unmapper();
+
+    /** The mapped file */
+    private final ByteBuffer buffer;
+    /** Size in bytes of the header of this file's version */
+    private final int headerSize;
+    /** Number of assets */
+    private final int count;
+    /** Asset types by type code */
+    private final String[] types;
+    /** Offset of each name in the name bytes, plus the end of the last one */
+    private final int nameOffsetsAt;
+    /** Number of distinct names */
+    private final int nameCount;
+    /** Offset of the name bytes */
+    private final long nameBytesAt;
+    /** Offset of the id column */
+    private final int idsAt;
+    /** Offset of the value column */
+    private final int valuesAt;
+    /** Offset of the type code column */
+    private final int typeCodesAt;
+    /** Offset of the currency column, or -1 if the file has none */
+    private final int currenciesAt;
+    /** Offset of the name index column */
+    private final int nameIndexesAt;
+    /** Whether the mapping was released */
+    private boolean closed;
+
+    /**
+     * Reads the header and the type dictionary of a mapped snapshot.
+     *
+     * @param buffer The mapped file
+     * @throws IOException If the file is not a snapshot of a supported version or is cut short
+     */
+    private AssetSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < VERSION_1_HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an asset snapshot.");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION && version != 1) {
+            throw new IOException("Unsupported asset snapshot version " + version + ".");
+        }
+        headerSize = version == 1 ? VERSION_1_HEADER_SIZE : HEADER_SIZE;
+        if (buffer.capacity() < headerSize) {
+            throw new IOException("Asset snapshot is truncated.");
+        }
+        count = buffer.getInt(8);
+        int typeCount = buffer.getInt(12);
+        nameCount = buffer.getInt(16);
+        int typesAt = section(24);
+        nameOffsetsAt = section(32);
+        nameBytesAt = section(40);
+        idsAt = section(48);
+        valuesAt = section(56);
+        typeCodesAt = section(64);
+        nameIndexesAt = section(72);
+        currenciesAt = version == 1 ? -1 : section(80);
+        if (count < 0 || nameCount < 0 || typeCount < 0
+                || (long) nameIndexesAt + 4L * count > buffer.capacity()
+                || (long) currenciesAt + count > buffer.capacity()
+                || (long) nameOffsetsAt + 4L * (nameCount + 1) > buffer.capacity()) {
+            throw new IOException("Asset snapshot is truncated.");
+        }
+
+        types = new String[typeCount];
+        int position = typesAt;
+        for (int i = 0; i < typeCount; i++) {
+            int length = buffer.getShort(position) & 0xFFFF;
+            types[i] = decode(position + 2, length);
+            position += 2 + length;
+        }
+    }
+
+    /**
+     * Maps a snapshot file. The caller closes the snapshot once it has read it.
+     *
+     * @param file The snapshot file
+     * @return The mapped snapshot
+     * @throws IOException If the file cannot be read or is not a valid snapshot
+     */
+    static AssetSnapshot open(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } // the mapping stays valid after the channel is closed
+        try {
+            return new AssetSnapshot(mapped);
+        } catch (IOException e) {
+            unmap(mapped);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the mapping of the file. The snapshot cannot be read afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        unmap(buffer);
+    }
+
+    /**
+     * Gets the number of assets in the snapshot.
+     *
+     * @return The record count
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Creates the assets stored in the snapshot, in their stored order.
+     * Types and names are decoded once per distinct value and shared.
+     *
+     * @param receiver Receives each asset
+     * @throws IOException If a record points outside the file or its dictionaries
+     */
+    void forEach(Consumer<Asset> receiver) throws IOException {
+        if (closed) throw new IOException("Asset snapshot is closed.");
+        try {
+            readAll(receiver);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Asset snapshot is corrupt.");
+        }
+    }
+
+    /**
+     * Decodes every record, see {@link #forEach}.
+     *
+     * @param receiver Receives each asset
+     */
+    private void readAll(Consumer<Asset> receiver) {
+        String[] names = new String[nameCount];
+        for (int i = 0; i < count; i++) {
+            int nameIndex = buffer.getInt(nameIndexesAt + 4 * i);
+            String name = names[nameIndex];
+            if (name == null) {
+                int start = buffer.getInt(nameOffsetsAt + 4 * nameIndex);
+                int end = buffer.getInt(nameOffsetsAt + 4 * (nameIndex + 1));
+                name = decode(nameBytesAt + start, end - start);
+                names[nameIndex] = name;
+            }
+            CurrencyCode currency = CurrencyCode.REPORTING;
+            if (currenciesAt >= 0) {
+                int ordinal = buffer.get(currenciesAt + i);
+                if (ordinal < 0 || ordinal >= CURRENCIES) throw new IndexOutOfBoundsException();
+                currency = CurrencyCode.of(ordinal);
+            }
+            receiver.accept(new Asset(
+                    buffer.getLong(idsAt + 8 * i),
+                    types[buffer.get(typeCodesAt + i)],
+                    name,
+                    buffer.getDouble(valuesAt + 8 * i),
+                    currency));
+        }
+    }
+
+    /**
+     * Writes assets as a new snapshot, replacing the old one atomically.
+     *
+     * @param file The snapshot file
+     * @param assets The assets to store, in order
+     * @throws IOException If the snapshot cannot be written
+     */
+    static void write(Path file, Collection<Asset> assets) throws IOException {
+        HashMap<String, Integer> typeCodes = new HashMap<>();
+        ByteArrayOutputStream typeBytes = new ByteArrayOutputStream();
+        HashMap<String, Integer> nameIndexes = new HashMap<>();
+        ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+        ArrayList<Integer> nameOffsets = new ArrayList<>(List.of(0));
+
+        int count = assets.size();
+        byte[] codes = new byte[count];
+        byte[] currencies = new byte[count];
+        int[] names = new int[count];
+        int i = 0;
+        for (Asset asset : assets) {
+            Integer code = typeCodes.get(asset.type);
+            if (code == null) {
+                if (typeCodes.size() == 128) throw new IOException("Too many asset types.");
+                code = typeCodes.size();
+                typeCodes.put(asset.type, code);
+                byte[] bytes = asset.type.getBytes(StandardCharsets.UTF_8);
+                typeBytes.write(bytes.length >>> 8);
+                typeBytes.write(bytes.length);
+                typeBytes.write(bytes);
+            }
+            Integer index = nameIndexes.get(asset.name);
+            if (index == null) {
+                index = nameIndexes.size();
+                nameIndexes.put(asset.name, index);
+                nameBytes.write(asset.name.getBytes(StandardCharsets.UTF_8));
+                nameOffsets.add(nameBytes.size());
+            }
+            codes[i] = (byte) (int) code;
+            currencies[i] = (byte) asset.currency.ordinal();
+            names[i] = index;
+            i++;
+        }
+
+        long typesAt = HEADER_SIZE;
+        long nameOffsetsAt = align(typesAt + typeBytes.size(), 4);
+        long nameBytesAt = nameOffsetsAt + 4L * nameOffsets.size();
+        long idsAt = align(nameBytesAt + nameBytes.size(), 8);
+        long valuesAt = idsAt + 8L * count;
+        long typeCodesAt = valuesAt + 8L * count;
+        long currenciesAt = typeCodesAt + count;
+        long nameIndexesAt = align(currenciesAt + count, 4);
+        long size = nameIndexesAt + 4L * count;
+        if (size > Integer.MAX_VALUE) throw new IOException("Too many assets for one snapshot.");
+
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, count)
+                .putInt(12, typeCodes.size()).putInt(16, nameIndexes.size())
+                .putLong(24, typesAt).putLong(32, nameOffsetsAt).putLong(40, nameBytesAt)
+                .putLong(48, idsAt).putLong(56, valuesAt).putLong(64, typeCodesAt).putLong(72, nameIndexesAt)
+                .putLong(80, currenciesAt);
+        out.put((int) typesAt, typeBytes.toByteArray());
+        for (int n = 0; n < nameOffsets.size(); n++) {
+            out.putInt((int) nameOffsetsAt + 4 * n, nameOffsets.get(n));
+        }
+        out.put((int) nameBytesAt, nameBytes.toByteArray());
+        i = 0;
+        for (Asset asset : assets) {
+            out.putLong((int) idsAt + 8 * i, asset.id);
+            out.putDouble((int) valuesAt + 8 * i, asset.value);
+            i++;
+        }
+        out.put((int) typeCodesAt, codes);
+        out.put((int) currenciesAt, currencies);
+        for (int n = 0; n < count; n++) {
+            out.putInt((int) nameIndexesAt + 4 * n, names[n]);
+        }
+
+        Path tempFile = Paths.get(file + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        replace(tempFile, file);
+    }
+
+    /**
+     * Moves a new snapshot over the old one. Readers close their snapshots before the file is
+     * replaced, so no mapping of the old file is left to refuse the move.
+     *
+     * @param source The new snapshot
+     * @param target The snapshot file
+     * @throws IOException If the file cannot be replaced
+     */
+    private static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(source);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases a mapping at once where the platform allows it; otherwise the garbage collector
+     * releases it later.
+     *
+     * @param mapped The mapped buffer, not used afterwards
+     */
+    private static void unmap(ByteBuffer mapped) {
+        if (UNMAPPER != null && mapped.isDirect()) {
+            UNMAPPER.accept(mapped);
+        }
+    }
+
+    /**
+     * Looks up the JDK's way of releasing a mapping before its buffer is garbage collected.
+     *
+     * @return The unmapping action, or null if the running JDK does not offer it
+     */
+    private static Consumer<ByteBuffer> unmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            return mapped -> {
+                try {
+                    invokeCleaner.invoke(unsafe, mapped);
+                } catch (ReflectiveOperationException e) {
+                    System.err.println("Could not release an asset snapshot mapping: " + e.getMessage());
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a section offset from the header.
+     *
+     * @param headerPosition Position of the offset in the header
+     * @return The section offset
+     * @throws IOException If the offset lies outside the file
+     */
+    private int section(int headerPosition) throws IOException {
+        long offset = buffer.getLong(headerPosition);
+        if (offset < headerSize || offset > buffer.capacity()) {
+            throw new IOException("Asset snapshot is corrupt.");
+        }
+        return (int) offset;
+    }
+
+    /**
+     * Decodes UTF-8 text stored in the file.
+     *
+     * @param position Offset of the text
+     * @param length Length of the text in bytes
+     * @return The decoded text
+     */
+    private String decode(long position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get((int) position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rounds an offset up to a multiple of an alignment.
+     *
+     * @param offset The offset
+     * @param alignment The alignment, a power of two
+     * @return The aligned offset
+     */
+    private static long align(long offset, int alignment) {
+        return (offset + alignment - 1) & -alignment;
+    }
+}
@@ -0,0 +1,372 @@
+package invest_wise;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Column-oriented in-memory table of assets.
+ * Each asset is a row spread over primitive columns: its id, a type code byte, its value, a
+ * {@link CurrencyCode} ordinal byte and an index into a dictionary holding every distinct name once. Rows keep the order assets were added.
+ * Removing an asset only marks its row as a tombstone; once tombstones make up half of the rows
+ * the columns are compacted in one pass. A {@link LongIntMap} maps ids to rows.
+ *
+ * <p>Aggregations such as totals and per-type sums loop over the columns directly,
+ * converting each value with a factor array indexed by the currency column, and {@link Asset}
+ * objects are only created when a caller asks for one.
+ * The store is not synchronized; {@link AssetRepository} guards it.</p>
+ */
+class AssetStore {
+    /** Type code marking a removed row */
+    private static final byte TOMBSTONE = -1;
+    /** Type codes below this are {@link AssetType} ordinals; codes from here on index {@link #otherTypes} */
+    private static final int OTHER_TYPE_BASE = AssetType.values().length;
+    /** Initial number of rows */
+    private static final int INITIAL_CAPACITY = 16;
+    /** Number of tombstones that is never worth a compaction */
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 64;
+
+    /** Id of each row */
+    private long[] ids = new long[INITIAL_CAPACITY];
+    /** Type code of each row, or {@link #TOMBSTONE} */
+    private byte[] typeCodes = new byte[INITIAL_CAPACITY];
+    /** Value of each row */
+    private double[] values = new double[INITIAL_CAPACITY];
+    /** Currency ordinal of each row */
+    private byte[] currencies = new byte[INITIAL_CAPACITY];
+    /** Name dictionary index of each row */
+    private int[] nameIndexes = new int[INITIAL_CAPACITY];
+    /** Number of rows in use, including tombstones */
+    private int rows;
+    /** Number of tombstones */
+    private int tombstones;
+
+    /** Distinct names, by dictionary index */
+    private ArrayList<String> names = new ArrayList<>();
+    /** Dictionary index of each distinct name */
+    private HashMap<String, Integer> nameIndex = new HashMap<>();
+    /** Type labels that are not {@link AssetType} constants, by code minus {@link #OTHER_TYPE_BASE} */
+    private final ArrayList<String> otherTypes = new ArrayList<>();
+
+    /** Row of each live id */
+    private LongIntMap index = new LongIntMap(INITIAL_CAPACITY * 2);
+
+    /**
+     * Gets the number of assets.
+     *
+     * @return The number of live rows
+     */
+    int size() {
+        return rows - tombstones;
+    }
+
+    /**
+     * Gets the number of rows, including tombstones. Rows are numbered from 0.
+     *
+     * @return The row count
+     */
+    int rowCount() {
+        return rows;
+    }
+
+    /**
+     * Checks whether a row holds an asset rather than a tombstone.
+     *
+     * @param row The row
+     * @return true if the row is live
+     */
+    boolean isLive(int row) {
+        return typeCodes[row] != TOMBSTONE;
+    }
+
+    /**
+     * Gets the value of a row.
+     *
+     * @param row The row
+     * @return The asset value
+     */
+    double value(int row) {
+        return values[row];
+    }
+
+    /**
+     * Gets the currency of a row.
+     *
+     * @param row The row
+     * @return The currency the value is held in
+     */
+    CurrencyCode currency(int row) {
+        return CurrencyCode.of(currencies[row]);
+    }
+
+    /**
+     * Gets the type code of a row: an {@link AssetType} ordinal, a larger code for other types,
+     * or a negative number for a tombstone.
+     *
+     * @param row The row
+     * @return The type code
+     */
+    int typeCode(int row) {
+        return typeCodes[row];
+    }
+
+    /**
+     * Creates an {@link Asset} for a live row.
+     *
+     * @param row The row
+     * @return The asset stored in the row
+     */
+    Asset asset(int row) {
+        return new Asset(ids[row], typeLabel(typeCodes[row]), names.get(nameIndexes[row]), values[row],
+                CurrencyCode.of(currencies[row]));
+    }
+
+    /**
+     * Finds the asset with the given id.
+     *
+     * @param id The asset id
+     * @return The asset, or null if there is none
+     */
+    Asset get(long id) {
+        int row = rowOf(id);
+        return row < 0 ? null : asset(row);
+    }
+
+    /**
+     * Creates the assets of all live rows, in order.
+     *
+     * @return A new list of the assets
+     */
+    List<Asset> toList() {
+        ArrayList<Asset> assets = new ArrayList<>(size());
+        for (int row = 0; row < rows; row++) {
+            if (typeCodes[row] != TOMBSTONE) {
+                assets.add(asset(row));
+            }
+        }
+        return assets;
+    }
+
+    /**
+     * Gets the ids of all live rows, in order, without creating any {@link Asset}.
+     *
+     * @return A new array of the ids
+     */
+    long[] liveIds() {
+        long[] live = new long[size()];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (typeCodes[row] != TOMBSTONE) {
+                live[count++] = ids[row];
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Stores an asset, replacing the row of an asset with the same id in place.
+     *
+     * @param asset The asset to store
+     * @return The asset it replaced, or null if the id is new
+     */
+    Asset put(Asset asset) {
+        int row = rowOf(asset.id);
+        if (row >= 0) {
+            Asset previous = asset(row);
+            typeCodes[row] = typeCode(asset.type);
+            values[row] = asset.value;
+            currencies[row] = (byte) asset.currency.ordinal();
+            nameIndexes[row] = intern(asset.name);
+            return previous;
+        }
+
+        if (rows == ids.length) {
+            grow();
+        }
+        row = rows++;
+        ids[row] = asset.id;
+        typeCodes[row] = typeCode(asset.type);
+        values[row] = asset.value;
+        currencies[row] = (byte) asset.currency.ordinal();
+        nameIndexes[row] = intern(asset.name);
+        index.put(asset.id, row);
+        return null;
+    }
+
+    /**
+     * Removes the asset with the given id by turning its row into a tombstone.
+     *
+     * @param id The asset id
+     * @return The removed asset, or null if there is none
+     */
+    Asset remove(long id) {
+        int row = rowOf(id);
+        if (row < 0) return null;
+
+        Asset removed = asset(row);
+        typeCodes[row] = TOMBSTONE;
+        values[row] = 0; // lets the totals skip the tombstone check
+        tombstones++;
+        index.remove(id);
+        if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones * 2 >= rows) {
+            compact();
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all assets and releases the columns.
+     */
+    void clear() {
+        ids = new long[INITIAL_CAPACITY];
+        typeCodes = new byte[INITIAL_CAPACITY];
+        values = new double[INITIAL_CAPACITY];
+        currencies = new byte[INITIAL_CAPACITY];
+        nameIndexes = new int[INITIAL_CAPACITY];
+        rows = 0;
+        tombstones = 0;
+        names = new ArrayList<>();
+        nameIndex = new HashMap<>();
+        index = new LongIntMap(INITIAL_CAPACITY * 2);
+    }
+
+    /**
+     * Sums the values of all assets in one currency.
+     *
+     * @param factors Conversion factor into that currency, by {@link CurrencyCode} ordinal
+     * @return The total value
+     */
+    double totalValue(double[] factors) {
+        double total = 0;
+        for (int row = 0; row < rows; row++) {
+            total += values[row] * factors[currencies[row]];
+        }
+        return total;
+    }
+
+    /**
+     * Sums values in one currency and counts assets per {@link AssetType}, with a last slot for all
+     * other types.
+     *
+     * @param totals Receives the summed values; must have one more slot than there are types
+     * @param counts Receives the asset counts; must have one more slot than there are types
+     * @param factors Conversion factor into the currency of the totals, by {@link CurrencyCode} ordinal
+     */
+    void sumByType(double[] totals, int[] counts, double[] factors) {
+        Arrays.fill(totals, 0);
+        Arrays.fill(counts, 0);
+        int other = OTHER_TYPE_BASE;
+        for (int row = 0; row < rows; row++) {
+            int code = typeCodes[row];
+            if (code == TOMBSTONE) continue;
+            int slot = Math.min(code, other);
+            totals[slot] += values[row] * factors[currencies[row]];
+            counts[slot]++;
+        }
+    }
+
+    /**
+     * Finds the row of a live asset.
+     *
+     * @param id The asset id
+     * @return The row, or -1 if there is no asset with the id
+     */
+    private int rowOf(long id) {
+        return index.get(id, -1);
+    }
+
+    /**
+     * Gets the code stored for a type.
+     *
+     * @param type The type label
+     * @return The {@link AssetType} ordinal, or a code for another type
+     */
+    private byte typeCode(String type) {
+        AssetType known = AssetType.fromLabel(type);
+        if (known != null) return (byte) known.ordinal();
+
+        int index = otherTypes.indexOf(type);
+        if (index < 0) {
+            if (OTHER_TYPE_BASE + otherTypes.size() > Byte.MAX_VALUE) {
+                throw new IllegalStateException("Too many asset types.");
+            }
+            index = otherTypes.size();
+            otherTypes.add(type);
+        }
+        return (byte) (OTHER_TYPE_BASE + index);
+    }
+
+    /**
+     * Gets the type label for a stored code.
+     *
+     * @param code The type code
+     * @return The type label
+     */
+    private String typeLabel(int code) {
+        return code < OTHER_TYPE_BASE ? AssetType.of(code).label : otherTypes.get(code - OTHER_TYPE_BASE);
+    }
+
+    /**
+     * Gets the dictionary index of a name, adding the name if it is new.
+     *
+     * @param name The asset name
+     * @return The dictionary index
+     */
+    private int intern(String name) {
+        Integer index = nameIndex.get(name);
+        if (index == null) {
+            index = names.size();
+            names.add(name);
+            nameIndex.put(name, index);
+        }
+        return index;
+    }
+
+    /**
+     * Doubles the capacity of the columns.
+     */
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        typeCodes = Arrays.copyOf(typeCodes, capacity);
+        values = Arrays.copyOf(values, capacity);
+        currencies = Arrays.copyOf(currencies, capacity);
+        nameIndexes = Arrays.copyOf(nameIndexes, capacity);
+    }
+
+    /**
+     * Moves the live rows together, dropping tombstones and names no longer used,
+     * and rebuilds the id index.
+     */
+    private void compact() {
+        ArrayList<String> liveNames = new ArrayList<>();
+        HashMap<String, Integer> liveNameIndex = new HashMap<>();
+        int live = 0;
+        for (int row = 0; row < rows; row++) {
+            if (typeCodes[row] == TOMBSTONE) continue;
+            String name = names.get(nameIndexes[row]);
+            Integer index = liveNameIndex.get(name);
+            if (index == null) {
+                index = liveNames.size();
+                liveNames.add(name);
+                liveNameIndex.put(name, index);
+            }
+            ids[live] = ids[row];
+            typeCodes[live] = typeCodes[row];
+            values[live] = values[row];
+            currencies[live] = currencies[row];
+            nameIndexes[live] = index;
+            live++;
+        }
+        rows = live;
+        tombstones = 0;
+        names = liveNames;
+        nameIndex = liveNameIndex;
+
+        index.clear();
+        for (int row = 0; row < rows; row++) {
+            index.put(ids[row], row);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package invest_wise;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * Table model showing the assets of the {@link AssetRepository}, one row per asset in the order they
+ * were added. Rows come from the shared {@link AssetRowIndex}, which holds only asset ids, and the
+ * asset of a row is read from the repository when a visible cell is painted, so values are only
+ * formatted for the rows on screen. It fires an event for just the rows each change touches, and
+ * keeps the total value in the reporting currency up to date with each change instead of summing again.
+ *
+ * <p>Repository changes are delivered on the event dispatch thread, which is the only thread
+ * touching the model.</p>
+ */
+class AssetTableModel extends AbstractTableModel implements AssetRowIndex.Listener {
+    /** Column headers */
+    private static final String[] COLUMNS = {"Type", "Name", "Value"};
+    /** Index of the value column */
+    static final int VALUE_COLUMN = 2;
+
+    /** Rows shown */
+    private final AssetRowIndex rows;
+    /** Conversion factors into the reporting currency, by {@link CurrencyCode} ordinal */
+    private final double[] toReporting = FxRates.getInstance().factorsTo(CurrencyCode.REPORTING);
+    /** Total value of the rows in the reporting currency */
+    private double total;
+
+    /**
+     * Constructs a model over the shared rows. Register it with the {@link AssetRowIndex} to keep it current.
+     *
+     * @param repository The repository to show
+     */
+    AssetTableModel(AssetRepository repository) {
+        rows = AssetRowIndex.getInstance();
+        total = repository.totalValue();
+    }
+
+    /**
+     * Gets the total value of all assets.
+     *
+     * @return The total in the reporting currency
+     */
+    double getTotal() {
+        return total;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Asset asset = rows.asset(row);
+        if (asset == null) return "";
+        return switch (column) {
+            case 0 -> asset.type;
+            case 1 -> asset.name;
+            default -> asset.currency.format(asset.value);
+        };
+    }
+
+    @Override
+    public void rowsInserted(int first, int last, List<Asset> assets) {
+        for (Asset asset : assets) {
+            total += reportingValue(asset);
+        }
+        fireTableRowsInserted(first, last);
+    }
+
+    @Override
+    public void rowsUpdated(int first, int last, List<Asset> previous, List<Asset> updated) {
+        for (int i = 0; i < updated.size(); i++) {
+            total += reportingValue(updated.get(i)) - reportingValue(previous.get(i));
+        }
+        fireTableRowsUpdated(first, last);
+    }
+
+    @Override
+    public void rowsRemoved(int first, int last, List<Asset> assets) {
+        for (Asset asset : assets) {
+            total -= reportingValue(asset);
+        }
+        // start again from zero rather than carry rounding left by the removed values
+        if (rows.size() == 0) {
+            total = 0;
+        }
+        fireTableRowsDeleted(first, last);
+    }
+
+    @Override
+    public void rowsCleared(int count) {
+        total = 0;
+        fireTableRowsDeleted(0, count - 1);
+    }
+
+    /**
+     * Converts an asset's value into the reporting currency.
+     *
+     * @param asset The asset
+     * @return The value in the reporting currency
+     */
+    private double reportingValue(Asset asset) {
+        return asset.value * toReporting[asset.currency.ordinal()];
+    }
+}
@@ -0,0 +1,87 @@
+package invest_wise;
+
+/**
+ * The asset types offered to the user, with the risk weight each type carries in the risk score,
+ * the long-run return assumptions used to simulate goals and whether the type is subject to Zakat.
+ * Assets keep their type as text so that types written by older versions survive;
+ * {@link #fromLabel} maps that text back to a constant.
+ */
+public enum AssetType {
+    STOCKS("Stocks", 0.7, 0.07, 0.18, true),
+    REAL_ESTATE("Real Estate", 0.4, 0.05, 0.12, false),
+    CRYPTO("Crypto", 0.9, 0.15, 0.70, true),
+    GOLD("Gold", 0.3, 0.04, 0.15, true),
+    BONDS("Bonds", 0.2, 0.03, 0.06, true),
+    MUTUAL_FUNDS("Mutual Funds", 0.5, 0.06, 0.14, true);
+
+    /** Risk weight of types that are not one of the constants */
+    static final double UNKNOWN_RISK_WEIGHT = 0.5;
+    /** Expected annual return of types that are not one of the constants */
+    static final double UNKNOWN_RETURN = 0.05;
+    /** Annual volatility of types that are not one of the constants */
+    static final double UNKNOWN_VOLATILITY = 0.12;
+
+    /** All constants, shared instead of copied by {@link #values()} */
+    private static final AssetType[] VALUES = values();
+
+    /** The text shown to the user and stored in the asset files */
+    final String label;
+    /** Risk weight from 0 (safest) to 1 (riskiest) */
+    final double riskWeight;
+    /** Expected annual return, as a fraction */
+    final double expectedReturn;
+    /** Standard deviation of the annual return, as a fraction */
+    final double volatility;
+    /** Whether the value is zakatable; property held for use or rent is not */
+    final boolean zakatable;
+
+    /**
+     * Constructs an asset type.
+     *
+     * @param label The text shown to the user and stored in the asset files
+     * @param riskWeight Risk weight from 0 (safest) to 1 (riskiest)
+     * @param expectedReturn Expected annual return, as a fraction
+     * @param volatility Standard deviation of the annual return, as a fraction
+     * @param zakatable Whether the value is zakatable
+     */
+    AssetType(String label, double riskWeight, double expectedReturn, double volatility, boolean zakatable) {
+        this.label = label;
+        this.riskWeight = riskWeight;
+        this.expectedReturn = expectedReturn;
+        this.volatility = volatility;
+        this.zakatable = zakatable;
+    }
+
+    /**
+     * Finds the type with the given label.
+     *
+     * @param label The stored or displayed text of a type
+     * @return The matching type, or null if the label is not a known type
+     */
+    static AssetType fromLabel(String label) {
+        for (AssetType type : VALUES) {
+            if (type.label.equals(label)) return type;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the type with the given ordinal without copying the constants.
+     *
+     * @param ordinal The ordinal
+     * @return The type
+     */
+    static AssetType of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Returns the label, so combo boxes show the type the way the user knows it.
+     *
+     * @return The label
+     */
+    @Override
+    public String toString() {
+        return label;
+    }
+}
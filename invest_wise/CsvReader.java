@@ -0,0 +1,500 @@
+package invest_wise;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming reader for comma-separated records.
+ * Records are scanned in place inside one reusable character buffer: a field is only a pair of
+ * offsets, numbers are parsed straight from the buffer, and short repeated values such as asset
+ * types are interned, so reading a line allocates nothing beyond the strings the caller keeps.
+ *
+ * <p>Fields may be quoted with double quotes; inside quotes a comma or line break is literal and
+ * a doubled quote stands for one quote. Spaces around unquoted fields are ignored, which also
+ * accepts files written with ", " between fields. Blank lines are skipped.
+ * Records that cannot be decoded are reported through {@link #error} and collected with their
+ * line numbers, so callers can tell the user what was skipped.</p>
+ */
+class CsvReader implements Closeable {
+    /** Initial size of the character buffer */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Number of problems kept with their details; later ones are only counted */
+    private static final int MAX_KEPT_ERRORS = 1000;
+    /** Size of the intern table; only this many distinct values are interned */
+    private static final int INTERN_TABLE_SIZE = 64;
+    /** Powers of ten that are exact as doubles, used by the fast number path */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** Source of the characters */
+    private final Reader in;
+    /** Characters read but not yet consumed; fields of the current record point into it */
+    private char[] buffer = new char[BUFFER_SIZE];
+    /** Position of the next character to scan */
+    private int position;
+    /** Number of valid characters in the buffer */
+    private int limit;
+    /** Whether the source has no more characters */
+    private boolean endOfInput;
+
+    /** Start offset of each field of the current record */
+    private int[] starts = new int[8];
+    /** End offset (exclusive) of each field of the current record */
+    private int[] ends = new int[8];
+    /** Number of fields in the current record */
+    private int fieldCount;
+    /** Line on which the current record starts */
+    private int lineNumber;
+    /** Line on which the next record starts */
+    private int nextLine = 1;
+
+    /** Values returned by {@link #getInterned}, by hash */
+    private final String[] internTable = new String[INTERN_TABLE_SIZE];
+    /** Descriptions of the problems found while reading */
+    private final ArrayList<String> errorMessages = new ArrayList<>();
+    /** Line of each problem in {@link #errorMessages} */
+    private final ArrayList<Integer> errorLines = new ArrayList<>();
+    /** Number of problems found, including those not kept */
+    private int errorCount;
+    /** Whether a problem was found in the current record */
+    private boolean recordHasErrors;
+
+    /**
+     * Constructs a reader over the given characters.
+     *
+     * @param in Source of the characters
+     */
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Opens a reader over a UTF-8 file.
+     *
+     * @param file The file to read
+     * @return A reader positioned before the first record
+     * @throws IOException If the file cannot be opened
+     */
+    static CsvReader open(File file) throws IOException {
+        return new CsvReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Moves to the next record.
+     * The fields of the previous record are no longer available afterwards.
+     *
+     * @return true if a record was read, false at the end of the input
+     * @throws IOException If the source cannot be read
+     */
+    boolean next() throws IOException {
+        while (true) {
+            if (position > buffer.length / 2) {
+                compact();
+            }
+            if (peek() < 0) return false;
+
+            lineNumber = nextLine;
+            fieldCount = 0;
+            recordHasErrors = false;
+            boolean quotedField = readFields();
+            if (fieldCount > 1 || quotedField || starts[0] != ends[0]) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of fields in the current record.
+     *
+     * @return The field count
+     */
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Gets the line on which the current record starts.
+     *
+     * @return The 1-based line number
+     */
+    int lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Gets the number of lines consumed so far, including blank lines.
+     *
+     * @return The line count
+     */
+    int linesRead() {
+        return nextLine - 1;
+    }
+
+    /**
+     * Gets a field as a new string.
+     *
+     * @param field Index of the field
+     * @return The field's text
+     */
+    String getString(int field) {
+        return new String(buffer, starts[field], ends[field] - starts[field]);
+    }
+
+    /**
+     * Gets a field as a shared string, for values that repeat across records such as types.
+     * Repeated values return the same instance without allocating.
+     *
+     * @param field Index of the field
+     * @return The field's text
+     */
+    String getInterned(int field) {
+        int start = starts[field];
+        int end = ends[field];
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+
+        int mask = INTERN_TABLE_SIZE - 1;
+        for (int probe = 0; probe < INTERN_TABLE_SIZE; probe++) {
+            int slot = (hash + probe) & mask;
+            String value = internTable[slot];
+            if (value == null) {
+                value = getString(field);
+                internTable[slot] = value;
+                return value;
+            }
+            if (value.hashCode() == hash && matches(value, start, end)) {
+                return value;
+            }
+        }
+        return getString(field); // table full
+    }
+
+    /**
+     * Parses a field as a decimal number.
+     * Plain decimals with up to 15 significant digits are converted exactly without allocating;
+     * anything else falls back to {@link Double#parseDouble}.
+     *
+     * @param field Index of the field
+     * @return The parsed number
+     * @throws NumberFormatException If the field is not a number
+     */
+    double getDouble(int field) {
+        int start = starts[field];
+        int end = ends[field];
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        for (; i < end && isDigit(buffer[i]); i++) {
+            anyDigit = true;
+            if (significantDigits < 18) {
+                mantissa = mantissa * 10 + (buffer[i] - '0');
+                if (mantissa != 0) significantDigits++;
+            } else {
+                exponent++;
+            }
+        }
+        if (i < end && buffer[i] == '.') {
+            for (i++; i < end && isDigit(buffer[i]); i++) {
+                anyDigit = true;
+                if (significantDigits < 18) {
+                    mantissa = mantissa * 10 + (buffer[i] - '0');
+                    if (mantissa != 0) significantDigits++;
+                    exponent--;
+                }
+            }
+        }
+        if (anyDigit && i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < end && (buffer[j] == '-' || buffer[j] == '+')) {
+                negativeExponent = buffer[j] == '-';
+                j++;
+            }
+            int written = 0;
+            int digitsStart = j;
+            for (; j < end && isDigit(buffer[j]) && j - digitsStart < 9; j++) {
+                written = written * 10 + (buffer[j] - '0');
+            }
+            if (j > digitsStart) {
+                exponent += negativeExponent ? -written : written;
+                i = j;
+            }
+        }
+
+        if (anyDigit && i == end && mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+            double value = mantissa;
+            value = exponent < 0 ? value / POWERS_OF_TEN[-exponent] : value * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(getString(field));
+    }
+
+    /**
+     * Parses a field as a whole number.
+     *
+     * @param field Index of the field
+     * @return The parsed number
+     * @throws NumberFormatException If the field is not a whole number
+     */
+    long getLong(int field) {
+        int start = starts[field];
+        int end = ends[field];
+        int i = start;
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative || i < end && buffer[i] == '+') i++;
+        if (i == end || end - i > 18) {
+            return Long.parseLong(getString(field));
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            if (!isDigit(buffer[i])) {
+                throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+            }
+            value = value * 10 + (buffer[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Records a problem with the current record.
+     *
+     * @param message Description of the problem
+     */
+    void error(String message) {
+        errorCount++;
+        recordHasErrors = true;
+        if (errorMessages.size() < MAX_KEPT_ERRORS) {
+            errorMessages.add(message);
+            errorLines.add(lineNumber);
+        }
+    }
+
+    /**
+     * Tells whether a problem was recorded for the current record, such as a missing closing quote
+     * found while reading it.
+     *
+     * @return true if the current record has a problem
+     */
+    boolean hasErrors() {
+        return recordHasErrors;
+    }
+
+    /**
+     * Gets the number of problems found so far, including those beyond the ones kept in detail.
+     *
+     * @return The problem count
+     */
+    int errorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Gets the problems found so far. Only the first problems are kept in detail.
+     *
+     * @return An unmodifiable list of messages, each starting with its line number
+     */
+    List<String> errors() {
+        return errors(0);
+    }
+
+    /**
+     * Gets the problems found so far, for input that started further down a larger file.
+     *
+     * @param lineOffset Number of lines of the file before this reader's input
+     * @return An unmodifiable list of messages, each starting with its line number in the file
+     */
+    List<String> errors(int lineOffset) {
+        ArrayList<String> errors = new ArrayList<>(errorMessages.size());
+        for (int i = 0; i < errorMessages.size(); i++) {
+            errors.add("Line " + (errorLines.get(i) + lineOffset) + ": " + errorMessages.get(i));
+        }
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Closes the underlying source.
+     *
+     * @throws IOException If the source cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Scans the fields of one record, leaving the position after its line break.
+     *
+     * @return true if any field was quoted
+     * @throws IOException If the source cannot be read
+     */
+    private boolean readFields() throws IOException {
+        boolean quoted = false;
+        while (true) {
+            int c = peek();
+            while (c == ' ' || c == '\t') {
+                position++;
+                c = peek();
+            }
+
+            int start = position;
+            int end;
+            if (c == '"') {
+                quoted = true;
+                position++;
+                start = position;
+                end = readQuoted();
+                c = peek();
+                while (c == ' ' || c == '\t') {
+                    position++;
+                    c = peek();
+                }
+                if (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                    error("unexpected text after a quoted field");
+                    while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                        position++;
+                        c = peek();
+                    }
+                }
+            } else {
+                while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                    position++;
+                    c = peek();
+                }
+                end = position;
+                while (end > start && (buffer[end - 1] == ' ' || buffer[end - 1] == '\t')) {
+                    end--;
+                }
+            }
+            addField(start, end);
+
+            if (c == ',') {
+                position++;
+                continue;
+            }
+            if (c == '\r') {
+                position++;
+                if (peek() == '\n') position++;
+            } else if (c == '\n') {
+                position++;
+            }
+            nextLine++;
+            return quoted;
+        }
+    }
+
+    /**
+     * Scans the rest of a quoted field, folding doubled quotes into the buffer in place.
+     *
+     * @return The end offset of the unescaped field
+     * @throws IOException If the source cannot be read
+     */
+    private int readQuoted() throws IOException {
+        int write = position;
+        while (true) {
+            int c = peek();
+            if (c < 0) {
+                error("missing closing quote");
+                return write;
+            }
+            position++;
+            if (c == '"') {
+                if (peek() != '"') return write;
+                position++;
+            } else if (c == '\n') {
+                nextLine++;
+            }
+            buffer[write++] = (char) c;
+        }
+    }
+
+    /**
+     * Appends a field to the current record.
+     *
+     * @param start Start offset of the field
+     * @param end End offset of the field
+     */
+    private void addField(int start, int end) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    /**
+     * Gets the character at the current position without consuming it, reading more input if needed.
+     *
+     * @return The character, or -1 at the end of the input
+     * @throws IOException If the source cannot be read
+     */
+    private int peek() throws IOException {
+        while (position >= limit) {
+            if (endOfInput) return -1;
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2); // one record larger than the buffer
+            }
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                limit += read;
+            }
+        }
+        return buffer[position];
+    }
+
+    /**
+     * Moves the unread characters to the start of the buffer.
+     * Only done between records once half the buffer is consumed, so the copying stays small.
+     */
+    private void compact() {
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+    }
+
+    /**
+     * Checks whether a string equals a region of the buffer.
+     *
+     * @param value The string to compare
+     * @param start Start offset of the region
+     * @param end End offset of the region
+     * @return true if the characters match
+     */
+    private boolean matches(String value, int start, int end) {
+        if (value.length() != end - start) return false;
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i - start) != buffer[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a character is an ASCII digit.
+     *
+     * @param c The character
+     * @return true for '0' to '9'
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
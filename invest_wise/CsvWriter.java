@@ -0,0 +1,71 @@
+package invest_wise;
+
+/**
+ * Builds comma-separated records that {@link CsvReader} reads back unchanged.
+ * Text containing a comma, a quote or a line break, or starting or ending with a space,
+ * is written in double quotes with embedded quotes doubled. Numbers are written as is.
+ */
+final class CsvWriter {
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private CsvWriter() {
+    }
+
+    /**
+     * Joins values into one record, quoting text where needed.
+     *
+     * @param values The field values; strings are quoted if needed, anything else is written with {@code toString}
+     * @return The record, without a line terminator
+     */
+    static String record(Object... values) {
+        StringBuilder record = new StringBuilder(64);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) record.append(',');
+            if (values[i] instanceof String text) {
+                appendText(record, text);
+            } else {
+                record.append(values[i]);
+            }
+        }
+        return record.toString();
+    }
+
+    /**
+     * Appends a text field, quoting it if it would not read back unchanged otherwise.
+     *
+     * @param record The record being built
+     * @param text The field text
+     */
+    static void appendText(StringBuilder record, String text) {
+        if (!needsQuotes(text)) {
+            record.append(text);
+            return;
+        }
+        record.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') record.append('"');
+            record.append(c);
+        }
+        record.append('"');
+    }
+
+    /**
+     * Checks whether a text field must be quoted.
+     *
+     * @param text The field text
+     * @return true if the text contains a separator, quote or line break, or has surrounding spaces
+     */
+    private static boolean needsQuotes(String text) {
+        if (text.isEmpty()) return false;
+        if (Character.isWhitespace(text.charAt(0)) || Character.isWhitespace(text.charAt(text.length() - 1))) {
+            return true;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,65 @@
+package invest_wise;
+
+/**
+ * The currencies an asset can be held in. Values are converted between them with the
+ * {@link FxRates} matrix, which is indexed by the ordinals of these constants.
+ */
+public enum CurrencyCode {
+    USD("$"),
+    EGP("EGP "),
+    EUR("€"),
+    GBP("£"),
+    SAR("SAR "),
+    AED("AED ");
+
+    /** Currency of assets stored before assets had a currency, and of all totals */
+    static final CurrencyCode REPORTING = USD;
+
+    /** All constants, shared instead of copied by {@link #values()} */
+    private static final CurrencyCode[] VALUES = values();
+
+    /** Text written before an amount */
+    final String symbol;
+
+    /**
+     * Constructs a currency.
+     *
+     * @param symbol Text written before an amount
+     */
+    CurrencyCode(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Finds the currency with the given ISO code.
+     *
+     * @param code The three-letter code, in any case
+     * @return The matching currency, or null if the code is not supported
+     */
+    static CurrencyCode fromCode(String code) {
+        for (CurrencyCode currency : VALUES) {
+            if (currency.name().equalsIgnoreCase(code)) return currency;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the currency with the given ordinal without copying the constants.
+     *
+     * @param ordinal The ordinal
+     * @return The currency
+     */
+    static CurrencyCode of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Formats an amount in this currency, for example "$1,234.50".
+     *
+     * @param amount The amount
+     * @return The amount with the currency symbol and two decimals
+     */
+    String format(double amount) {
+        return String.format("%s%,.2f", symbol, amount);
+    }
+}
@@ -4,61 +4,63 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.*;
-import java.io.*;
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Provides functionality for editing and removing financial assets.
  * Allows users to modify asset details and remove assets from their portfolio.
+ * Several assets can be selected to change their type or currency, or to remove them, as one change.
  */
 public class EditRemoveAssets extends styles {
+    /** Shared store of the user's assets */
+    private final AssetRepository repository = AssetRepository.getInstance();
     /** List component for displaying assets */
     private JList<Asset> assetList;
-    /** Model for managing the asset list data */
-    private DefaultListModel<Asset> listModel;
+    /** Model for the asset list, kept current by repository changes */
+    private final AssetListModel listModel = new AssetListModel();
     /** Button for editing selected asset */
     private JButton editButton;
     /** Button for removing selected asset */
     private JButton removeButton;
+    /** Button for recording a buy or sell of the selected asset */
+    private JButton tradeButton;
     /** Button for returning to previous screen */
     private JButton backButton;
     /** Label for displaying messages */
     private JLabel messageLabel;
-    /** List of user's assets */
-    private ArrayList<Asset> assets;
     /** Reference to the main Home window */
     private Home home;
-    /** File path for storing asset data */
-    private static final String ASSETS_FILE = "invest_wise/assets.txt";
 
     /**
      * Constructs the edit/remove assets window.
      * Initializes the UI components and loads existing assets.
      *
      * @param home Reference to the main Home window
-     * @param assets List of existing assets
      */
-    public EditRemoveAssets(Home home, ArrayList<Asset> assets) {
+    public EditRemoveAssets(Home home) {
         this.home = home;
-        this.assets = new ArrayList<>(assets);
-
-        // Initialize listModel
-        listModel = new DefaultListModel<>();
 
         window();
         setTitle("InvestWise - Edit/Remove Assets");
 
-        // load assets from file
-        loadAssetsFromFile();
+        // follow changes to the assets shown
+        AssetRowIndex.getInstance().addListener(listModel);
 
         // Initialize components
         assetList = new JList<>(listModel);
-        assetList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        assetList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         assetList.setCellRenderer(new AssetListRenderer());
         assetList.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        // size every cell like this one, so the list never reads and formats the rows off screen
+        assetList.setPrototypeCellValue(new Asset(0, AssetType.MUTUAL_FUNDS.label, "W".repeat(20), 1e9,
+                CurrencyCode.REPORTING));
 
         editButton = new JButton("Edit Selected");
         removeButton = new JButton("Remove Selected");
+        tradeButton = new JButton("Record Trade");
         backButton = new JButton("Back");
         messageLabel = new JLabel(" ", SwingConstants.CENTER);
         messageLabel.setBorder(new EmptyBorder(10, 0, 10, 0));
@@ -66,19 +68,16 @@ public class EditRemoveAssets extends styles {
         // Style components
         buttons(editButton);
         buttons(removeButton);
+        buttons(tradeButton);
         buttons(backButton);
         messageLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
 
         // Add action listeners
-        editButton.addActionListener(e -> {
-            editAsset();
-            saveAssetsToFile();
-        });
+        editButton.addActionListener(e -> editAsset());
 
-        removeButton.addActionListener(e -> {
-            removeAsset();
-            saveAssetsToFile();
-        });
+        removeButton.addActionListener(e -> removeAsset());
+
+        tradeButton.addActionListener(e -> recordTrade());
 
         backButton.addActionListener(e -> goBack());
 
@@ -95,90 +94,53 @@ public class EditRemoveAssets extends styles {
         buttonPanel.add(backButton);
         buttonPanel.add(editButton);
         buttonPanel.add(removeButton);
+        buttonPanel.add(tradeButton);
 
         mainPanel.add(scrollPane, BorderLayout.CENTER);
         mainPanel.add(buttonPanel, BorderLayout.SOUTH);
         mainPanel.add(messageLabel, BorderLayout.NORTH);
 
         add(mainPanel);
-    }
 
-    /**
-     * Loads assets from the assets file.
-     * Updates the list model with loaded assets.
-     */
-    private void loadAssetsFromFile() {
-        File file = new File(ASSETS_FILE);
-        if (!file.exists()) {
-            // If file doesn't exist, just use the assets passed in constructor
-            updateListModel();
-            return;
-        }
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            assets.clear(); // Clear existing assets before loading
-            while ((line = br.readLine()) != null) {
-                Asset asset = Asset.fromCSV(line);
-                if (asset != null) {
-                    assets.add(asset);
-                }
-            }
-            updateListModel();
-        } catch (IOException e) {
+        if (repository.hasLoadFailed()) {
             showMessage("Error loading assets from file.", Color.RED);
-        }
-    }
-
-    /**
-     * Updates the list model with current assets.
-     * Refreshes the display of assets in the list.
-     */
-    private void updateListModel() {
-        listModel.clear();
-        for (Asset asset : assets) {
-            listModel.addElement(asset);
-        }
-    }
-
-    /**
-     * Saves the current list of assets to the assets file.
-     * Writes each asset in CSV format.
-     */
-    private void saveAssetsToFile() {
-        try (FileWriter fw = new FileWriter(ASSETS_FILE);
-             BufferedWriter bw = new BufferedWriter(fw)) {
-            for (Asset asset : assets) {
-                bw.write(asset.toCSV());
-                bw.newLine();
-            }
-        } catch (IOException e) {
-            showMessage("Error saving assets to file.", Color.RED);
+        } else if (!repository.getLoadErrors().isEmpty()) {
+            showMessage("Skipped " + repository.getLoadErrors().size() + " unreadable asset record(s).", Color.RED);
         }
     }
 
     /**
      * Opens a dialog to edit the selected asset.
-     * Allows modification of asset type, name, and value.
+     * Allows modification of asset type, name, value and currency.
+     * With several assets selected, opens {@link #editAssets} instead.
      */
     private void editAsset() {
-        Asset selected = assetList.getSelectedValue();
-        if (selected == null) {
+        List<Asset> selection = assetList.getSelectedValuesList();
+        if (selection.isEmpty()) {
             showMessage("Please select an asset to edit.", Color.RED);
             return;
         }
+        if (selection.size() > 1) {
+            editAssets(selection);
+            return;
+        }
+        Asset selected = selection.get(0);
 
         // Create edit dialog
         JDialog editDialog = new JDialog(this, "Edit Asset", true);
-        editDialog.setLayout(new GridLayout(4, 2, 10, 10));
-        editDialog.setSize(400, 200);
+        editDialog.setLayout(new GridLayout(5, 2, 10, 10));
+        editDialog.setSize(400, 240);
 
-        JComboBox<String> typeCombo = new JComboBox<>(
-                new String[]{"Stocks", "Real Estate", "Crypto", "Gold", "Bonds", "Mutual Funds"});
-        typeCombo.setSelectedItem(selected.type);
+        JComboBox<AssetType> typeCombo = new JComboBox<>(AssetType.values());
+        AssetType selectedType = AssetType.fromLabel(selected.type);
+        if (selectedType != null) {
+            typeCombo.setSelectedItem(selectedType);
+        }
 
         JTextField nameField = new JTextField(selected.name);
         JTextField valueField = new JTextField(String.valueOf(selected.value));
+        JComboBox<CurrencyCode> currencyCombo = new JComboBox<>(CurrencyCode.values());
+        currencyCombo.setSelectedItem(selected.currency);
 
         JButton saveButton = new JButton("Save");
         JButton cancelButton = new JButton("Cancel");
@@ -190,6 +152,8 @@ public class EditRemoveAssets extends styles {
         editDialog.add(nameField);
         editDialog.add(new JLabel("Value:"));
         editDialog.add(valueField);
+        editDialog.add(new JLabel("Currency:"));
+        editDialog.add(currencyCombo);
         editDialog.add(saveButton);
         editDialog.add(cancelButton);
 
@@ -208,13 +172,14 @@ public class EditRemoveAssets extends styles {
                     return;
                 }
 
-                selected.type = (String) typeCombo.getSelectedItem();
-                selected.name = newName;
-                selected.value = newValue;
-
-                updateListModel();
-                showMessage("Asset updated successfully!", new Color(0, 128, 0));
+                Asset updated = repository.update(selected.id, ((AssetType) typeCombo.getSelectedItem()).label,
+                        newName, newValue, (CurrencyCode) currencyCombo.getSelectedItem());
                 editDialog.dispose();
+                if (updated == null) {
+                    showMessage("The asset no longer exists; it was removed meanwhile.", Color.RED);
+                    return;
+                }
+                showMessage("Asset updated successfully!", new Color(0, 128, 0));
             } catch (NumberFormatException ex) {
                 showMessage("Please enter a valid number for value", Color.RED);
             }
@@ -227,27 +192,209 @@ public class EditRemoveAssets extends styles {
     }
 
     /**
-     * Removes the selected asset from the list.
+     * Opens a dialog to change the type or the currency of several assets at once.
+     * The edits are saved as one change; Save stays disabled until a field is ticked,
+     * and assets that already have the chosen values are left untouched.
+     *
+     * @param selection The selected assets
+     */
+    private void editAssets(List<Asset> selection) {
+        JDialog editDialog = new JDialog(this, "Edit " + selection.size() + " Assets", true);
+        editDialog.setLayout(new GridLayout(3, 2, 10, 10));
+        editDialog.setSize(400, 160);
+
+        JCheckBox typeBox = new JCheckBox("Set type:");
+        JComboBox<AssetType> typeCombo = new JComboBox<>(AssetType.values());
+        JCheckBox currencyBox = new JCheckBox("Set currency:");
+        JComboBox<CurrencyCode> currencyCombo = new JComboBox<>(CurrencyCode.values());
+        JButton saveButton = new JButton("Save");
+        JButton cancelButton = new JButton("Cancel");
+        typeCombo.setEnabled(false);
+        currencyCombo.setEnabled(false);
+        saveButton.setEnabled(false);
+        typeBox.addActionListener(e -> {
+            typeCombo.setEnabled(typeBox.isSelected());
+            saveButton.setEnabled(typeBox.isSelected() || currencyBox.isSelected());
+        });
+        currencyBox.addActionListener(e -> {
+            currencyCombo.setEnabled(currencyBox.isSelected());
+            saveButton.setEnabled(typeBox.isSelected() || currencyBox.isSelected());
+        });
+
+        editDialog.add(typeBox);
+        editDialog.add(typeCombo);
+        editDialog.add(currencyBox);
+        editDialog.add(currencyCombo);
+        editDialog.add(saveButton);
+        editDialog.add(cancelButton);
+
+        saveButton.addActionListener(e -> {
+            ArrayList<Asset> edits = new ArrayList<>(selection.size());
+            for (Asset asset : selection) {
+                String type = typeBox.isSelected() ? ((AssetType) typeCombo.getSelectedItem()).label : asset.type;
+                CurrencyCode currency = currencyBox.isSelected()
+                        ? (CurrencyCode) currencyCombo.getSelectedItem() : asset.currency;
+                if (!asset.hasSameValues(type, asset.name, asset.value, currency)) {
+                    edits.add(new Asset(asset.id, type, asset.name, asset.value, currency));
+                }
+            }
+            editDialog.dispose();
+            if (edits.isEmpty()) {
+                showMessage("The selected assets already have these values; nothing was changed.", Color.RED);
+                return;
+            }
+            int updated = repository.updateAll(edits);
+            showMessage(updated + " asset(s) updated successfully!", new Color(0, 128, 0));
+        });
+
+        cancelButton.addActionListener(e -> editDialog.dispose());
+
+        editDialog.setLocationRelativeTo(this);
+        editDialog.setVisible(true);
+    }
+
+    /**
+     * Removes the selected assets from the list as one change.
      * Prompts for confirmation before removal.
      */
     private void removeAsset() {
-        Asset selected = assetList.getSelectedValue();
-        if (selected == null) {
+        List<Asset> selection = assetList.getSelectedValuesList();
+        if (selection.isEmpty()) {
             showMessage("Please select an asset to remove.", Color.RED);
             return;
         }
 
-        int confirm = JOptionPane.showConfirmDialog(this,
-                "Are you sure you want to remove this asset?\n" + selected,
-                "Confirm Removal", JOptionPane.YES_NO_OPTION);
+        String question = selection.size() == 1
+                ? "Are you sure you want to remove this asset?\n" + selection.get(0)
+                : "Are you sure you want to remove these " + selection.size() + " assets?";
+        int confirm = JOptionPane.showConfirmDialog(this, question, "Confirm Removal", JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            assets.remove(selected);
-            updateListModel();
-            showMessage("Asset removed successfully!", new Color(0, 128, 0));
+            ArrayList<Long> ids = new ArrayList<>(selection.size());
+            for (Asset asset : selection) {
+                ids.add(asset.id);
+            }
+            int removed = repository.removeAll(ids);
+            showMessage(removed == 1 ? "Asset removed successfully!" : removed + " assets removed successfully!",
+                    new Color(0, 128, 0));
         }
     }
 
+    /**
+     * Opens a dialog to record a buy or sell of the selected asset as tax lots, or a cash deposit
+     * or withdrawal. Sales consume lots first in first out, last in first out or from one chosen lot.
+     */
+    private void recordTrade() {
+        List<Asset> selection = assetList.getSelectedValuesList();
+        if (selection.size() != 1) {
+            showMessage("Please select one asset to trade.", Color.RED);
+            return;
+        }
+        Asset selected = selection.get(0);
+        LotBook book = LotBook.getInstance();
+
+        JDialog tradeDialog = new JDialog(this, "Record Trade - " + selected.name, true);
+        tradeDialog.setLayout(new GridLayout(7, 2, 10, 10));
+        tradeDialog.setSize(460, 320);
+
+        JComboBox<String> actionCombo = new JComboBox<>(new String[]{"Buy", "Sell", "Deposit Cash", "Withdraw Cash"});
+        JTextField quantityField = new JTextField();
+        JTextField priceField = new JTextField();
+        JTextField dateField = new JTextField(LocalDate.now().toString());
+        JComboBox<LotBook.Matching> matchingCombo = new JComboBox<>(LotBook.Matching.values());
+
+        // open lots of the holding, for selling a specific lot
+        JComboBox<String> lotCombo = new JComboBox<>();
+        long[] lotIds;
+        synchronized (book) {
+            int holding = book.indexOf(selected.name);
+            LotDeque lots = holding < 0 ? new LotDeque() : book.lots(holding);
+            lotIds = new long[lots.size()];
+            for (int i = 0; i < lots.size(); i++) {
+                lotIds[i] = lots.id(i);
+                lotCombo.addItem(String.format("#%d: %,.4f @ %,.2f (%s)", lots.id(i), lots.quantity(i),
+                        lots.unitCost(i), LocalDate.ofEpochDay(lots.day(i))));
+            }
+        }
+        Runnable updateEnabled = () -> {
+            boolean selling = actionCombo.getSelectedIndex() == 1;
+            priceField.setEnabled(actionCombo.getSelectedIndex() < 2);
+            matchingCombo.setEnabled(selling);
+            lotCombo.setEnabled(selling && matchingCombo.getSelectedItem() == LotBook.Matching.SPECIFIC);
+        };
+        actionCombo.addActionListener(e -> updateEnabled.run());
+        matchingCombo.addActionListener(e -> updateEnabled.run());
+        updateEnabled.run();
+
+        JButton saveButton = new JButton("Save");
+        JButton cancelButton = new JButton("Cancel");
+
+        tradeDialog.add(new JLabel("Action:"));
+        tradeDialog.add(actionCombo);
+        tradeDialog.add(new JLabel("Quantity / Amount:"));
+        tradeDialog.add(quantityField);
+        tradeDialog.add(new JLabel("Price per Unit:"));
+        tradeDialog.add(priceField);
+        tradeDialog.add(new JLabel("Date (YYYY-MM-DD):"));
+        tradeDialog.add(dateField);
+        tradeDialog.add(new JLabel("Sell Lots:"));
+        tradeDialog.add(matchingCombo);
+        tradeDialog.add(new JLabel("Lot:"));
+        tradeDialog.add(lotCombo);
+        tradeDialog.add(saveButton);
+        tradeDialog.add(cancelButton);
+
+        saveButton.addActionListener(e -> {
+            try {
+                double quantity = Double.parseDouble(quantityField.getText().trim());
+                int day = (int) LocalDate.parse(dateField.getText().trim()).toEpochDay();
+                if (actionCombo.getSelectedIndex() >= 2) {
+                    if (!(quantity > 0) || Double.isInfinite(quantity)) {
+                        showMessage("Amount must be positive", Color.RED);
+                        return;
+                    }
+                    book.cashFlow(actionCombo.getSelectedIndex() == 2 ? quantity : -quantity, day);
+                    showMessage(String.format("Cash flow recorded, balance %,.2f.", book.cash()), new Color(0, 128, 0));
+                    tradeDialog.dispose();
+                    return;
+                }
+                double price = Double.parseDouble(priceField.getText().trim());
+                if (!(quantity > 0) || !(price >= 0) || Double.isInfinite(quantity) || Double.isInfinite(price)) {
+                    showMessage("Quantity must be positive and price not negative", Color.RED);
+                    return;
+                }
+
+                if (actionCombo.getSelectedIndex() == 0) {
+                    long lotId = book.buy(selected.name, quantity, price, day);
+                    showMessage("Lot #" + lotId + " recorded.", new Color(0, 128, 0));
+                } else {
+                    LotBook.Matching matching = (LotBook.Matching) matchingCombo.getSelectedItem();
+                    int lot = lotCombo.getSelectedIndex();
+                    if (matching == LotBook.Matching.SPECIFIC && lot < 0) {
+                        showMessage("There are no lots to sell from", Color.RED);
+                        return;
+                    }
+                    double gain = book.sell(selected.name, quantity, price, day, matching,
+                            matching == LotBook.Matching.SPECIFIC ? lotIds[lot] : 0);
+                    showMessage(String.format("Sale recorded, realized %s %,.2f.", gain >= 0 ? "gain" : "loss",
+                            Math.abs(gain)), new Color(0, 128, 0));
+                }
+                tradeDialog.dispose();
+            } catch (NumberFormatException ex) {
+                showMessage("Please enter valid numbers for quantity and price", Color.RED);
+            } catch (DateTimeException ex) {
+                showMessage("Please enter the date as YYYY-MM-DD", Color.RED);
+            } catch (IllegalArgumentException ex) {
+                showMessage(ex.getMessage(), Color.RED);
+            }
+        });
+
+        cancelButton.addActionListener(e -> tradeDialog.dispose());
+
+        tradeDialog.setLocationRelativeTo(this);
+        tradeDialog.setVisible(true);
+    }
+
     /**
      * Displays a message with specified text and color.
      *
@@ -261,17 +408,17 @@ public class EditRemoveAssets extends styles {
 
     /**
      * Returns to the previous screen.
-     * Updates the home window with current assets.
+     * Stops listening for asset changes and closes this window.
      */
     private void goBack() {
-        this.setVisible(false);
-        home.updateAssets(assets); // Pass the updated list back to Home
+        AssetRowIndex.getInstance().removeListener(listModel);
+        dispose();
         home.setVisible(true);
     }
 
     /**
      * Custom renderer for displaying assets in the list.
-     * Formats each asset entry with consistent styling.
+     * Uses the text cached by the {@link AssetListModel}, so an unchanged asset is only formatted once.
      */
     private class AssetListRenderer extends DefaultListCellRenderer {
         /**
@@ -287,12 +434,9 @@ public class EditRemoveAssets extends styles {
         @Override
         public Component getListCellRendererComponent(JList<?> list, Object value,
                                                       int index, boolean isSelected, boolean cellHasFocus) {
-            super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-            if (value instanceof Asset) {
-                Asset asset = (Asset) value;
-                setText(asset.toString());
-            }
-            return this;
+            // hand the cached text to the default renderer so it does not call toString itself
+            Object text = value instanceof Asset && index >= 0 ? listModel.getText(index) : value;
+            return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
         }
     }
 }
@@ -0,0 +1,36 @@
+package invest_wise;
+
+/**
+ * Turns user-chosen names, such as usernames and asset names, into file names that are safe on every
+ * platform. Lower-case ASCII letters, digits, '-' and '_' are kept; an upper-case ASCII letter becomes
+ * '^' and the letter in lower case, and every other character becomes '%' and its code as four hex
+ * digits. The result is never changed by a file system that ignores case, and it can be read back
+ * unambiguously, so two different names never share a file.
+ */
+class FileNames {
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private FileNames() {
+    }
+
+    /**
+     * Escapes a name for use as a file name.
+     *
+     * @param name The name to escape
+     * @return The name with every upper-case letter and unsafe character escaped
+     */
+    static String escape(String name) {
+        StringBuilder fileName = new StringBuilder(name.length());
+        for (char c : name.toCharArray()) {
+            if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_') {
+                fileName.append(c);
+            } else if (c >= 'A' && c <= 'Z') {
+                fileName.append('^').append((char) (c - 'A' + 'a'));
+            } else {
+                fileName.append('%').append(String.format("%04x", (int) c));
+            }
+        }
+        return fileName.toString();
+    }
+}
@@ -3,7 +3,13 @@ package invest_wise;
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
+import java.text.DecimalFormat;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Provides functionality for managing financial goals and tracking progress.
@@ -16,10 +22,12 @@ public class FinancialGoals extends login_signup {
     private JTextField amountField, deadlineField, progressField;
     /** Text area for displaying goal list */
     private JTextArea goalListArea;
-    /** List of user's financial goals */
-    private static ArrayList<Goal> goals = new ArrayList<>();
-    /** File path for storing goal data */
-    private static final String FILE_NAME = "invest_wise/goals.txt";
+    /** Button for simulating the chance of reaching each goal */
+    private JButton simulateBtn;
+    /** List of the current user's financial goals */
+    private ArrayList<Goal> goals = new ArrayList<>();
+    /** Directory holding one goals file per user */
+    private static final String GOALS_DIR = "invest_wise/goals";
 
     /**
      * Constructs the financial goals window with input fields and goal management functionality.
@@ -90,6 +98,7 @@ public class FinancialGoals extends login_signup {
         // === BUTTON PANEL ===
         JButton saveBtn = styledButton("Save Goal");
         JButton listBtn = styledButton("List Goals");
+        simulateBtn = styledButton("Simulate");
         JButton backBtn = styledButton("Back");
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 20, 10));
@@ -97,6 +106,7 @@ public class FinancialGoals extends login_signup {
         buttonPanel.setBackground(Color.decode("#f5efe7"));
         buttonPanel.add(saveBtn);
         buttonPanel.add(listBtn);
+        buttonPanel.add(simulateBtn);
         buttonPanel.add(backBtn);
 
         // === MAIN PANEL ===
@@ -109,9 +119,10 @@ public class FinancialGoals extends login_signup {
         add(mainPanel, BorderLayout.CENTER);
 
         // === EVENTS ===
-        loadGoalsFromFile();
+        loadGoalsFromFile(saveBtn, listBtn, simulateBtn);
         saveBtn.addActionListener(e -> saveGoal());
         listBtn.addActionListener(e -> listGoals());
+        simulateBtn.addActionListener(e -> simulateGoals());
         backBtn.addActionListener(e -> {
             new Home();
             dispose();
@@ -119,31 +130,46 @@ public class FinancialGoals extends login_signup {
     }
 
     /**
-     * Loads goals for a specific user from the goals file.
+     * Reads the goals of a specific user from that user's goals file, after waiting for queued goal writes.
+     * Only the given user's file is read, so the cost does not depend on other users' goals.
+     * It waits on the disk, so it must not be called on the event dispatch thread.
      *
      * @param username The username to load goals for
-     * @return ArrayList of goals for the specified user
+     * @param errors Receives a message for every saved goal that could not be read
+     * @return ArrayList of goals for the specified user, empty if there is no such user
+     * @throws IOException If the goals file cannot be read
      */
-    public static ArrayList<Goal> loadGoals(String username) {
+    public static ArrayList<Goal> readGoals(String username, List<String> errors) throws IOException {
         ArrayList<Goal> loadedGoals = new ArrayList<>();
-        File file = new File("invest_wise/goals.txt");
+        if (username == null || username.isEmpty()) return loadedGoals;
+        PersistenceQueue.flush(); // make sure recently saved goals are on disk
+        File file = goalsFile(username);
         if (!file.exists()) return loadedGoals;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                Goal goal = Goal.fromCSV(line);
+        try (CsvReader csv = CsvReader.open(file)) {
+            while (csv.next()) {
+                Goal goal = Goal.fromCSV(csv);
                 if (goal != null) {
                     loadedGoals.add(goal);
                 }
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error loading goals for report.");
+            errors.addAll(csv.errors());
         }
 
         return loadedGoals;
     }
 
+    /**
+     * Gets the goals file of a user.
+     * Characters that are not safe in file names are escaped by {@link FileNames#escape}.
+     *
+     * @param username The username whose goals file to locate
+     * @return The user's goals file inside the goals directory
+     */
+    static File goalsFile(String username) {
+        return new File(GOALS_DIR, FileNames.escape(username) + ".txt");
+    }
+
     /**
      * Saves a new goal to the goals file.
      * Validates input fields and updates the goal list display.
@@ -191,9 +217,15 @@ public class FinancialGoals extends login_signup {
                 return;
             }
 
+            String username = getCurrentUser();
+            if (username == null || username.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "No user is logged in, so the goal cannot be saved.");
+                return;
+            }
+
             Goal goal = new Goal(type, amount, deadline, progress);
             goals.add(goal);
-            saveGoalToFile(goal);
+            saveGoalToFile(username, goal);
             JOptionPane.showMessageDialog(this, "Goal saved successfully!");
             amountField.setText("");
             deadlineField.setText("");
@@ -224,39 +256,120 @@ public class FinancialGoals extends login_signup {
     }
 
     /**
-     * Saves a goal to the goals file.
+     * Simulates every goal in the background and lists each goal with its chance of success
+     * and the range of balances expected at its deadline.
+     */
+    private void simulateGoals() {
+        if (goals.isEmpty()) {
+            goalListArea.setText("No goals found.");
+            return;
+        }
+
+        ArrayList<Goal> simulated = new ArrayList<>(goals);
+        simulateBtn.setEnabled(false);
+        goalListArea.setText("Simulating " + simulated.size() + " goal(s)...");
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                GoalSimulator.Assumptions assumptions =
+                        GoalSimulator.Assumptions.fromPortfolio(AssetRepository.getInstance());
+                DecimalFormat percent = new DecimalFormat("0.0%");
+                StringBuilder sb = new StringBuilder();
+                sb.append("Assumed annual return ").append(percent.format(assumptions.expectedReturn))
+                        .append(", volatility ").append(percent.format(assumptions.volatility))
+                        .append(" (from your current assets)\n\n");
+
+                LocalDate today = LocalDate.now();
+                for (Goal g : simulated) {
+                    sb.append(g).append("\n");
+                    LocalDate deadline;
+                    try {
+                        deadline = LocalDate.parse(g.deadline);
+                    } catch (DateTimeException ex) {
+                        sb.append("   Cannot simulate: the deadline is not a valid date.\n");
+                        continue;
+                    }
+                    if (g.currentProgress <= 0) {
+                        sb.append("   Cannot simulate: with no progress yet and no contributions modelled,")
+                                .append(" the balance stays at ").append(CurrencyCode.REPORTING.format(0)).append(".\n");
+                        continue;
+                    }
+                    int months = (int) Math.max(0, ChronoUnit.MONTHS.between(today, deadline));
+                    GoalSimulator.Result result = GoalSimulator.simulate(g.currentProgress, g.targetAmount,
+                            months, assumptions, GoalSimulator.DEFAULT_PATHS);
+                    sb.append("   Chance of reaching the target: ")
+                            .append(percent.format(result.successProbability)).append("\n");
+                    sb.append("   Balance at deadline:");
+                    for (int i = 0; i < result.bands.length; i++) {
+                        sb.append(i == 0 ? " " : ", ")
+                                .append((int) Math.round(GoalSimulator.PERCENTILES[i] * 100)).append("th percentile ")
+                                .append(CurrencyCode.REPORTING.format(result.bands[i]));
+                    }
+                    sb.append("\n");
+                }
+                return sb.toString();
+            }
+
+            @Override
+            protected void done() {
+                simulateBtn.setEnabled(true);
+                try {
+                    goalListArea.setText(get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    goalListArea.setText("");
+                    JOptionPane.showMessageDialog(FinancialGoals.this, "Error simulating goals: " + ex.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Queues a goal to be appended to a user's goals file.
      *
+     * @param username The user the goal belongs to
      * @param goal The goal to save
      */
-    private void saveGoalToFile(Goal goal) {
-        try (FileWriter fw = new FileWriter(FILE_NAME, true);
-             BufferedWriter bw = new BufferedWriter(fw)) {
-            bw.write(goal.toCSV());
-            bw.newLine();
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error saving goal to file.");
-        }
+    private void saveGoalToFile(String username, Goal goal) {
+        File file = goalsFile(username);
+        file.getParentFile().mkdirs();
+        PersistenceQueue.appendLine(file.getPath(), goal.toCSV(), "Error saving goal to file.");
     }
 
     /**
-     * Loads goals from the goals file.
-     * Initializes the goals list with saved data.
+     * Loads the current user's goals from their goals file in the background.
+     * The goal buttons stay disabled until the goals are loaded, so no goal is saved or listed before.
+     *
+     * @param buttons The buttons to enable once the goals are loaded
      */
-    private void loadGoalsFromFile() {
-        File file = new File(FILE_NAME);
-        if (!file.exists()) return;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                Goal goal = Goal.fromCSV(line);
-                if (goal != null) {
-                    goals.add(goal);
+    private void loadGoalsFromFile(JButton... buttons) {
+        for (JButton button : buttons) {
+            button.setEnabled(false);
+        }
+        String username = getCurrentUser();
+        ArrayList<String> errors = new ArrayList<>();
+        new SwingWorker<ArrayList<Goal>, Void>() {
+            @Override
+            protected ArrayList<Goal> doInBackground() throws IOException {
+                return readGoals(username, errors);
+            }
+
+            @Override
+            protected void done() {
+                for (JButton button : buttons) {
+                    button.setEnabled(true);
+                }
+                try {
+                    goals = get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    JOptionPane.showMessageDialog(FinancialGoals.this, "Error loading goals.");
+                    return;
+                }
+                if (!errors.isEmpty()) {
+                    JOptionPane.showMessageDialog(FinancialGoals.this, "Some saved goals could not be read:\n"
+                            + String.join("\n", errors));
                 }
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error loading goals from file.");
-        }
+        }.execute();
     }
 
     /**
@@ -308,28 +421,31 @@ public class FinancialGoals extends login_signup {
          * @return A string representation of the goal in CSV format
          */
         public String toCSV() {
-            return goalType + ", " + targetAmount + ", " + deadline + ", " + currentProgress;
+            return CsvWriter.record(goalType, targetAmount, deadline, currentProgress);
         }
 
         /**
-         * Creates a Goal object from a CSV string.
+         * Creates a Goal object from the current record of a CSV reader.
+         * Invalid records are reported to the reader.
          *
-         * @param csv The CSV string containing goal information
-         * @return A new Goal object if the CSV is valid, null otherwise
+         * @param csv The reader positioned on a record
+         * @return A new Goal object if the record is valid, null otherwise
          */
-        public static Goal fromCSV(String csv) {
+        public static Goal fromCSV(CsvReader csv) {
+            if (csv.fieldCount() != 4) {
+                csv.error("expected 4 fields but found " + csv.fieldCount());
+                return null;
+            }
             try {
-                String[] parts = csv.split(", ");
-                if (parts.length == 4) {
-                    String type = parts[0];
-                    double target = Double.parseDouble(parts[1]);
-                    String deadline = parts[2];
-                    double progress = Double.parseDouble(parts[3]);
-                    return new Goal(type, target, deadline, progress);
-                }
-            } catch (Exception ignored) {}
-
-            return null;
+                String type = csv.getInterned(0);
+                double target = csv.getDouble(1);
+                String deadline = csv.getString(2);
+                double progress = csv.getDouble(3);
+                return new Goal(type, target, deadline, progress);
+            } catch (NumberFormatException e) {
+                csv.error("invalid number (" + e.getMessage() + ")");
+                return null;
+            }
         }
     }
 }
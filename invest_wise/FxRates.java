@@ -0,0 +1,191 @@
+package invest_wise;
+
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Exchange rates between the {@link CurrencyCode} currencies, loaded once from {@link #RATES_FILE}.
+ * Each record {@code FROM,TO,rate} says one unit of FROM buys {@code rate} units of TO; the reverse
+ * rate is implied. Rates live in a dense {@code double[]} matrix indexed by currency ordinals.
+ * A pair without a quote is triangulated through the fewest other currencies the first time it is
+ * asked for, and the result is stored in the matrix so it is only worked out once.
+ *
+ * <p>Aggregations ask for {@link #factorsTo} once and then multiply each asset's value by the factor
+ * at its currency's ordinal, so converting costs an array read per asset. The application ships a
+ * rates file quoting every currency against the dollar, to be edited to current rates. A pair that
+ * still cannot be linked through any quotes converts one to one, and the user is warned that the
+ * totals are not converted.</p>
+ */
+class FxRates {
+    /** File holding one FROM,TO,rate record per quoted pair */
+    static final String RATES_FILE = "invest_wise/fx_rates.csv";
+    /** Number of currencies */
+    private static final int CURRENCIES = CurrencyCode.values().length;
+
+    /** The shared rates, loaded on first use */
+    private static FxRates instance;
+
+    /** Rate from each currency to each other, row by source ordinal; NaN where not known yet */
+    private final double[] rates = new double[CURRENCIES * CURRENCIES];
+    /** Whether each rate came from the file, directly or as the reverse of a quote */
+    private final boolean[] quoted = new boolean[CURRENCIES * CURRENCIES];
+    /** Conversion factors into each currency, built on first use */
+    private final double[][] factors = new double[CURRENCIES][];
+    /** Whether the user was already warned about a missing rate */
+    private boolean warned;
+
+    /**
+     * Constructs the rates from the rates file, if there is one.
+     */
+    private FxRates() {
+        Arrays.fill(rates, Double.NaN);
+        for (int c = 0; c < CURRENCIES; c++) {
+            setQuote(c, c, 1);
+        }
+        File file = new File(RATES_FILE);
+        if (!file.exists()) return;
+        try (CsvReader csv = CsvReader.open(file)) {
+            while (csv.next()) {
+                if (csv.lineNumber() == 1 && csv.getString(0).equalsIgnoreCase("from")) {
+                    continue; // header
+                }
+                if (csv.fieldCount() != 3) {
+                    csv.error("expected from,to,rate but found " + csv.fieldCount() + " fields");
+                    continue;
+                }
+                CurrencyCode from = CurrencyCode.fromCode(csv.getString(0));
+                CurrencyCode to = CurrencyCode.fromCode(csv.getString(1));
+                if (from == null || to == null) {
+                    csv.error("unsupported currency");
+                    continue;
+                }
+                double rate;
+                try {
+                    rate = csv.getDouble(2);
+                } catch (NumberFormatException e) {
+                    csv.error("rate must be a valid number");
+                    continue;
+                }
+                if (!(rate > 0) || Double.isInfinite(rate)) {
+                    csv.error("rate must be positive");
+                    continue;
+                }
+                setQuote(from.ordinal(), to.ordinal(), rate);
+                setQuote(to.ordinal(), from.ordinal(), 1 / rate);
+            }
+            for (String error : csv.errors()) {
+                System.err.println(RATES_FILE + ": " + error);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading exchange rates: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the shared exchange rates, loading them on the first call.
+     *
+     * @return The shared rates
+     */
+    static synchronized FxRates getInstance() {
+        if (instance == null) {
+            instance = new FxRates();
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the factors that convert an amount in each currency into a target currency.
+     * The returned array is shared and must not be modified.
+     *
+     * @param target The currency to convert into
+     * @return The factor for each currency, indexed by {@link CurrencyCode} ordinal
+     */
+    synchronized double[] factorsTo(CurrencyCode target) {
+        double[] result = factors[target.ordinal()];
+        if (result == null) {
+            result = new double[CURRENCIES];
+            for (int c = 0; c < CURRENCIES; c++) {
+                result[c] = rate(c, target.ordinal());
+            }
+            factors[target.ordinal()] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the rate between two currencies.
+     *
+     * @param from The currency converted from
+     * @param to The currency converted into
+     * @return Units of {@code to} bought by one unit of {@code from}
+     */
+    synchronized double rate(CurrencyCode from, CurrencyCode to) {
+        return rate(from.ordinal(), to.ordinal());
+    }
+
+    /**
+     * Gets the rate between two currencies by ordinal, triangulating and caching it if needed.
+     *
+     * @param from Ordinal of the currency converted from
+     * @param to Ordinal of the currency converted into
+     * @return Units of {@code to} bought by one unit of {@code from}
+     */
+    private double rate(int from, int to) {
+        double rate = rates[from * CURRENCIES + to];
+        if (Double.isNaN(rate)) {
+            rate = triangulate(from, to);
+            rates[from * CURRENCIES + to] = rate;
+        }
+        return rate;
+    }
+
+    /**
+     * Finds a rate by chaining quoted rates through the fewest intermediate currencies.
+     *
+     * @param from Ordinal of the currency converted from
+     * @param to Ordinal of the currency converted into
+     * @return The chained rate, or 1 if the currencies are not linked by any quotes
+     */
+    private double triangulate(int from, int to) {
+        double[] reached = new double[CURRENCIES]; // rate from the source to each currency reached
+        Arrays.fill(reached, Double.NaN);
+        int[] queue = new int[CURRENCIES];
+        int head = 0;
+        int tail = 0;
+        reached[from] = 1;
+        queue[tail++] = from;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int next = 0; next < CURRENCIES; next++) {
+                if (Double.isNaN(reached[next]) && quoted[current * CURRENCIES + next]) {
+                    reached[next] = reached[current] * rates[current * CURRENCIES + next];
+                    if (next == to) return reached[next];
+                    queue[tail++] = next;
+                }
+            }
+        }
+        String warning = "No exchange rate from " + CurrencyCode.of(from) + " to " + CurrencyCode.of(to)
+                + " in " + RATES_FILE + "; amounts are counted one to one until a rate is added.";
+        System.err.println(warning);
+        if (!warned) {
+            warned = true; // one dialog is enough when a whole rates file is missing
+            SwingUtilities.invokeLater(() ->
+                    JOptionPane.showMessageDialog(null, warning, "Missing Exchange Rate", JOptionPane.WARNING_MESSAGE));
+        }
+        return 1;
+    }
+
+    /**
+     * Stores a rate read from the file or implied by one.
+     *
+     * @param from Ordinal of the currency converted from
+     * @param to Ordinal of the currency converted into
+     * @param rate Units of {@code to} bought by one unit of {@code from}
+     */
+    private void setQuote(int from, int to, double rate) {
+        rates[from * CURRENCIES + to] = rate;
+        quoted[from * CURRENCIES + to] = true;
+    }
+}
@@ -0,0 +1,255 @@
+package invest_wise;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Estimates how likely a financial goal is to be reached with a Monte Carlo simulation.
+ * The goal's current progress is grown month by month along many random return paths, using the
+ * expected return and volatility of the user's current asset mix. A path succeeds when its balance
+ * reaches the target at any month up to the deadline. Contributions are not modelled, so a goal
+ * without any progress yet stays at zero on every path and is never reached.
+ *
+ * <p>Paths are split across the common fork/join pool. Each task draws from its own
+ * {@link SplittableRandom}, split from the parent's before forking, and the per-path loop works on
+ * primitives only, so simulating allocates nothing beyond the array of final balances.</p>
+ */
+class GoalSimulator {
+    /** Number of paths simulated per goal */
+    static final int DEFAULT_PATHS = 100_000;
+    /** Percentiles reported for the balance at the deadline */
+    static final double[] PERCENTILES = {0.10, 0.50, 0.90};
+    /** Simulation steps per year */
+    private static final int STEPS_PER_YEAR = 12;
+    /** Correlation assumed between the returns of any two asset types */
+    private static final double ASSUMED_CORRELATION = 0.3;
+    /** Paths simulated by one task without splitting further */
+    private static final int PATHS_PER_TASK = 4096;
+
+    /**
+     * Return assumptions for a whole portfolio.
+     */
+    static class Assumptions {
+        /** Expected annual return, as a fraction */
+        final double expectedReturn;
+        /** Standard deviation of the annual return, as a fraction */
+        final double volatility;
+
+        /**
+         * Constructs portfolio return assumptions.
+         *
+         * @param expectedReturn Expected annual return, as a fraction
+         * @param volatility Standard deviation of the annual return, as a fraction
+         */
+        Assumptions(double expectedReturn, double volatility) {
+            this.expectedReturn = expectedReturn;
+            this.volatility = volatility;
+        }
+
+        /**
+         * Derives assumptions from the value held in each asset type.
+         * The expected return is the value-weighted average of the types' returns; the volatility
+         * combines the types' volatilities with {@link #ASSUMED_CORRELATION} between each pair.
+         * An empty portfolio gets the assumptions of an unknown type.
+         *
+         * @param repository The user's assets
+         * @return The portfolio's assumptions
+         */
+        static Assumptions fromPortfolio(AssetRepository repository) {
+            int slots = AssetType.values().length + 1;
+            double[] totals = new double[slots];
+            repository.sumByType(totals, new int[slots]);
+
+            double[] returns = new double[slots];
+            double[] volatilities = new double[slots];
+            double totalValue = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                boolean known = slot < slots - 1;
+                returns[slot] = known ? AssetType.of(slot).expectedReturn : AssetType.UNKNOWN_RETURN;
+                volatilities[slot] = known ? AssetType.of(slot).volatility : AssetType.UNKNOWN_VOLATILITY;
+                totalValue += totals[slot];
+            }
+            if (totalValue <= 0) {
+                return new Assumptions(AssetType.UNKNOWN_RETURN, AssetType.UNKNOWN_VOLATILITY);
+            }
+
+            double expectedReturn = 0;
+            double variance = 0;
+            for (int i = 0; i < slots; i++) {
+                double wi = totals[i] / totalValue;
+                expectedReturn += wi * returns[i];
+                for (int j = 0; j < slots; j++) {
+                    double wj = totals[j] / totalValue;
+                    double correlation = i == j ? 1 : ASSUMED_CORRELATION;
+                    variance += wi * wj * correlation * volatilities[i] * volatilities[j];
+                }
+            }
+            return new Assumptions(expectedReturn, Math.sqrt(variance));
+        }
+    }
+
+    /**
+     * The outcome of simulating one goal.
+     */
+    static class Result {
+        /** Fraction of paths that reached the target by the deadline */
+        final double successProbability;
+        /** Balance at the deadline for each of {@link #PERCENTILES} */
+        final double[] bands;
+
+        /**
+         * Constructs a simulation result.
+         *
+         * @param successProbability Fraction of paths that reached the target
+         * @param bands Balance at the deadline for each of {@link #PERCENTILES}
+         */
+        Result(double successProbability, double[] bands) {
+            this.successProbability = successProbability;
+            this.bands = bands;
+        }
+    }
+
+    /**
+     * Simulates a range of paths, splitting the range until it is small enough to run directly.
+     */
+    private static class PathTask extends RecursiveTask<Integer> {
+        /** Index of the first path */
+        private final int from;
+        /** Index just past the last path */
+        private final int to;
+        /** Random numbers for this task's paths */
+        private final SplittableRandom random;
+        /** Shared simulation parameters and output */
+        private final Simulation simulation;
+
+        /**
+         * Constructs a task for a range of paths.
+         *
+         * @param from Index of the first path
+         * @param to Index just past the last path
+         * @param random Random numbers for this task's paths
+         * @param simulation Shared simulation parameters and output
+         */
+        PathTask(int from, int to, SplittableRandom random, Simulation simulation) {
+            this.from = from;
+            this.to = to;
+            this.random = random;
+            this.simulation = simulation;
+        }
+
+        /**
+         * Simulates the paths of the range.
+         *
+         * @return Number of paths that reached the target
+         */
+        @Override
+        protected Integer compute() {
+            if (to - from <= PATHS_PER_TASK) {
+                return simulation.run(from, to, random);
+            }
+            int middle = (from + to) >>> 1;
+            PathTask left = new PathTask(from, middle, random.split(), simulation);
+            left.fork();
+            int right = new PathTask(middle, to, random, simulation).compute();
+            return left.join() + right;
+        }
+    }
+
+    /**
+     * Parameters shared by all paths of one goal, in log space.
+     */
+    private static class Simulation {
+        /** Log of the starting balance */
+        final double logStart;
+        /** Log of the target */
+        final double logTarget;
+        /** Number of monthly steps until the deadline */
+        final int steps;
+        /** Deterministic part of the log return per step */
+        final double drift;
+        /** Standard deviation of the log return per step */
+        final double shock;
+        /** Receives the log balance at the deadline of each path */
+        final double[] finalLogBalances;
+
+        /**
+         * Constructs the parameters of a simulation.
+         *
+         * @param start The current balance
+         * @param target The target balance
+         * @param steps Number of monthly steps until the deadline
+         * @param assumptions Return assumptions
+         * @param paths Number of paths
+         */
+        Simulation(double start, double target, int steps, Assumptions assumptions, int paths) {
+            double dt = 1.0 / STEPS_PER_YEAR;
+            double sigma = assumptions.volatility;
+            this.logStart = Math.log(start);
+            this.logTarget = Math.log(target);
+            this.steps = steps;
+            this.drift = (Math.log1p(assumptions.expectedReturn) - sigma * sigma / 2) * dt;
+            this.shock = sigma * Math.sqrt(dt);
+            this.finalLogBalances = new double[paths];
+        }
+
+        /**
+         * Simulates a range of paths.
+         *
+         * @param from Index of the first path
+         * @param to Index just past the last path
+         * @param random Random numbers for the paths
+         * @return Number of paths that reached the target
+         */
+        int run(int from, int to, SplittableRandom random) {
+            int successes = 0;
+            for (int path = from; path < to; path++) {
+                double logBalance = logStart;
+                boolean reached = logBalance >= logTarget;
+                for (int step = 0; step < steps; step++) {
+                    logBalance += drift + shock * random.nextGaussian();
+                    reached |= logBalance >= logTarget;
+                }
+                finalLogBalances[path] = logBalance;
+                if (reached) successes++;
+            }
+            return successes;
+        }
+    }
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private GoalSimulator() {
+    }
+
+    /**
+     * Simulates a goal.
+     *
+     * @param start The current progress towards the goal; 0 or less means no path can grow
+     * @param target The goal's target amount
+     * @param months Number of months until the deadline; 0 if it has passed
+     * @param assumptions Return assumptions of the portfolio
+     * @param paths Number of paths to simulate
+     * @return The success probability and the balance percentiles at the deadline
+     */
+    static Result simulate(double start, double target, int months, Assumptions assumptions, int paths) {
+        if (start <= 0) {
+            // returns only scale the balance, so nothing grows from nothing
+            return new Result(target <= 0 ? 1 : 0, new double[PERCENTILES.length]);
+        }
+        Simulation simulation = new Simulation(start, target, Math.max(0, months), assumptions, paths);
+        int successes = ForkJoinPool.commonPool().invoke(
+                new PathTask(0, paths, new SplittableRandom(), simulation));
+
+        double[] balances = simulation.finalLogBalances;
+        Arrays.parallelSort(balances);
+        double[] bands = new double[PERCENTILES.length];
+        for (int i = 0; i < bands.length; i++) {
+            int index = (int) Math.min(paths - 1, Math.floor(PERCENTILES[i] * paths));
+            bands[i] = Math.exp(balances[index]);
+        }
+        return new Result((double) successes / paths, bands);
+    }
+}
@@ -0,0 +1,96 @@
+package invest_wise;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.chrono.HijrahDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * Converts the day an asset was acquired into the day its hawl, one Islamic (Hijri) year of
+ * holding, is complete. Converting through {@link HijrahDate} is comparatively slow, so results are
+ * cached in a primitive array indexed by epoch day; the cache covers the range of days seen so far
+ * and grows as needed. Days outside the range of the Hijri calendar data fall back to 354 days.
+ */
+class HawlCalendar {
+    /** Length of a lunar year in days, used outside the supported Hijri range */
+    private static final int LUNAR_YEAR_DAYS = 354;
+    /** Marks a cache slot that has not been computed */
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+    /** Largest number of days the cache spans, about two centuries */
+    private static final int MAX_CACHED_DAYS = 200 * 366;
+
+    /** Epoch day of the first cache slot */
+    private static int firstDay;
+    /** Hawl completion day per acquisition day, {@link #UNKNOWN} where not computed yet */
+    private static int[] hawlEnds = new int[0];
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private HawlCalendar() {
+    }
+
+    /**
+     * Gets the day the hawl of a holding acquired on a given day is complete: the same day
+     * of the same month one Hijri year later.
+     *
+     * @param acquiredDay The day the holding was acquired, as an epoch day
+     * @return The hawl completion day, as an epoch day
+     */
+    static synchronized int hawlEnd(int acquiredDay) {
+        int index = acquiredDay - firstDay;
+        if (hawlEnds.length == 0 || index < 0 || index >= hawlEnds.length) {
+            if (!grow(acquiredDay)) return convert(acquiredDay);
+            index = acquiredDay - firstDay;
+        }
+        int hawlEnd = hawlEnds[index];
+        if (hawlEnd == UNKNOWN) {
+            hawlEnd = convert(acquiredDay);
+            hawlEnds[index] = hawlEnd;
+        }
+        return hawlEnd;
+    }
+
+    /**
+     * Widens the cache to cover a day, keeping the days already computed.
+     * The cache grows by a year beyond the day on the side being extended.
+     *
+     * @param day The day to cover
+     * @return false if covering the day would make the cache span more than {@link #MAX_CACHED_DAYS}
+     */
+    private static boolean grow(int day) {
+        if (hawlEnds.length == 0) {
+            firstDay = day - 366;
+            hawlEnds = new int[2 * 366];
+            Arrays.fill(hawlEnds, UNKNOWN);
+            return true;
+        }
+        int lastDay = firstDay + hawlEnds.length - 1;
+        long newFirst = day < firstDay ? (long) day - 366 : firstDay;
+        long newLast = day > lastDay ? (long) day + 366 : lastDay;
+        if (newLast - newFirst + 1 > MAX_CACHED_DAYS) return false;
+        int[] grown = new int[(int) (newLast - newFirst + 1)];
+        Arrays.fill(grown, UNKNOWN);
+        System.arraycopy(hawlEnds, 0, grown, (int) (firstDay - newFirst), hawlEnds.length);
+        firstDay = (int) newFirst;
+        hawlEnds = grown;
+        return true;
+    }
+
+    /**
+     * Computes the hawl completion day without the cache.
+     *
+     * @param acquiredDay The day the holding was acquired, as an epoch day
+     * @return The hawl completion day, as an epoch day
+     */
+    private static int convert(int acquiredDay) {
+        LocalDate acquired = LocalDate.ofEpochDay(acquiredDay);
+        try {
+            HijrahDate anniversary = HijrahDate.from(acquired).plus(1, ChronoUnit.YEARS);
+            return (int) LocalDate.from(anniversary).toEpochDay();
+        } catch (DateTimeException e) {
+            return acquiredDay + LUNAR_YEAR_DAYS;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package invest_wise;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Remembers the day each asset was first held, for the hawl (one lunar year of holding) that
+ * Zakat depends on. Listens to the {@link AssetRepository} and appends an {@code id,date} record to
+ * {@link #HOLDINGS_FILE} whenever assets are added; edits keep the original day. Assets that were
+ * stored before the history existed have no day and are treated as held for longer than a hawl.
+ * Every id in the file is reserved with {@link Asset#reserveId} when the history is read, so an id
+ * recorded here is never handed to a new asset, even after the asset was removed and the journal compacted.
+ *
+ * <p>Days are kept in a primitive {@link LongIntMap} from asset id to epoch day, so looking up
+ * every asset of a large portfolio costs no allocation. When an id appears more than once in the
+ * file, for example because two processes both recorded it, the earliest day is kept.</p>
+ */
+class HoldingHistory implements AssetRepository.Listener {
+    /** File holding one id,date record per added asset */
+    static final String HOLDINGS_FILE = "invest_wise/holdings.csv";
+    /** Returned for assets without a recorded day */
+    static final int UNKNOWN = Integer.MIN_VALUE;
+    /** Message shown if a record cannot be written */
+    private static final String SAVE_FAILED = "Error saving asset holding dates.";
+
+    /** The running history, or null before {@link #start} */
+    private static HoldingHistory instance;
+
+    /** First day each asset was held, as an epoch day, by asset id */
+    private final LongIntMap days = new LongIntMap(64);
+
+    /**
+     * Constructs a history from the holdings file.
+     */
+    private HoldingHistory() {
+        File file = new File(HOLDINGS_FILE);
+        if (!file.exists()) return;
+        try (CsvReader csv = CsvReader.open(file)) {
+            while (csv.next()) {
+                if (csv.fieldCount() != 2) {
+                    csv.error("expected id,date but found " + csv.fieldCount() + " fields");
+                    continue;
+                }
+                try {
+                    long id = csv.getLong(0);
+                    int day = (int) LocalDate.parse(csv.getString(1)).toEpochDay();
+                    if (id == LongIntMap.RESERVED_KEY) continue;
+                    Asset.reserveId(id);
+                    put(id, day);
+                } catch (NumberFormatException | DateTimeException e) {
+                    csv.error("expected an asset id and a YYYY-MM-DD date");
+                }
+            }
+            for (String error : csv.errors()) {
+                System.err.println(HOLDINGS_FILE + ": " + error);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading asset holding dates: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts recording the holding days of a repository's new assets.
+     * Calls after the first one have no effect.
+     *
+     * @param repository The repository to listen to
+     */
+    static synchronized void start(AssetRepository repository) {
+        if (instance != null) return;
+        instance = new HoldingHistory();
+        repository.addListener(instance);
+    }
+
+    /**
+     * Gets the running history.
+     *
+     * @return The history of the shared repository
+     */
+    static HoldingHistory getInstance() {
+        AssetRepository.getInstance(); // starts the history
+        synchronized (HoldingHistory.class) {
+            return instance;
+        }
+    }
+
+    /**
+     * Gets the day an asset was first held.
+     *
+     * @param id The asset id
+     * @return The day as an epoch day, or {@link #UNKNOWN} if the asset predates the history
+     */
+    synchronized int acquiredDay(long id) {
+        return days.get(id, UNKNOWN);
+    }
+
+    @Override
+    public void assetAdded(Asset asset) {
+        assetsAdded(List.of(asset));
+    }
+
+    @Override
+    public void assetsAdded(List<Asset> assets) {
+        int today = (int) LocalDate.now().toEpochDay();
+        String date = LocalDate.ofEpochDay(today).toString();
+        synchronized (this) {
+            for (Asset asset : assets) {
+                put(asset.id, today);
+            }
+        }
+        PersistenceQueue.appendLines(HOLDINGS_FILE, assets.size(),
+                i -> CsvWriter.record(assets.get(i).id, date), SAVE_FAILED);
+    }
+
+    @Override
+    public void assetUpdated(Asset previous, Asset updated) {
+        // an edited asset keeps the day it was first held
+    }
+
+    @Override
+    public void assetRemoved(Asset asset) {
+        // the record is kept; its id stays reserved
+    }
+
+    @Override
+    public void assetsCleared() {
+        // the records are kept; their ids stay reserved
+    }
+
+    /**
+     * Records a day for an asset, keeping an earlier day already recorded.
+     *
+     * @param id The asset id
+     * @param day The day as an epoch day
+     */
+    private void put(long id, int day) {
+        int recorded = days.get(id, UNKNOWN);
+        days.put(id, recorded == UNKNOWN ? day : Math.min(recorded, day));
+    }
+}
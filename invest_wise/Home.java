@@ -2,15 +2,12 @@ package invest_wise;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
 
 /**
  * The main dashboard of the InvestWise application.
  * Provides access to various financial management features and displays user's assets.
  */
 public class Home extends styles {
-    /** List of user's financial assets */
-    private ArrayList<Asset> assets = new ArrayList<>();
     /** Layout manager for switching between different views */
     private CardLayout cardLayout;
     /** Main panel containing all card views */
@@ -151,13 +148,13 @@ public class Home extends styles {
             case "Add Assets":
                 button.addActionListener(e -> {
                     this.setVisible(false);
-                    new AddAssets(this, assets).setVisible(true);
+                    new AddAssets(this).setVisible(true);
                 });
                 break;
             case "Manage Assets":
                 button.addActionListener(e -> {
                     this.setVisible(false);
-                    new EditRemoveAssets(this, assets).setVisible(true);
+                    new EditRemoveAssets(this).setVisible(true);
                 });
                 break;
             case "Risk Assessment":
@@ -220,13 +217,4 @@ public class Home extends styles {
         cardLayout.show(mainCardPanel, "HOME");
         setTitle("Investa - Dashboard");
     }
-
-    /**
-     * Updates the list of user's financial assets.
-     *
-     * @param updatedAssets The new list of assets to replace the current ones
-     */
-    public void updateAssets(ArrayList<Asset> updatedAssets) {
-        this.assets = new ArrayList<>(updatedAssets);
-    }
 }
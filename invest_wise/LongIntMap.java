@@ -0,0 +1,157 @@
+package invest_wise;
+
+import java.util.Arrays;
+
+/**
+ * Map from {@code long} keys to {@code int} values in primitive open-addressing arrays, so lookups
+ * and updates cost no allocation. Keys are spread with a multiplicative hash and collisions probe
+ * linearly; removal moves later entries of the same probe run back into the gap instead of leaving
+ * a marker, so lookups never slow down after many removals. The table doubles once it is half full.
+ * {@link #RESERVED_KEY} marks empty slots and cannot be stored. The map is not synchronized.
+ */
+class LongIntMap {
+    /** Key marking an empty slot; it cannot be stored */
+    static final long RESERVED_KEY = Long.MIN_VALUE;
+
+    /** Keys, {@link #RESERVED_KEY} in unused slots; the length is a power of two */
+    private long[] keys;
+    /** Value stored with each key of {@link #keys} */
+    private int[] values;
+    /** Number of keys in the map */
+    private int size;
+
+    /**
+     * Constructs an empty map.
+     *
+     * @param capacity Initial number of slots, a power of two
+     */
+    LongIntMap(int capacity) {
+        keys = emptyKeys(capacity);
+        values = new int[capacity];
+    }
+
+    /**
+     * Gets the number of keys.
+     *
+     * @return The number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key The key
+     * @param missing Returned when the key is not in the map
+     * @return The value, or {@code missing}
+     */
+    int get(long key, int missing) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long stored = keys[slot];
+            if (stored == key) return values[slot];
+            if (stored == RESERVED_KEY) return missing;
+        }
+    }
+
+    /**
+     * Stores a value for a key, replacing any earlier value.
+     *
+     * @param key The key, not {@link #RESERVED_KEY}
+     * @param value The value
+     */
+    void put(long key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = emptyKeys(oldKeys.length * 2);
+            values = new int[oldKeys.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != RESERVED_KEY) {
+                    insert(oldKeys[slot], oldValues[slot]);
+                }
+            }
+        }
+        insert(key, value);
+    }
+
+    /**
+     * Removes a key, moving later entries of the same probe run back into the gap.
+     *
+     * @param key The key
+     */
+    void remove(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == RESERVED_KEY) return;
+            slot = (slot + 1) & mask;
+        }
+
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != RESERVED_KEY; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            // move the entry back if the gap lies between its home slot and where it sits now
+            boolean movable = gap <= next ? home <= gap || home > next : home <= gap && home > next;
+            if (movable) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = RESERVED_KEY;
+        size--;
+    }
+
+    /**
+     * Removes every key, keeping the capacity.
+     */
+    void clear() {
+        Arrays.fill(keys, RESERVED_KEY);
+        size = 0;
+    }
+
+    /**
+     * Inserts or replaces a key without growing the table.
+     *
+     * @param key The key
+     * @param value The value
+     */
+    private void insert(long key, int value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != RESERVED_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == RESERVED_KEY) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    /**
+     * Spreads the bits of a key.
+     *
+     * @param key The key
+     * @return The hash
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Creates an empty key table.
+     *
+     * @param size The number of slots, a power of two
+     * @return A table with every slot empty
+     */
+    private static long[] emptyKeys(int size) {
+        long[] keys = new long[size];
+        Arrays.fill(keys, RESERVED_KEY);
+        return keys;
+    }
+}
@@ -0,0 +1,604 @@
+package invest_wise;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Tracks the tax lots of each holding, keyed by asset name, the gains made on them and the cash
+ * balance. A buy opens a lot with its quantity, unit cost and acquisition day; a sell consumes lots
+ * oldest first (FIFO), newest first (LIFO) or one chosen lot, and books the difference between the
+ * sale price and the lots' cost as realized gain. Deposits and withdrawals are cash flows; buys
+ * spend cash and sells bring it back.
+ *
+ * <p>Every event is appended as one record to the ledger {@link #LOTS_FILE}, which is never rewritten,
+ * and the book is rebuilt by replaying it. Every {@link #SNAPSHOT_INTERVAL} records the whole book is
+ * written to {@link #SNAPSHOT_FILE} together with the ledger position it reflects, so loading reads
+ * the snapshot and replays only the records after that position. The snapshot is built on the
+ * persistence thread from the ledger as written, not from the book in memory, so its position always
+ * matches its contents, whatever a record spans and even if an append failed.</p>
+ *
+ * <p>The open lots of a holding live in a {@link LotDeque}. Each holding also keeps its open
+ * quantity and cost basis as running sums, so the unrealized gain of the whole book after a price
+ * update is one multiply per holding, however many lots are open. Quantities and prices are in the
+ * units of the holding's price history.</p>
+ */
+class LotBook {
+    /** File holding one record per trade or cash flow */
+    static final String LOTS_FILE = "invest_wise/lots.csv";
+    /** Binary snapshot of the book at a position of the ledger */
+    static final String SNAPSHOT_FILE = "invest_wise/lots.bin";
+    /** Number of ledger records after which a new snapshot is written */
+    private static final int SNAPSHOT_INTERVAL = 1000;
+    /** Marks a file as a ledger snapshot ("IWLB") */
+    private static final int MAGIC = 0x49574C42;
+    /** Current snapshot format version */
+    private static final int VERSION = 1;
+    /** Record marker for a buy */
+    private static final String BUY = "B";
+    /** Record marker for a sell */
+    private static final String SELL = "S";
+    /** Record marker for a deposit or withdrawal */
+    private static final String CASH = "C";
+    /** Quantity below which a lot counts as fully sold, absorbing rounding */
+    private static final double DUST = 1e-9;
+    /** Message shown if a trade cannot be written */
+    private static final String SAVE_FAILED = "Error saving trades to file.";
+
+    /**
+     * How a sale picks the lots it consumes.
+     */
+    enum Matching {
+        /** Oldest lots first */
+        FIFO,
+        /** Newest lots first */
+        LIFO,
+        /** One lot chosen by id */
+        SPECIFIC
+    }
+
+    /** The shared book, loaded on first use */
+    private static LotBook instance;
+
+    /** Ledger the book appends its records to */
+    private final String ledgerFile;
+    /** Snapshot file of the ledger */
+    private final String snapshotFile;
+
+    /** Holding index of each asset name */
+    private HashMap<String, Integer> holdingIndex = new HashMap<>();
+    /** Asset name of each holding */
+    private ArrayList<String> names = new ArrayList<>();
+    /** Open lots of each holding */
+    private LotDeque[] lots = new LotDeque[16];
+    /** Open quantity of each holding */
+    private double[] quantities = new double[16];
+    /** Cost basis of the open lots of each holding */
+    private double[] costs = new double[16];
+    /** Realized gain of each holding */
+    private double[] realized = new double[16];
+    /** Id given to the next lot */
+    private long nextLotId = 1;
+    /** Cash deposited plus sale proceeds, less withdrawals and purchases */
+    private double cash;
+    /** Number of ledger records reflected in the book */
+    private long records;
+    /** Number of records logged since the last snapshot was queued */
+    private int unsnapshotted;
+
+    /**
+     * Constructs the book kept in {@link #LOTS_FILE} and {@link #SNAPSHOT_FILE}.
+     */
+    private LotBook() {
+        this(LOTS_FILE, SNAPSHOT_FILE);
+    }
+
+    /**
+     * Constructs a book from the newest snapshot and the ledger records written after it.
+     * Without a usable snapshot the whole ledger is replayed.
+     *
+     * @param ledgerFile The ledger holding one record per trade or cash flow
+     * @param snapshotFile The snapshot file of the ledger
+     */
+    LotBook(String ledgerFile, String snapshotFile) {
+        this.ledgerFile = ledgerFile;
+        this.snapshotFile = snapshotFile;
+        File file = new File(ledgerFile);
+        long offset = readSnapshot(file.length());
+        if (!file.exists()) return;
+        try (FileInputStream in = new FileInputStream(file)) {
+            in.getChannel().position(offset);
+            try (CsvReader csv = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                while (csv.next()) {
+                    replay(csv);
+                    records++;
+                }
+                for (String error : csv.errors()) {
+                    System.err.println(ledgerFile + " after byte " + offset + ": " + error);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading trades: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the shared book, loading it on the first call.
+     *
+     * @return The shared book
+     */
+    static synchronized LotBook getInstance() {
+        if (instance == null) {
+            instance = new LotBook();
+        }
+        return instance;
+    }
+
+    /**
+     * Records a buy as a new lot.
+     *
+     * @param name The asset name
+     * @param quantity Units bought, positive
+     * @param unitCost Price paid per unit, not negative
+     * @param day The acquisition day, as an epoch day
+     * @return The id of the new lot
+     */
+    synchronized long buy(String name, double quantity, double unitCost, int day) {
+        long id = nextLotId;
+        openLot(holding(name), id, quantity, unitCost, day);
+        log(CsvWriter.record(BUY, id, name, LocalDate.ofEpochDay(day).toString(), quantity, unitCost));
+        return id;
+    }
+
+    /**
+     * Records a sell, consuming lots in the given order.
+     *
+     * @param name The asset name
+     * @param quantity Units sold, positive
+     * @param price Price received per unit
+     * @param day The day of the sale, as an epoch day
+     * @param matching How to pick the lots
+     * @param lotId The lot to sell from with {@link Matching#SPECIFIC}, ignored otherwise
+     * @return The realized gain of the sale
+     * @throws IllegalArgumentException If the lots to sell from hold fewer units than the quantity
+     */
+    synchronized double sell(String name, double quantity, double price, int day, Matching matching, long lotId) {
+        Integer holding = holdingIndex.get(name);
+        double available = holding == null ? 0
+                : matching != Matching.SPECIFIC ? quantities[holding] : lotQuantity(holding, lotId);
+        if (holding == null || quantity > available + DUST) {
+            throw new IllegalArgumentException("Only " + available + " units are held.");
+        }
+        double gain = closeLots(holding, quantity, price, matching, lotId);
+        log(CsvWriter.record(SELL, name, LocalDate.ofEpochDay(day).toString(),
+                quantity, price, matching.name(), matching == Matching.SPECIFIC ? lotId : 0));
+        return gain;
+    }
+
+    /**
+     * Records a deposit or a withdrawal of cash.
+     *
+     * @param amount The amount deposited, negative for a withdrawal
+     * @param day The day of the cash flow, as an epoch day
+     */
+    synchronized void cashFlow(double amount, int day) {
+        cash += amount;
+        log(CsvWriter.record(CASH, LocalDate.ofEpochDay(day).toString(), amount));
+    }
+
+    /**
+     * Gets the cash balance.
+     *
+     * @return Deposits and sale proceeds less withdrawals and purchases
+     */
+    synchronized double cash() {
+        return cash;
+    }
+
+    /**
+     * Gets the number of holdings that were ever traded.
+     *
+     * @return The holding count
+     */
+    synchronized int holdings() {
+        return names.size();
+    }
+
+    /**
+     * Finds the holding of an asset name.
+     *
+     * @param name The asset name
+     * @return The holding index, or -1 if the name was never traded
+     */
+    synchronized int indexOf(String name) {
+        Integer holding = holdingIndex.get(name);
+        return holding == null ? -1 : holding;
+    }
+
+    /**
+     * Gets the asset name of a holding.
+     *
+     * @param holding The holding index
+     * @return The asset name
+     */
+    synchronized String name(int holding) {
+        return names.get(holding);
+    }
+
+    /**
+     * Gets the open lots of a holding. The deque is live and must only be read while holding
+     * the book's lock.
+     *
+     * @param holding The holding index
+     * @return The open lots, oldest first
+     */
+    synchronized LotDeque lots(int holding) {
+        return lots[holding];
+    }
+
+    /**
+     * Gets the units held in the open lots of a holding.
+     *
+     * @param holding The holding index
+     * @return The open quantity
+     */
+    synchronized double quantity(int holding) {
+        return quantities[holding];
+    }
+
+    /**
+     * Gets the cost basis of the open lots of a holding.
+     *
+     * @param holding The holding index
+     * @return What was paid for the units still held
+     */
+    synchronized double costBasis(int holding) {
+        return costs[holding];
+    }
+
+    /**
+     * Gets the gain booked by the sales of a holding.
+     *
+     * @param holding The holding index
+     * @return The realized gain, negative for a loss
+     */
+    synchronized double realized(int holding) {
+        return realized[holding];
+    }
+
+    /**
+     * Gets the gain on the open lots of a holding at a price.
+     *
+     * @param holding The holding index
+     * @param price The current price per unit
+     * @return The unrealized gain, negative for a loss
+     */
+    synchronized double unrealized(int holding, double price) {
+        return quantities[holding] * price - costs[holding];
+    }
+
+    /**
+     * Gets the gain on all open lots at the given prices.
+     *
+     * @param prices Current price per holding index; NaN for holdings without a price, which are skipped
+     * @return The summed unrealized gain
+     */
+    synchronized double unrealizedTotal(double[] prices) {
+        double total = 0;
+        for (int h = 0; h < names.size(); h++) {
+            if (!Double.isNaN(prices[h])) {
+                total += quantities[h] * prices[h] - costs[h];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Gets the latest price of every holding from the price histories.
+     *
+     * @param store The store to take price histories from
+     * @return The latest price per holding index, NaN where a holding has no history
+     */
+    double[] latestPrices(PriceStore store) {
+        int count = holdings();
+        double[] prices = new double[count];
+        for (int h = 0; h < count; h++) {
+            PriceSeries series = store.get(name(h));
+            prices[h] = series == null ? Double.NaN : series.latestPrice();
+        }
+        return prices;
+    }
+
+    /**
+     * Applies one record of the trades file without writing it again.
+     * Records that cannot be applied are reported to the reader.
+     *
+     * @param csv The reader positioned on a trade record
+     */
+    private void replay(CsvReader csv) {
+        String marker = csv.getInterned(0);
+        try {
+            if (marker.equals(BUY) && csv.fieldCount() == 6) {
+                long id = csv.getLong(1);
+                double quantity = csv.getDouble(4);
+                double unitCost = csv.getDouble(5);
+                if (!(quantity > 0) || !(unitCost >= 0)) {
+                    csv.error("quantity must be positive and cost not negative");
+                    return;
+                }
+                openLot(holding(csv.getString(2)), id, quantity, unitCost,
+                        (int) LocalDate.parse(csv.getString(3)).toEpochDay());
+            } else if (marker.equals(SELL) && csv.fieldCount() == 7) {
+                LocalDate.parse(csv.getString(2)); // checks the date
+                Integer holding = holdingIndex.get(csv.getString(1));
+                double quantity = csv.getDouble(3);
+                Matching matching = Matching.valueOf(csv.getString(5));
+                long lotId = csv.getLong(6);
+                double available = holding == null ? 0
+                        : matching != Matching.SPECIFIC ? quantities[holding] : lotQuantity(holding, lotId);
+                if (holding == null || !(quantity > 0) || quantity > available + DUST) {
+                    csv.error("sells more units than are held");
+                    return;
+                }
+                closeLots(holding, quantity, csv.getDouble(4), matching, lotId);
+            } else if (marker.equals(CASH) && csv.fieldCount() == 3) {
+                LocalDate.parse(csv.getString(1)); // checks the date
+                cash += csv.getDouble(2);
+            } else {
+                csv.error("unknown trade record");
+            }
+        } catch (NumberFormatException | DateTimeException e) {
+            csv.error("invalid number or date (" + e.getMessage() + ")");
+        } catch (IllegalArgumentException e) {
+            csv.error("unknown lot matching \"" + csv.getString(5) + "\"");
+        }
+    }
+
+    /**
+     * Adds a lot to a holding's deque and running sums.
+     *
+     * @param holding The holding index
+     * @param id The lot id
+     * @param quantity Units bought
+     * @param unitCost Price paid per unit
+     * @param day The acquisition day, as an epoch day
+     */
+    private void openLot(int holding, long id, double quantity, double unitCost, int day) {
+        lots[holding].addLast(id, quantity, unitCost, day);
+        quantities[holding] += quantity;
+        costs[holding] += quantity * unitCost;
+        cash -= quantity * unitCost;
+        nextLotId = Math.max(nextLotId, id + 1);
+    }
+
+    /**
+     * Consumes lots for a sale and books its gain. The caller has checked the quantity is held.
+     *
+     * @param holding The holding index
+     * @param quantity Units sold
+     * @param price Price received per unit
+     * @param matching How to pick the lots
+     * @param lotId The lot to sell from with {@link Matching#SPECIFIC}
+     * @return The realized gain of the sale
+     */
+    private double closeLots(int holding, double quantity, double price, Matching matching, long lotId) {
+        LotDeque deque = lots[holding];
+        double remaining = quantity;
+        double gain = 0;
+        while (remaining > DUST && deque.size() > 0) {
+            int index = switch (matching) {
+                case FIFO -> 0;
+                case LIFO -> deque.size() - 1;
+                case SPECIFIC -> deque.indexOf(lotId);
+            };
+            double held = deque.quantity(index);
+            double taken = Math.min(held, remaining);
+            double unitCost = deque.unitCost(index);
+            gain += taken * (price - unitCost);
+            costs[holding] -= taken * unitCost;
+            quantities[holding] -= taken;
+            remaining -= taken;
+            if (held - taken <= DUST) {
+                deque.remove(index);
+            } else {
+                deque.setQuantity(index, held - taken);
+            }
+        }
+        if (deque.size() == 0) {
+            quantities[holding] = 0; // discards any rounding left in the sums
+            costs[holding] = 0;
+        }
+        realized[holding] += gain;
+        cash += quantity * price;
+        return gain;
+    }
+
+    /**
+     * Gets the units left in one open lot.
+     *
+     * @param holding The holding index
+     * @param lotId The lot id
+     * @return The lot's quantity, or 0 if it is not open
+     */
+    private double lotQuantity(int holding, long lotId) {
+        int index = lots[holding].indexOf(lotId);
+        return index < 0 ? 0 : lots[holding].quantity(index);
+    }
+
+    /**
+     * Gets the holding of an asset name, adding it if the name is new.
+     *
+     * @param name The asset name
+     * @return The holding index
+     */
+    private int holding(String name) {
+        Integer holding = holdingIndex.get(name);
+        if (holding == null) {
+            holding = names.size();
+            if (holding == lots.length) {
+                lots = Arrays.copyOf(lots, holding * 2);
+                quantities = Arrays.copyOf(quantities, holding * 2);
+                costs = Arrays.copyOf(costs, holding * 2);
+                realized = Arrays.copyOf(realized, holding * 2);
+            }
+            names.add(name);
+            holdingIndex.put(name, holding);
+            lots[holding] = new LotDeque();
+        }
+        return holding;
+    }
+
+    /**
+     * Appends a record to the ledger and queues a snapshot once enough records were logged since the last.
+     * The caller holds the book's lock.
+     *
+     * @param record The ledger record
+     */
+    private void log(String record) {
+        PersistenceQueue.appendLine(ledgerFile, record, SAVE_FAILED);
+        records++;
+        if (++unsnapshotted >= SNAPSHOT_INTERVAL) {
+            unsnapshotted = 0;
+            // queued behind the record just appended, so the ledger holds it when the snapshot is built
+            PersistenceQueue.replace(snapshotFile, () -> writeSnapshot(ledgerFile, snapshotFile), null);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the ledger as it is on disk. Runs on the persistence thread, the only
+     * thread appending to the ledger, so the ledger cannot grow meanwhile: the book is rebuilt from
+     * the previous snapshot and the records written since, and stored with the ledger length.
+     *
+     * @param ledgerFile The ledger
+     * @param snapshotFile The snapshot file to replace
+     */
+    private static void writeSnapshot(String ledgerFile, String snapshotFile) {
+        try {
+            long offset = new File(ledgerFile).length();
+            if (!endsLine(ledgerFile, offset)) return; // a record cut short; a later snapshot will catch up
+            LotBook book = new LotBook(ledgerFile, snapshotFile);
+            Path file = Paths.get(snapshotFile);
+            Path tempFile = Paths.get(snapshotFile + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(book.records);
+                out.writeLong(offset);
+                out.write(book.encodeState());
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing trade snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Encodes the holdings, their lots, the cash balance and the next lot id.
+     *
+     * @return The encoded book
+     */
+    private byte[] encodeState() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(nextLotId);
+            out.writeDouble(cash);
+            out.writeInt(names.size());
+            for (int h = 0; h < names.size(); h++) {
+                out.writeUTF(names.get(h));
+                out.writeDouble(quantities[h]);
+                out.writeDouble(costs[h]);
+                out.writeDouble(realized[h]);
+                LotDeque deque = lots[h];
+                out.writeInt(deque.size());
+                for (int i = 0; i < deque.size(); i++) {
+                    out.writeLong(deque.id(i));
+                    out.writeDouble(deque.quantity(i));
+                    out.writeDouble(deque.unitCost(i));
+                    out.writeInt(deque.day(i));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen writing to memory
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores the book from the snapshot file, if there is a usable one.
+     * A snapshot pointing past the end of the ledger or into the middle of a line is ignored.
+     *
+     * @param ledgerLength Current length of the ledger in bytes
+     * @return The ledger position to replay from, 0 without a usable snapshot
+     */
+    private long readSnapshot(long ledgerLength) {
+        File file = new File(snapshotFile);
+        if (!file.exists()) return 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a trade snapshot of a supported version");
+            }
+            long stateRecords = in.readLong();
+            long offset = in.readLong();
+            if (offset < 0 || offset > ledgerLength || !endsLine(ledgerFile, offset)) {
+                throw new IOException("snapshot does not match " + ledgerFile);
+            }
+            nextLotId = in.readLong();
+            cash = in.readDouble();
+            int holdings = in.readInt();
+            for (int h = 0; h < holdings; h++) {
+                int holding = holding(in.readUTF());
+                quantities[holding] = in.readDouble();
+                costs[holding] = in.readDouble();
+                realized[holding] = in.readDouble();
+                int lotCount = in.readInt();
+                for (int i = 0; i < lotCount; i++) {
+                    lots[holding].addLast(in.readLong(), in.readDouble(), in.readDouble(), in.readInt());
+                }
+            }
+            records = stateRecords;
+            return offset;
+        } catch (IOException e) {
+            System.err.println("Ignoring " + snapshotFile + " (" + e.getMessage() + "); replaying all trades.");
+            reset();
+            return 0;
+        }
+    }
+
+    /**
+     * Checks whether a ledger position is the start of a line.
+     *
+     * @param ledgerFile The ledger
+     * @param offset The byte offset
+     * @return true if the offset is 0 or follows a line break
+     * @throws IOException If the ledger cannot be read
+     */
+    private static boolean endsLine(String ledgerFile, long offset) throws IOException {
+        if (offset == 0) return true;
+        try (FileChannel channel = FileChannel.open(Paths.get(ledgerFile), StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            return channel.read(last, offset - 1) == 1 && last.get(0) == '\n';
+        }
+    }
+
+    /**
+     * Empties the book, dropping a partly read snapshot.
+     */
+    private void reset() {
+        holdingIndex = new HashMap<>();
+        names = new ArrayList<>();
+        lots = new LotDeque[16];
+        quantities = new double[16];
+        costs = new double[16];
+        realized = new double[16];
+        nextLotId = 1;
+        cash = 0;
+        records = 0;
+    }
+}
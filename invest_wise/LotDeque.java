@@ -0,0 +1,186 @@
+package invest_wise;
+
+/**
+ * The open tax lots of one holding, oldest first, in a ring buffer of primitive columns.
+ * Lots are bought at the back; FIFO sales consume them from the front and LIFO sales from the back,
+ * both without moving any other lot. Selling a specific lot closes the gap by shifting the lots on
+ * the shorter side of it. The capacity is a power of two so positions wrap with a mask.
+ */
+class LotDeque {
+    /** Initial number of lots */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /** Lot id per buffer slot */
+    private long[] ids = new long[INITIAL_CAPACITY];
+    /** Units still held per buffer slot */
+    private double[] quantities = new double[INITIAL_CAPACITY];
+    /** Price paid per unit per buffer slot */
+    private double[] unitCosts = new double[INITIAL_CAPACITY];
+    /** Acquisition day per buffer slot, as an epoch day */
+    private int[] days = new int[INITIAL_CAPACITY];
+    /** Buffer slot of the oldest lot */
+    private int head;
+    /** Number of lots */
+    private int size;
+
+    /**
+     * Gets the number of open lots.
+     *
+     * @return The lot count
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the id of a lot.
+     *
+     * @param index Position of the lot, 0 for the oldest
+     * @return The lot id
+     */
+    long id(int index) {
+        return ids[slot(index)];
+    }
+
+    /**
+     * Gets the units still held in a lot.
+     *
+     * @param index Position of the lot, 0 for the oldest
+     * @return The remaining quantity
+     */
+    double quantity(int index) {
+        return quantities[slot(index)];
+    }
+
+    /**
+     * Gets the price paid per unit of a lot.
+     *
+     * @param index Position of the lot, 0 for the oldest
+     * @return The unit cost
+     */
+    double unitCost(int index) {
+        return unitCosts[slot(index)];
+    }
+
+    /**
+     * Gets the day a lot was acquired.
+     *
+     * @param index Position of the lot, 0 for the oldest
+     * @return The acquisition day, as an epoch day
+     */
+    int day(int index) {
+        return days[slot(index)];
+    }
+
+    /**
+     * Finds a lot by id.
+     *
+     * @param id The lot id
+     * @return The lot's position, or -1 if it is not open
+     */
+    int indexOf(long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[slot(i)] == id) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a newly bought lot at the back.
+     *
+     * @param id The lot id
+     * @param quantity Units bought
+     * @param unitCost Price paid per unit
+     * @param day The acquisition day, as an epoch day
+     */
+    void addLast(long id, double quantity, double unitCost, int day) {
+        if (size == ids.length) {
+            grow();
+        }
+        int slot = slot(size++);
+        ids[slot] = id;
+        quantities[slot] = quantity;
+        unitCosts[slot] = unitCost;
+        days[slot] = day;
+    }
+
+    /**
+     * Changes the units still held in a lot after part of it was sold.
+     *
+     * @param index Position of the lot, 0 for the oldest
+     * @param quantity The remaining quantity
+     */
+    void setQuantity(int index, double quantity) {
+        quantities[slot(index)] = quantity;
+    }
+
+    /**
+     * Removes a fully sold lot.
+     *
+     * @param index Position of the lot, 0 for the oldest
+     */
+    void remove(int index) {
+        int mask = ids.length - 1;
+        if (index < size / 2) {
+            // shift the older lots one slot towards the back
+            for (int i = index; i > 0; i--) {
+                move(slot(i - 1), slot(i));
+            }
+            head = (head + 1) & mask;
+        } else {
+            // shift the newer lots one slot towards the front
+            for (int i = index; i < size - 1; i++) {
+                move(slot(i + 1), slot(i));
+            }
+        }
+        size--;
+    }
+
+    /**
+     * Gets the buffer slot of a position.
+     *
+     * @param index Position of the lot, 0 for the oldest
+     * @return The buffer slot
+     */
+    private int slot(int index) {
+        return (head + index) & (ids.length - 1);
+    }
+
+    /**
+     * Copies one buffer slot over another.
+     *
+     * @param from The slot to copy
+     * @param to The slot to overwrite
+     */
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        quantities[to] = quantities[from];
+        unitCosts[to] = unitCosts[from];
+        days[to] = days[from];
+    }
+
+    /**
+     * Doubles the capacity, moving the lots to the start of the new buffer in order.
+     */
+    private void grow() {
+        int capacity = ids.length * 2;
+        long[] newIds = new long[capacity];
+        double[] newQuantities = new double[capacity];
+        double[] newUnitCosts = new double[capacity];
+        int[] newDays = new int[capacity];
+        int firstPart = Math.min(size, ids.length - head);
+        System.arraycopy(ids, head, newIds, 0, firstPart);
+        System.arraycopy(quantities, head, newQuantities, 0, firstPart);
+        System.arraycopy(unitCosts, head, newUnitCosts, 0, firstPart);
+        System.arraycopy(days, head, newDays, 0, firstPart);
+        System.arraycopy(ids, 0, newIds, firstPart, size - firstPart);
+        System.arraycopy(quantities, 0, newQuantities, firstPart, size - firstPart);
+        System.arraycopy(unitCosts, 0, newUnitCosts, firstPart, size - firstPart);
+        System.arraycopy(days, 0, newDays, firstPart, size - firstPart);
+        ids = newIds;
+        quantities = newQuantities;
+        unitCosts = newUnitCosts;
+        days = newDays;
+        head = 0;
+    }
+}
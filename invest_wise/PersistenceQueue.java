@@ -0,0 +1,293 @@
+package invest_wise;
+
+import javax.swing.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+
+/**
+ * Runs file writes on a dedicated background thread so the Swing Event Dispatch Thread never waits on the disk.
+ * Writes are queued without blocking the caller and executed in order. A write queued while the newest
+ * write for the same key is still waiting is merged into it: a replacing write supersedes the waiting one,
+ * and appended lines join the waiting batch so they reach the file in a single write. Only the newest
+ * write for a key is ever merged into, so lines never overtake a batch queued before them.
+ * The queue grows only with writes for different keys or batches that cannot be merged.
+ * Failures are reported to the user on the Event Dispatch Thread, and the queue is drained on shutdown.
+ */
+public class PersistenceQueue {
+    /** How long {@link #flush} waits for pending writes to finish */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    /** Writes waiting to run, in submission order */
+    private static final BlockingQueue<PendingWrite> QUEUE = new LinkedBlockingQueue<>();
+    /** Newest write still waiting in the queue, by key; guarded by itself */
+    private static final HashMap<String, PendingWrite> WAITING = new HashMap<>();
+    /** Observers told about appends to a file, by file path */
+    private static final Map<String, AppendObserver> OBSERVERS = new ConcurrentHashMap<>();
+
+    static {
+        Thread worker = new Thread(PersistenceQueue::runWrites, "persistence-writer");
+        worker.setDaemon(true);
+        worker.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(PersistenceQueue::flush, "persistence-flush"));
+    }
+
+    /**
+     * A single file operation that may fail with an I/O error.
+     */
+    public interface Write {
+        /**
+         * Performs the file operation.
+         *
+         * @throws IOException If the operation fails
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * Observer of the lines appended to one file.
+     */
+    private static class AppendObserver {
+        /** Lock held while lines are appended and the observer is told */
+        final Object lock;
+        /** Receives the file length after each appended batch */
+        final LongConsumer onAppended;
+
+        /**
+         * Constructs an append observer.
+         *
+         * @param lock Lock held while lines are appended and the observer is told
+         * @param onAppended Receives the file length after each appended batch
+         */
+        AppendObserver(Object lock, LongConsumer onAppended) {
+            this.lock = lock;
+            this.onAppended = onAppended;
+        }
+    }
+
+    /**
+     * A queued write together with the lines batched into it.
+     */
+    private static class PendingWrite {
+        /** Key identifying the target of the write, usually a file path */
+        final String key;
+        /** Message shown to the user if the write fails */
+        final String failureMessage;
+        /** The write to run, or null for a batch of appended lines */
+        Write write;
+        /** Lines to append to the file named by the key */
+        final ArrayList<String> lines = new ArrayList<>();
+        /** Produces the lines of a bulk append as they are written, or null */
+        IntFunction<String> bulkLines;
+        /** Number of lines of a bulk append */
+        int bulkCount;
+
+        /**
+         * Constructs a pending write.
+         *
+         * @param key Key identifying the target of the write
+         * @param failureMessage Message shown to the user if the write fails
+         */
+        PendingWrite(String key, String failureMessage) {
+            this.key = key;
+            this.failureMessage = failureMessage;
+        }
+    }
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private PersistenceQueue() {
+    }
+
+    /**
+     * Queues a write that replaces the whole content behind a key.
+     * If the newest write for the same key is a replacing write still waiting, it is dropped in favour of this one.
+     *
+     * @param key Key identifying the target of the write
+     * @param write The write to run
+     * @param failureMessage Message shown to the user if the write fails
+     */
+    public static void replace(String key, Write write, String failureMessage) {
+        synchronized (WAITING) {
+            PendingWrite waiting = WAITING.get(key);
+            if (waiting != null && waiting.write != null) {
+                waiting.write = write;
+                return;
+            }
+            PendingWrite pending = new PendingWrite(key, failureMessage);
+            pending.write = write;
+            enqueue(pending);
+        }
+    }
+
+    /**
+     * Queues a line to be appended to a file.
+     * A line appended while the newest write for the same file is a waiting batch of lines joins that batch.
+     *
+     * @param file Path of the file to append to
+     * @param line The line to append, without a line terminator
+     * @param failureMessage Message shown to the user if the write fails
+     */
+    public static void appendLine(String file, String line, String failureMessage) {
+        synchronized (WAITING) {
+            PendingWrite waiting = WAITING.get(file);
+            if (waiting != null && waiting.write == null && waiting.bulkLines == null) {
+                waiting.lines.add(line);
+                return;
+            }
+            PendingWrite pending = new PendingWrite(file, failureMessage);
+            pending.lines.add(line);
+            enqueue(pending);
+        }
+    }
+
+    /**
+     * Queues many lines to be appended to a file in one write.
+     * The lines are only produced on the writer thread, so the caller does not build them all up front.
+     *
+     * @param file Path of the file to append to
+     * @param count Number of lines to append
+     * @param line Produces the line at a given index, without a line terminator
+     * @param failureMessage Message shown to the user if the write fails
+     */
+    public static void appendLines(String file, int count, IntFunction<String> line, String failureMessage) {
+        PendingWrite pending = new PendingWrite(file, failureMessage);
+        pending.bulkLines = line;
+        pending.bulkCount = count;
+        synchronized (WAITING) {
+            enqueue(pending);
+        }
+    }
+
+    /**
+     * Registers an observer for the lines appended to a file through this queue.
+     * Each batch is written and reported while holding the given lock, so a reader holding
+     * the same lock always sees the file length matching the last report.
+     *
+     * @param file Path of the file to observe
+     * @param lock Lock held while appending and reporting
+     * @param onAppended Receives the file length after each appended batch
+     */
+    public static void observeAppends(String file, Object lock, LongConsumer onAppended) {
+        OBSERVERS.put(file, new AppendObserver(lock, onAppended));
+    }
+
+    /**
+     * Waits until every write queued so far has finished, or at most ten seconds.
+     * Used before reading a file that may still have writes waiting. It blocks, so it must not be
+     * called on the event dispatch thread; screens read such files in a {@link SwingWorker}.
+     */
+    public static void flush() {
+        if (Thread.currentThread().getName().equals("persistence-writer")) return;
+
+        CountDownLatch done = new CountDownLatch(1);
+        PendingWrite marker = new PendingWrite("flush@" + System.identityHashCode(done), null);
+        marker.write = done::countDown;
+        synchronized (WAITING) {
+            enqueue(marker);
+        }
+        try {
+            done.await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds a write to the queue as the newest write for its key. The caller holds the lock of
+     * {@link #WAITING}, so looking for a write to merge into and queueing a new one happen together.
+     *
+     * @param pending The write to queue
+     */
+    private static void enqueue(PendingWrite pending) {
+        WAITING.put(pending.key, pending);
+        QUEUE.add(pending);
+    }
+
+    /**
+     * Body of the writer thread: takes queued writes one at a time and runs them.
+     */
+    private static void runWrites() {
+        while (true) {
+            PendingWrite pending;
+            try {
+                pending = QUEUE.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (WAITING) {
+                // once taken, later writes for the key must queue behind this one; a newer waiting write stays
+                WAITING.remove(pending.key, pending);
+            }
+            try {
+                if (pending.write != null) {
+                    pending.write.run();
+                } else if (pending.bulkLines != null) {
+                    writeLines(pending.key, pending.bulkCount, pending.bulkLines);
+                } else {
+                    writeLines(pending.key, pending.lines.size(), pending.lines::get);
+                }
+            } catch (IOException | RuntimeException e) {
+                reportFailure(pending.failureMessage);
+            }
+        }
+    }
+
+    /**
+     * Appends a batch of lines to a file in a single write.
+     *
+     * @param file Path of the file to append to
+     * @param count Number of lines to append
+     * @param lines Produces the line at a given index
+     * @throws IOException If the file cannot be written
+     */
+    private static void writeLines(String file, int count, IntFunction<String> lines) throws IOException {
+        AppendObserver observer = OBSERVERS.get(file);
+        if (observer == null) {
+            appendToFile(file, count, lines);
+            return;
+        }
+        synchronized (observer.lock) {
+            appendToFile(file, count, lines);
+            observer.onAppended.accept(new File(file).length());
+        }
+    }
+
+    /**
+     * Appends lines to a file.
+     *
+     * @param file Path of the file to append to
+     * @param count Number of lines to append
+     * @param lines Produces the line at a given index
+     * @throws IOException If the file cannot be written
+     */
+    private static void appendToFile(String file, int count, IntFunction<String> lines) throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8, true))) {
+            for (int i = 0; i < count; i++) {
+                bw.write(lines.apply(i));
+                bw.newLine();
+            }
+        }
+    }
+
+    /**
+     * Shows a failed write to the user without blocking the writer thread.
+     *
+     * @param message The message to show
+     */
+    private static void reportFailure(String message) {
+        if (message == null) return;
+        SwingUtilities.invokeLater(() ->
+                JOptionPane.showMessageDialog(null, message, "Save Error", JOptionPane.ERROR_MESSAGE));
+    }
+}
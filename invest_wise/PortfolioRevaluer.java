@@ -0,0 +1,153 @@
+package invest_wise;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Values a portfolio on past dates from the price histories in the {@link PriceStore}.
+ * The value the user entered for an asset is taken as its worth at the latest quote, which fixes
+ * the number of units held; on any other date the asset is worth those units at that date's price.
+ * Assets without a price history keep their entered value on every date. All values are in the
+ * reporting currency, converted with the current {@link FxRates}, so the units of a holding are
+ * counted in the reporting currency and the price history only supplies the movement between dates.
+ *
+ * <p>Holdings are grouped by asset name, so each distinct series is read once however many assets
+ * share it. Valuing a range of dates expands one series at a time into a day-by-day price array and
+ * adds it to the running totals in a plain indexed loop that the JIT can vectorize.</p>
+ */
+class PortfolioRevaluer {
+    /** Asset name of each priced holding */
+    private final String[] names;
+    /** Price history of each priced holding */
+    private final PriceSeries[] series;
+    /** Units held of each priced holding */
+    private final double[] units;
+    /** Total value of the assets without a price history */
+    private final double unpricedValue;
+
+    /**
+     * Prepares the revaluation of a set of assets.
+     *
+     * @param assets The assets to value
+     * @param prices The store to take price histories from
+     */
+    PortfolioRevaluer(List<Asset> assets, PriceStore prices) {
+        HashMap<String, Integer> holdings = new HashMap<>();
+        ArrayList<String> pricedNames = new ArrayList<>();
+        ArrayList<PriceSeries> pricedSeries = new ArrayList<>();
+        double[] pricedUnits = new double[16];
+        double unpriced = 0;
+        double[] toReporting = FxRates.getInstance().factorsTo(CurrencyCode.REPORTING);
+
+        for (Asset asset : assets) {
+            double value = asset.value * toReporting[asset.currency.ordinal()];
+            Integer holding = holdings.get(asset.name);
+            if (holding == null) {
+                PriceSeries history = prices.get(asset.name);
+                if (history == null) {
+                    unpriced += value;
+                    continue;
+                }
+                holding = pricedSeries.size();
+                holdings.put(asset.name, holding);
+                pricedNames.add(asset.name);
+                pricedSeries.add(history);
+                if (holding == pricedUnits.length) {
+                    pricedUnits = Arrays.copyOf(pricedUnits, holding * 2);
+                }
+            }
+            pricedUnits[holding] += value / pricedSeries.get(holding).latestPrice();
+        }
+
+        this.names = pricedNames.toArray(new String[0]);
+        this.series = pricedSeries.toArray(new PriceSeries[0]);
+        this.units = Arrays.copyOf(pricedUnits, series.length);
+        this.unpricedValue = unpriced;
+    }
+
+    /**
+     * Gets the number of asset names that have a price history.
+     *
+     * @return Number of priced holdings
+     */
+    int pricedHoldings() {
+        return series.length;
+    }
+
+    /**
+     * Gets the asset name of a priced holding.
+     *
+     * @param holding Index of the holding, below {@link #pricedHoldings()}
+     * @return The name shared by the holding's assets
+     */
+    String name(int holding) {
+        return names[holding];
+    }
+
+    /**
+     * Gets the price history of a priced holding.
+     *
+     * @param holding Index of the holding, below {@link #pricedHoldings()}
+     * @return The holding's prices
+     */
+    PriceSeries series(int holding) {
+        return series[holding];
+    }
+
+    /**
+     * Gets the current value of a priced holding, its units at the latest quote.
+     *
+     * @param holding Index of the holding, below {@link #pricedHoldings()}
+     * @return The holding's current value
+     */
+    double currentValue(int holding) {
+        return units[holding] * series[holding].latestPrice();
+    }
+
+    /**
+     * Gets the total value of the assets without a price history.
+     *
+     * @return The summed entered value of the unpriced assets
+     */
+    double unpricedValue() {
+        return unpricedValue;
+    }
+
+    /**
+     * Values the portfolio on one day.
+     *
+     * @param day The day as an epoch day
+     * @return The portfolio value on that day
+     */
+    double valueOn(int day) {
+        double total = unpricedValue;
+        for (int i = 0; i < series.length; i++) {
+            total += units[i] * series[i].priceOn(day);
+        }
+        return total;
+    }
+
+    /**
+     * Values the portfolio on every day of a range.
+     *
+     * @param fromDay The first day, as an epoch day
+     * @param toDay The last day, as an epoch day
+     * @return The portfolio value of day {@code fromDay + i} at index i
+     */
+    double[] valuesBetween(int fromDay, int toDay) {
+        int length = Math.max(0, toDay - fromDay + 1);
+        double[] totals = new double[length];
+        Arrays.fill(totals, unpricedValue);
+        double[] dailyPrices = new double[length];
+        for (int s = 0; s < series.length; s++) {
+            series[s].fill(fromDay, dailyPrices);
+            double held = units[s];
+            for (int i = 0; i < length; i++) {
+                totals[i] += held * dailyPrices[i];
+            }
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,179 @@
+package invest_wise;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Portfolio volatility from the covariance of the holdings' daily returns, so that holdings which
+ * move against each other lower the figure instead of adding up. The covariance matrix of the
+ * largest priced holdings is kept in a {@link RollingCovariance} over the last year of trading
+ * days. Each {@link #update} feeds only the trading days that are new since the previous one;
+ * the matrix is rebuilt from the price histories only when the set of holdings changes.
+ *
+ * <p>Each holding's share of the portfolio variance, its weight times its covariance with the
+ * whole portfolio, is kept alongside so advice can name the holdings that drive the risk.
+ * Assets without a price history count towards the portfolio's value but not its volatility.
+ * Price files are expected to grow by appending new days.</p>
+ */
+class PortfolioVolatility {
+    /** Trading days of returns kept in the covariance window, about one year */
+    static final int WINDOW = 250;
+    /** Maximum number of holdings in the covariance matrix, taken largest first */
+    static final int MAX_HOLDINGS = 200;
+    /** Trading days per year, for annualizing */
+    private static final double TRADING_DAYS_PER_YEAR = 252;
+
+    /** Names of the holdings in the matrix, in matrix order */
+    private String[] names = new String[0];
+    /** Covariance of the holdings' daily returns */
+    private RollingCovariance covariance;
+    /** Last trading day fed into the matrix, as an epoch day */
+    private int lastFedDay;
+    /** Share of the portfolio value held in each holding */
+    private double[] weights = new double[0];
+    /** Share of the portfolio variance coming from each holding */
+    private double[] contributions = new double[0];
+    /** Annualized volatility of the portfolio */
+    private double volatility;
+
+    /**
+     * Brings the covariance matrix up to date with a portfolio and recalculates
+     * the volatility and each holding's contribution to it.
+     *
+     * @param portfolio The current holdings and their price histories
+     */
+    void update(PortfolioRevaluer portfolio) {
+        int[] chosen = largestHoldings(portfolio);
+        int size = chosen.length;
+        String[] chosenNames = new String[size];
+        PriceSeries[] series = new PriceSeries[size];
+        int firstDay = Integer.MAX_VALUE;
+        int lastDay = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            chosenNames[i] = portfolio.name(chosen[i]);
+            series[i] = portfolio.series(chosen[i]);
+            firstDay = Math.min(firstDay, series[i].firstDay());
+            lastDay = Math.max(lastDay, series[i].lastDay());
+        }
+        if (!Arrays.equals(chosenNames, names)) {
+            names = chosenNames;
+            covariance = new RollingCovariance(size, WINDOW);
+            lastFedDay = firstDay;
+        }
+
+        if (size > 0 && lastDay > lastFedDay) {
+            int[] days = ValueAtRisk.tradingDays(lastFedDay, lastDay, WINDOW + 1);
+            double[] returns = new double[size];
+            for (int d = 1; d < days.length; d++) {
+                for (int i = 0; i < size; i++) {
+                    returns[i] = series[i].priceOn(days[d]) / series[i].priceOn(days[d - 1]) - 1;
+                }
+                covariance.add(returns);
+            }
+            lastFedDay = days[days.length - 1];
+        }
+
+        double totalValue = portfolio.unpricedValue();
+        for (int h = 0; h < portfolio.pricedHoldings(); h++) {
+            totalValue += portfolio.currentValue(h);
+        }
+        weights = new double[size];
+        for (int i = 0; i < size; i++) {
+            weights[i] = totalValue > 0 ? portfolio.currentValue(chosen[i]) / totalValue : 0;
+        }
+        double[] exposures = new double[size];
+        if (size > 0) covariance.multiply(weights, exposures);
+        double variance = 0;
+        for (int i = 0; i < size; i++) {
+            variance += weights[i] * exposures[i];
+        }
+        contributions = new double[size];
+        for (int i = 0; i < size; i++) {
+            contributions[i] = variance > 0 ? weights[i] * exposures[i] / variance : 0;
+        }
+        volatility = Math.sqrt(Math.max(0, variance) * TRADING_DAYS_PER_YEAR);
+    }
+
+    /**
+     * Picks the holdings kept in the covariance matrix: the {@link #MAX_HOLDINGS} largest by value,
+     * ordered by name so that the matrix keeps its layout while their values change.
+     *
+     * @param portfolio The portfolio
+     * @return Indexes of the chosen holdings in the portfolio
+     */
+    private static int[] largestHoldings(PortfolioRevaluer portfolio) {
+        Integer[] holdings = new Integer[portfolio.pricedHoldings()];
+        for (int h = 0; h < holdings.length; h++) {
+            holdings[h] = h;
+        }
+        if (holdings.length > MAX_HOLDINGS) {
+            Arrays.sort(holdings, Comparator.comparingDouble(h -> -portfolio.currentValue(h)));
+            holdings = Arrays.copyOf(holdings, MAX_HOLDINGS);
+        }
+        Arrays.sort(holdings, Comparator.comparing(portfolio::name));
+
+        int[] chosen = new int[holdings.length];
+        for (int i = 0; i < chosen.length; i++) {
+            chosen[i] = holdings[i];
+        }
+        return chosen;
+    }
+
+    /**
+     * Gets the annualized volatility of the portfolio.
+     *
+     * @return Standard deviation of the yearly return, as a fraction of the portfolio value
+     */
+    double volatility() {
+        return volatility;
+    }
+
+    /**
+     * Gets the number of daily returns behind the covariance matrix.
+     *
+     * @return The observation count, 0 before the first update with priced holdings
+     */
+    int observations() {
+        return covariance == null ? 0 : covariance.count();
+    }
+
+    /**
+     * Gets the number of holdings in the covariance matrix.
+     *
+     * @return The holding count
+     */
+    int holdings() {
+        return names.length;
+    }
+
+    /**
+     * Gets the asset name of a holding.
+     *
+     * @param holding Index of the holding, below {@link #holdings()}
+     * @return The asset name
+     */
+    String name(int holding) {
+        return names[holding];
+    }
+
+    /**
+     * Gets the share of the portfolio value held in a holding.
+     *
+     * @param holding Index of the holding, below {@link #holdings()}
+     * @return The weight, as a fraction
+     */
+    double weight(int holding) {
+        return weights[holding];
+    }
+
+    /**
+     * Gets the share of the portfolio variance coming from a holding.
+     * The shares add up to one; a holding that offsets others has a negative share.
+     *
+     * @param holding Index of the holding, below {@link #holdings()}
+     * @return The contribution, as a fraction
+     */
+    double contribution(int holding) {
+        return contributions[holding];
+    }
+}
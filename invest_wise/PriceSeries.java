@@ -0,0 +1,187 @@
+package invest_wise;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Daily prices of one asset, kept as two parallel primitive arrays sorted by day.
+ * Days are counted as epoch days ({@link LocalDate#toEpochDay()}), so looking up the price on a
+ * date is a binary search over an {@code int[]}. A date between two quotes takes the earlier quote,
+ * and a date before the first quote takes the first one.
+ */
+class PriceSeries {
+    /** Quote days as epoch days, ascending and distinct */
+    private final int[] days;
+    /** Price on each quote day */
+    private final double[] prices;
+
+    /**
+     * Constructs a series from quotes already sorted by day.
+     *
+     * @param days Quote days as epoch days, ascending and distinct
+     * @param prices Price on each quote day
+     */
+    private PriceSeries(int[] days, double[] prices) {
+        this.days = days;
+        this.prices = prices;
+    }
+
+    /**
+     * Reads a series from CSV records of the form {@code date,price} with dates as YYYY-MM-DD.
+     * A first line starting with "date" is treated as a header. Records with a bad date or a
+     * price that is not positive are reported to the reader and skipped. Quotes may appear in
+     * any order; when a day is quoted twice the later record wins.
+     *
+     * @param csv The reader to take records from
+     * @return The series, or null if the file holds no valid quotes
+     * @throws IOException If the records cannot be read
+     */
+    static PriceSeries read(CsvReader csv) throws IOException {
+        int[] days = new int[256];
+        double[] prices = new double[256];
+        int size = 0;
+        boolean sorted = true;
+
+        while (csv.next()) {
+            if (csv.lineNumber() == 1 && csv.getString(0).equalsIgnoreCase("date")) {
+                continue; // header
+            }
+            if (csv.fieldCount() != 2) {
+                csv.error("expected date,price but found " + csv.fieldCount() + " fields");
+                continue;
+            }
+            int day;
+            double price;
+            try {
+                day = (int) LocalDate.parse(csv.getString(0)).toEpochDay();
+            } catch (DateTimeException e) {
+                csv.error("date must be YYYY-MM-DD");
+                continue;
+            }
+            try {
+                price = csv.getDouble(1);
+            } catch (NumberFormatException e) {
+                csv.error("price must be a valid number");
+                continue;
+            }
+            if (!(price > 0) || Double.isInfinite(price)) {
+                csv.error("price must be positive");
+                continue;
+            }
+
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            if (size > 0 && day <= days[size - 1]) sorted = false;
+            days[size] = day;
+            prices[size] = price;
+            size++;
+        }
+
+        if (size == 0) return null;
+        if (!sorted) return sortedCopy(days, prices, size);
+        return new PriceSeries(Arrays.copyOf(days, size), Arrays.copyOf(prices, size));
+    }
+
+    /**
+     * Sorts quotes by day, keeping the last of several quotes for the same day.
+     * Each quote is packed into a long as its day followed by its position, so one primitive
+     * sort orders the quotes by day and, within a day, by the order they were read.
+     *
+     * @param days Quote days in the order they were read
+     * @param prices Price of each quote
+     * @param size Number of quotes
+     * @return The sorted series
+     */
+    private static PriceSeries sortedCopy(int[] days, double[] prices, int size) {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) days[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] sortedDays = new int[size];
+        double[] sortedPrices = new double[size];
+        int count = 0;
+        for (long key : keys) {
+            int day = (int) (key >> 32);
+            int index = (int) key;
+            if (count > 0 && sortedDays[count - 1] == day) count--; // a later quote for the same day
+            sortedDays[count] = day;
+            sortedPrices[count] = prices[index];
+            count++;
+        }
+        return new PriceSeries(Arrays.copyOf(sortedDays, count), Arrays.copyOf(sortedPrices, count));
+    }
+
+    /**
+     * Gets the day of the first quote.
+     *
+     * @return The first quote day as an epoch day
+     */
+    int firstDay() {
+        return days[0];
+    }
+
+    /**
+     * Gets the day of the last quote.
+     *
+     * @return The last quote day as an epoch day
+     */
+    int lastDay() {
+        return days[days.length - 1];
+    }
+
+    /**
+     * Gets the most recent price.
+     *
+     * @return The price of the last quote
+     */
+    double latestPrice() {
+        return prices[prices.length - 1];
+    }
+
+    /**
+     * Gets the price on a day.
+     *
+     * @param day The day as an epoch day
+     * @return The price of the last quote on or before the day, or the first price for earlier days
+     */
+    double priceOn(int day) {
+        return prices[indexOn(day)];
+    }
+
+    /**
+     * Writes the price of every day of a range into an array, carrying each quote forward
+     * until the next one. The quotes are merged in one pass instead of searched day by day.
+     *
+     * @param fromDay The first day of the range, as an epoch day
+     * @param out Receives the price of day {@code fromDay + i} at index i, for the whole array
+     */
+    void fill(int fromDay, double[] out) {
+        int index = indexOn(fromDay);
+        int i = 0;
+        while (i < out.length) {
+            int end = index + 1 < days.length
+                    ? (int) Math.min(out.length, (long) days[index + 1] - fromDay)
+                    : out.length;
+            Arrays.fill(out, i, end, prices[index]);
+            i = end;
+            index++;
+        }
+    }
+
+    /**
+     * Finds the quote in effect on a day.
+     *
+     * @param day The day as an epoch day
+     * @return Index of the last quote on or before the day, or 0 for earlier days
+     */
+    private int indexOn(int day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index : Math.max(0, -index - 2); // the quote before the insertion point
+    }
+}
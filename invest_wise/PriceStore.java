@@ -0,0 +1,101 @@
+package invest_wise;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Local store of daily price histories, one CSV file per asset name in {@link #PRICES_DIR}.
+ * Each file holds {@code date,price} records and is read into a {@link PriceSeries} the first time
+ * its asset is priced. A file is read again only after it has been modified.
+ */
+class PriceStore {
+    /** Directory holding one price file per asset name */
+    static final String PRICES_DIR = "invest_wise/prices";
+
+    /** The shared store */
+    private static PriceStore instance;
+
+    /**
+     * A loaded series and the modification time of the file it was read from.
+     */
+    private static class Entry {
+        /** The series, or null if the file has no valid quotes or does not exist */
+        final PriceSeries series;
+        /** Modification time of the file when it was read, 0 if it did not exist */
+        final long modified;
+
+        /**
+         * Constructs a cache entry.
+         *
+         * @param series The series, or null
+         * @param modified Modification time of the file when it was read
+         */
+        Entry(PriceSeries series, long modified) {
+            this.series = series;
+            this.modified = modified;
+        }
+    }
+
+    /** Loaded series by asset name */
+    private final HashMap<String, Entry> cache = new HashMap<>();
+
+    /**
+     * Constructs a store; use {@link #getInstance()}.
+     */
+    private PriceStore() {
+    }
+
+    /**
+     * Gets the shared price store.
+     *
+     * @return The shared store
+     */
+    static synchronized PriceStore getInstance() {
+        if (instance == null) {
+            instance = new PriceStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the price history of an asset.
+     * Unreadable records are skipped and reported on standard error.
+     *
+     * @param name The asset name
+     * @return The asset's prices, or null if it has no price file or the file has no valid quotes
+     */
+    synchronized PriceSeries get(String name) {
+        File file = priceFile(name);
+        long modified = file.lastModified(); // 0 if the file does not exist
+        Entry entry = cache.get(name);
+        if (entry != null && entry.modified == modified) {
+            return entry.series;
+        }
+
+        PriceSeries series = null;
+        if (modified != 0) {
+            try (CsvReader csv = CsvReader.open(file)) {
+                series = PriceSeries.read(csv);
+                for (String error : csv.errors()) {
+                    System.err.println(file + ": " + error);
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading prices from " + file + ": " + e.getMessage());
+            }
+        }
+        cache.put(name, new Entry(series, modified));
+        return series;
+    }
+
+    /**
+     * Gets the price file of an asset.
+     * Characters that are not safe in file names are escaped by {@link FileNames#escape}.
+     *
+     * @param name The asset name
+     * @return The asset's price file inside the prices directory
+     */
+    static File priceFile(String name) {
+        return new File(PRICES_DIR, FileNames.escape(name) + ".csv");
+    }
+}
@@ -0,0 +1,112 @@
+package invest_wise;
+
+import java.util.Arrays;
+
+/**
+ * Finds the trades between asset types that move the portfolio to a target risk score with as
+ * little trading as possible. The portfolio value stays the same: money taken out of one type is
+ * put into others. Among all trades reaching the target, the one with the smallest sum of squared
+ * trade amounts is chosen, which spreads the trading over several types instead of emptying one.
+ *
+ * <p>This is a quadratic program with two equality constraints (trades sum to zero, the score hits
+ * the target) and a lower bound per type (a type cannot be sold below zero). Without bounds the
+ * solution is {@code trade = alpha + beta * riskWeight} for every type, found from a 2x2 system;
+ * bounds are handled by an active set that pins a type at "sell everything" while its unbounded
+ * trade would oversell it. Types outside {@link AssetType} are never traded. All work happens in
+ * arrays allocated once per optimizer, so solving on every portfolio change is cheap.</p>
+ */
+class RebalancingOptimizer {
+    /** Number of tradable types */
+    private static final int TYPES = AssetType.values().length;
+
+    /** Risk weight of each tradable type */
+    private final double[] riskWeights = new double[TYPES];
+    /** Trade per type from the last solve; positive buys, negative sells */
+    private final double[] trades = new double[TYPES];
+    /** Whether each type is pinned at selling all of it */
+    private final boolean[] pinned = new boolean[TYPES];
+
+    /**
+     * Constructs an optimizer for the {@link AssetType} risk weights.
+     */
+    RebalancingOptimizer() {
+        for (int type = 0; type < TYPES; type++) {
+            riskWeights[type] = AssetType.of(type).riskWeight;
+        }
+    }
+
+    /**
+     * Computes the minimal trades that bring the portfolio's risk score to a target.
+     *
+     * @param values Value held per {@link RiskAggregator} slot: one per {@link AssetType} ordinal,
+     *               then the value of all other types
+     * @param targetScore The risk score to reach, from 0 to 100
+     * @return The trade per {@link AssetType} ordinal, positive to buy and negative to sell,
+     *         or null if no trades reach the target; the array is reused by the next call
+     */
+    double[] solve(double[] values, double targetScore) {
+        double total = 0;
+        double risk = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            total += values[slot];
+            risk += values[slot] * (slot < TYPES ? riskWeights[slot] : AssetType.UNKNOWN_RISK_WEIGHT);
+        }
+        if (total <= 0) return null;
+        double riskChange = targetScore / 100 * total - risk; // required change in sum(riskWeight * value)
+
+        Arrays.fill(pinned, false);
+        for (int iteration = 0; iteration <= 2 * TYPES; iteration++) {
+            // Sums over the free types, with the pinned sales moved to the right-hand sides
+            int free = 0;
+            double weightSum = 0;
+            double weightSquares = 0;
+            double tradeTotal = 0;
+            double tradeRisk = riskChange;
+            for (int type = 0; type < TYPES; type++) {
+                if (pinned[type]) {
+                    tradeTotal += values[type];
+                    tradeRisk += riskWeights[type] * values[type];
+                } else {
+                    free++;
+                    weightSum += riskWeights[type];
+                    weightSquares += riskWeights[type] * riskWeights[type];
+                }
+            }
+            double determinant = free * weightSquares - weightSum * weightSum;
+            if (free == 0 || Math.abs(determinant) < 1e-12) return null; // the free types cannot move the score
+            double alpha = (tradeTotal * weightSquares - weightSum * tradeRisk) / determinant;
+            double beta = (free * tradeRisk - weightSum * tradeTotal) / determinant;
+
+            int oversold = -1;
+            double worstOversale = 1e-9 * total;
+            int released = -1;
+            double worstMultiplier = -1e-9 * total;
+            for (int type = 0; type < TYPES; type++) {
+                double unbounded = alpha + beta * riskWeights[type];
+                if (pinned[type]) {
+                    trades[type] = -values[type];
+                    double multiplier = -values[type] - unbounded; // negative once the type would rather keep some
+                    if (multiplier < worstMultiplier) {
+                        worstMultiplier = multiplier;
+                        released = type;
+                    }
+                } else {
+                    trades[type] = unbounded;
+                    double oversale = -values[type] - unbounded;
+                    if (oversale > worstOversale) {
+                        worstOversale = oversale;
+                        oversold = type;
+                    }
+                }
+            }
+            if (oversold >= 0) {
+                pinned[oversold] = true;
+            } else if (released >= 0) {
+                pinned[released] = false;
+            } else {
+                return trades;
+            }
+        }
+        return null;
+    }
+}
@@ -5,17 +5,29 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.io.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Provides functionality for generating and displaying financial reports and insights.
- * Shows financial goals, connected stock accounts, and allows report export.
+ * Shows the portfolio, financial goals, gains and losses on traded lots, connected stock accounts, and allows report export.
+ * The portfolio section can show the assets held at the end of a past day, rebuilt by {@link AssetHistory}.
  */
 public class ReportAndInsights extends styles {
     /** Text area for displaying the financial report */
     private JTextArea reportArea;
     /** Currently logged in user's username */
     private String currentUser;
+    /** Assets held on the chosen past day, or null while the current assets are shown */
+    private List<Asset> asOfAssets;
+    /** The chosen past day, or null while the current assets are shown */
+    private LocalDate asOfDate;
+    /** Goals read for the report on display, or null until the first report is loaded */
+    private ArrayList<FinancialGoals.Goal> goals;
+    /** Number of report loads started; a load only shows its report if no later one was started */
+    private int reportLoads;
 
     /**
      * Constructs the report and insights window.
@@ -43,7 +55,17 @@ public class ReportAndInsights extends styles {
         JLabel titleLabel = new JLabel("📊 Report & Insights", SwingConstants.CENTER);
         titleLabel.setFont(new Font("Segoe UI Emoji", Font.BOLD, 24));
         titleLabel.setForeground(Color.decode("#3e5879"));
-        mainPanel.add(titleLabel, BorderLayout.NORTH);
+
+        // === Past Day Picker ===
+        JPanel asOfPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        asOfPanel.setBackground(Color.decode("#f5efe7"));
+        new AsOfPicker("Portfolio as of", Color.decode("#f5efe7"), this, this::showAsOf).addTo(asOfPanel);
+
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        headerPanel.setBackground(Color.decode("#f5efe7"));
+        headerPanel.add(titleLabel, BorderLayout.CENTER);
+        headerPanel.add(asOfPanel, BorderLayout.SOUTH);
+        mainPanel.add(headerPanel, BorderLayout.NORTH);
 
         // === Report Area ===
         reportArea = new JTextArea();
@@ -79,15 +101,59 @@ public class ReportAndInsights extends styles {
 
     /**
      * Loads and displays the financial report.
-     * Includes financial goals and connected stock accounts.
+     * Includes the portfolio, financial goals, gains and losses and connected stock accounts.
+     * The files are read in the background, after the writes still queued for them.
      */
     private void loadAndDisplayReport() {
-        StringBuilder sb = new StringBuilder();
+        List<Asset> assets = asOfAssets;
+        LocalDate date = asOfDate;
+        int load = ++reportLoads;
+        new SwingWorker<String, Void>() {
+            /** Goals read for this report */
+            private ArrayList<FinancialGoals.Goal> loadedGoals;
+
+            @Override
+            protected String doInBackground() {
+                StringBuilder sb = new StringBuilder();
+                appendPortfolio(sb, assets, date);
+                loadedGoals = appendGoals(sb);
+                appendGainsAndLosses(sb);
+                appendStockAccounts(sb);
+                return sb.toString();
+            }
 
-        // Load Goals
-        ArrayList<FinancialGoals.Goal> goals = FinancialGoals.loadGoals(null);
+            @Override
+            protected void done() {
+                if (load != reportLoads) return;
+                try {
+                    reportArea.setText(get());
+                    reportArea.setCaretPosition(0);
+                    goals = loadedGoals;
+                } catch (InterruptedException | ExecutionException e) {
+                    reportArea.setText("⚠️ Error loading the report.");
+                    System.err.println("Error loading the report: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Adds the current user's financial goals.
+     *
+     * @param sb The report being built
+     * @return The goals, empty if they could not be read
+     */
+    private ArrayList<FinancialGoals.Goal> appendGoals(StringBuilder sb) {
         sb.append("📌 FINANCIAL GOALS\n");
         sb.append("=======================\n");
+        ArrayList<String> errors = new ArrayList<>();
+        ArrayList<FinancialGoals.Goal> goals;
+        try {
+            goals = FinancialGoals.readGoals(currentUser, errors);
+        } catch (IOException e) {
+            sb.append("⚠️ Error loading goals.\n\n");
+            return new ArrayList<>();
+        }
         if (goals.isEmpty()) {
             sb.append("No goals found.\n\n");
         } else {
@@ -95,10 +161,21 @@ public class ReportAndInsights extends styles {
                 sb.append(g.toString()).append("\n\n");
             }
         }
+        if (!errors.isEmpty()) {
+            sb.append("⚠️ ").append(errors.size()).append(" saved goal(s) could not be read.\n\n");
+        }
+        return goals;
+    }
 
-        // Load Stock Accounts
+    /**
+     * Adds the current user's connected stock accounts.
+     *
+     * @param sb The report being built
+     */
+    private void appendStockAccounts(StringBuilder sb) {
         sb.append("🏦 CONNECTED STOCK ACCOUNTS\n");
         sb.append("===========================\n");
+        PersistenceQueue.flush(); // make sure recently connected accounts are on disk
         try (BufferedReader reader = new BufferedReader(new FileReader("invest_wise/stock_accounts.txt"))) {
             String line;
             boolean found = false;
@@ -116,8 +193,75 @@ public class ReportAndInsights extends styles {
         } catch (Exception ex) {
             sb.append("⚠️ Error loading stock account data.\n\n");
         }
+    }
 
-        reportArea.setText(sb.toString());
+    /**
+     * Adds the value per asset type and the risk score of the current assets, or of the assets
+     * held on the chosen past day. Values are converted to the reporting currency.
+     *
+     * @param sb The report being built
+     * @param pastAssets The assets on the chosen past day, or null for the current assets
+     * @param date The chosen past day, or null for the current assets
+     */
+    private static void appendPortfolio(StringBuilder sb, List<Asset> pastAssets, LocalDate date) {
+        sb.append(date == null ? "💼 PORTFOLIO\n" : "💼 PORTFOLIO AS OF " + date + "\n");
+        sb.append("=======================\n");
+        List<Asset> assets = pastAssets != null ? pastAssets : AssetRepository.getInstance().snapshot();
+        if (assets.isEmpty()) {
+            sb.append("No assets.\n\n");
+            return;
+        }
+        RiskAggregator totals = new RiskAggregator(assets);
+        for (int slot = 0; slot < RiskAggregator.SLOTS; slot++) {
+            if (totals.getCount(slot) == 0) continue;
+            sb.append(RiskAggregator.label(slot)).append(": ").append(totals.getCount(slot)).append(" assets, ")
+                    .append(CurrencyCode.REPORTING.format(totals.getValue(slot))).append("\n");
+        }
+        sb.append("Total: ").append(CurrencyCode.REPORTING.format(totals.getTotalValue()))
+                .append(", risk score: ").append(totals.getRiskScore()).append("/100\n\n");
+    }
+
+    /**
+     * Adds the quantity, cost basis and realized and unrealized gains of every traded holding,
+     * and the cash balance. Unrealized gains use the latest price in the holding's price history.
+     *
+     * @param sb The report being built
+     */
+    private void appendGainsAndLosses(StringBuilder sb) {
+        sb.append("💹 GAINS AND LOSSES\n");
+        sb.append("=======================\n");
+        LotBook book = LotBook.getInstance();
+        double[] prices = book.latestPrices(PriceStore.getInstance());
+        if (prices.length == 0) {
+            sb.append("No trades recorded.\n");
+            sb.append(String.format("Cash balance: %,.2f%n%n", book.cash()));
+            return;
+        }
+        double realized = 0;
+        for (int h = 0; h < prices.length; h++) {
+            sb.append(String.format("%s: %,.4f units, cost basis %,.2f, realized %+,.2f", book.name(h),
+                    book.quantity(h), book.costBasis(h), book.realized(h)));
+            if (!Double.isNaN(prices[h])) {
+                sb.append(String.format(", unrealized %+,.2f", book.unrealized(h, prices[h])));
+            }
+            sb.append("\n");
+            realized += book.realized(h);
+        }
+        sb.append(String.format("Total realized: %+,.2f, total unrealized: %+,.2f%n", realized,
+                book.unrealizedTotal(prices)));
+        sb.append(String.format("Cash balance: %,.2f%n%n", book.cash()));
+    }
+
+    /**
+     * Shows the portfolio on a past day, or the current portfolio again, and reloads the report.
+     *
+     * @param date The past day, or null for the current assets
+     * @param assets The assets on that day, or null for the current assets
+     */
+    private void showAsOf(LocalDate date, List<Asset> assets) {
+        asOfDate = date;
+        asOfAssets = assets;
+        loadAndDisplayReport();
     }
 
     /**
@@ -127,7 +271,10 @@ public class ReportAndInsights extends styles {
      * @param e The action event that triggered the report generation
      */
     private void generateReport(ActionEvent e) {
-        ArrayList<FinancialGoals.Goal> goals = FinancialGoals.loadGoals(currentUser);
+        if (goals == null) {
+            JOptionPane.showMessageDialog(this, "The report is still loading.");
+            return;
+        }
 
         int confirm = JOptionPane.showConfirmDialog(this,
                 "Do you want to export your report as PDF?",
@@ -54,13 +54,12 @@ public class ResetPasswordWindow extends login_signup {
         reset.addActionListener(e -> {
             String user = usernameField.getText();
             String newPass = new String(passwordField.getPassword());
-            if (userExists(user)) {
-                updatePassword(user, newPass);
+            if (!userExists(user)) {
+                JOptionPane.showMessageDialog(this, "User not found.");
+            } else if (updatePassword(user, newPass)) {
                 JOptionPane.showMessageDialog(this, "Password updated.");
                 loginFrame.setVisible(true);
                 dispose();
-            } else {
-                JOptionPane.showMessageDialog(this, "User not found.");
             }
         });
 
@@ -89,36 +88,23 @@ public class ResetPasswordWindow extends login_signup {
 
     /**
      * Updates a user's password in the user database.
+     * Any failure is shown to the user.
      *
      * @param username The username of the user whose password to update
      * @param newPassword The new password to set
+     * @return true if the password was changed
      */
-    void updatePassword(String username, String newPassword) {
-        File inputFile = new File(USERS_FILE);
-        File tempFile = new File("invest_wise/users_temp.txt");
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile));
-             BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))) {
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] creds = line.split(",");
-                if (creds[0].equals(username)) {
-                    creds[1] = newPassword; // update only the password
-                    writer.write(String.join(",", creds));
-                } else {
-                    writer.write(line);
-                }
-                writer.newLine();
+    boolean updatePassword(String username, String newPassword) {
+        try {
+            if (UserStore.getInstance().updatePassword(username, newPassword)) {
+                return true;
             }
-
+            JOptionPane.showMessageDialog(this, "User not found.");
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage());
         } catch (IOException e) {
             JOptionPane.showMessageDialog(this, "Error updating password.");
-            return;
-        }
-
-        if (!inputFile.delete() || !tempFile.renameTo(inputFile)) {
-            JOptionPane.showMessageDialog(this, "Failed to save updated password.");
         }
+        return false;
     }
-}
\ No newline at end of file
+}
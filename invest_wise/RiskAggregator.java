@@ -0,0 +1,216 @@
+package invest_wise;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the per-type portfolio totals behind the risk score and the distribution chart up to date
+ * as assets change. Listens to the {@link AssetRepository} and adjusts a running value per asset
+ * type on every add, edit or remove, so readers work from a handful of sums instead of a pass over
+ * all assets. The assets are only walked once, when the aggregator is created.
+ *
+ * <p>Totals live in fixed arrays with one slot per {@link AssetType} ordinal and a last slot
+ * for any other type found in older data. They are kept in the reporting currency; each asset's
+ * value is converted with the {@link FxRates} factor for its currency.</p>
+ */
+public class RiskAggregator implements AssetRepository.Listener {
+    /** Label of the slot collecting types that are not {@link AssetType} constants */
+    static final String OTHER = "Other";
+    /** Number of slots: the known types plus {@link #OTHER} */
+    static final int SLOTS = AssetType.values().length + 1;
+
+    /** Summed value of the assets per slot */
+    private final double[] values = new double[SLOTS];
+    /** Number of assets per slot */
+    private final int[] counts = new int[SLOTS];
+    /** Risk weight per slot */
+    private final double[] weights = new double[SLOTS];
+    /** Conversion factor into the reporting currency, by {@link CurrencyCode} ordinal */
+    private final double[] toReporting = FxRates.getInstance().factorsTo(CurrencyCode.REPORTING);
+    /** Run after the totals changed */
+    private final Runnable onChange;
+
+    /**
+     * Constructs an aggregator seeded with the repository's current assets.
+     * The caller registers it with the repository.
+     *
+     * @param repository The repository to aggregate
+     * @param onChange Run after each change to the totals
+     */
+    public RiskAggregator(AssetRepository repository, Runnable onChange) {
+        this.onChange = onChange;
+        initWeights();
+        repository.sumByType(values, counts);
+    }
+
+    /**
+     * Constructs an aggregator over a fixed list of assets, such as the assets on a past date.
+     * It is not meant to be registered with a repository.
+     *
+     * @param assets The assets to aggregate
+     */
+    RiskAggregator(List<Asset> assets) {
+        this.onChange = () -> { };
+        initWeights();
+        for (Asset asset : assets) {
+            add(asset);
+        }
+    }
+
+    /**
+     * Fills in the risk weight of every slot.
+     */
+    private void initWeights() {
+        for (int slot = 0; slot < SLOTS - 1; slot++) {
+            weights[slot] = AssetType.of(slot).riskWeight;
+        }
+        weights[SLOTS - 1] = AssetType.UNKNOWN_RISK_WEIGHT;
+    }
+
+    /**
+     * Gets the label of a slot.
+     *
+     * @param slot The slot index
+     * @return The asset type, or {@link #OTHER} for the last slot
+     */
+    static String label(int slot) {
+        return slot < SLOTS - 1 ? AssetType.of(slot).label : OTHER;
+    }
+
+    /**
+     * Calculates the risk score as the value-weighted average risk of the portfolio.
+     *
+     * @return Risk score from 0 to 100
+     */
+    public int getRiskScore() {
+        double totalValue = 0;
+        double totalRisk = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            totalValue += values[slot];
+            totalRisk += weights[slot] * values[slot];
+        }
+        if (totalValue <= 0) return 0;
+        return (int) ((totalRisk / totalValue) * 100);
+    }
+
+    /**
+     * Gets the total value of all assets.
+     *
+     * @return The sum of all asset values
+     */
+    public double getTotalValue() {
+        double totalValue = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            totalValue += values[slot];
+        }
+        return totalValue;
+    }
+
+    /**
+     * Gets the summed value of one slot.
+     *
+     * @param slot The slot index
+     * @return The value of the slot's assets
+     */
+    public double getValue(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Gets the number of assets in one slot.
+     *
+     * @param slot The slot index
+     * @return The number of assets
+     */
+    public int getCount(int slot) {
+        return counts[slot];
+    }
+
+    @Override
+    public void assetAdded(Asset asset) {
+        add(asset);
+        onChange.run();
+    }
+
+    @Override
+    public void assetsAdded(List<Asset> assets) {
+        for (Asset asset : assets) {
+            add(asset);
+        }
+        onChange.run();
+    }
+
+    @Override
+    public void assetUpdated(Asset previous, Asset updated) {
+        subtract(previous);
+        add(updated);
+        onChange.run();
+    }
+
+    @Override
+    public void assetsUpdated(List<Asset> previous, List<Asset> updated) {
+        for (int i = 0; i < updated.size(); i++) {
+            subtract(previous.get(i));
+            add(updated.get(i));
+        }
+        onChange.run();
+    }
+
+    @Override
+    public void assetRemoved(Asset asset) {
+        subtract(asset);
+        onChange.run();
+    }
+
+    @Override
+    public void assetsRemoved(List<Asset> assets) {
+        for (Asset asset : assets) {
+            subtract(asset);
+        }
+        onChange.run();
+    }
+
+    @Override
+    public void assetsCleared() {
+        Arrays.fill(values, 0);
+        Arrays.fill(counts, 0);
+        onChange.run();
+    }
+
+    /**
+     * Gets the slot an asset is counted in.
+     *
+     * @param asset The asset
+     * @return The index of its type, or the last slot for other types
+     */
+    private static int slot(Asset asset) {
+        AssetType type = AssetType.fromLabel(asset.type);
+        return type != null ? type.ordinal() : SLOTS - 1;
+    }
+
+    /**
+     * Adds an asset's value to its slot.
+     *
+     * @param asset The asset
+     */
+    private void add(Asset asset) {
+        int slot = slot(asset);
+        values[slot] += asset.value * toReporting[asset.currency.ordinal()];
+        counts[slot]++;
+    }
+
+    /**
+     * Removes an asset's value from its slot.
+     * An emptied slot is reset to zero, which also discards any rounding left in its sum.
+     *
+     * @param asset The asset
+     */
+    private void subtract(Asset asset) {
+        int slot = slot(asset);
+        if (counts[slot] == 0) return;
+        values[slot] -= asset.value * toReporting[asset.currency.ordinal()];
+        if (--counts[slot] == 0) {
+            values[slot] = 0;
+        }
+    }
+}
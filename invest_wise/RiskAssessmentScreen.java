@@ -2,26 +2,70 @@ package invest_wise;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.*;
-import java.util.ArrayList;
+import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import org.jfree.chart.*;
 import org.jfree.data.general.DefaultPieDataset;
 
 /**
  * Provides risk assessment functionality for the user's financial portfolio.
  * Analyzes assets and generates risk assessment reports with visualizations.
+ * The interface is built once; while the screen is shown, the score, advice, tips and chart data are
+ * updated in place whenever the asset repository reports a change, including changes made by another
+ * process. A hidden screen does not listen to the repository, so it costs nothing while another
+ * screen is in use.
+ * Ticking "As of" shows the same analysis for the assets held at the end of a past day, rebuilt
+ * by {@link AssetHistory}.
  */
 public class RiskAssessmentScreen {
+    /** Confidence levels the user can pick for the Value-at-Risk */
+    private static final double[] CONFIDENCES = {0.95, 0.975, 0.99};
+    /** Labels of {@link #CONFIDENCES} */
+    private static final String[] CONFIDENCE_LABELS = {"95%", "97.5%", "99%"};
+
     /** Main panel containing risk assessment interface */
     private JPanel riskPanel;
     /** Reference to the main Home window */
     private Home home;
     /** Helper class for styling components */
     private styles styleHelper;
-    /** List of user's assets for risk analysis */
-    private ArrayList<Asset> assets;
-    /** File path for storing asset data */
-    private static final String ASSETS_FILE = "invest_wise/assets.txt";
+    /** Repository the current assets are read from */
+    private final AssetRepository repository = AssetRepository.getInstance();
+    /** Running per-type totals of the current assets, registered with the repository while the screen is shown */
+    private RiskAggregator liveAggregator;
+    /** Per-type totals the view is read from: the live totals, or those of the chosen past day */
+    private RiskAggregator aggregator;
+    /** Assets held on the chosen past day, or null while the current assets are shown */
+    private List<Asset> asOfAssets;
+    /** The chosen past day, or null while the current assets are shown */
+    private LocalDate asOfDate;
+    /** Label showing the risk score */
+    private JLabel riskScoreLabel;
+    /** Label showing the advice for the risk score */
+    private JLabel riskAdviceLabel;
+    /** Text area showing the mitigation tips */
+    private JTextArea tipsArea;
+    /** Data behind the asset distribution chart, refilled on each change */
+    private DefaultPieDataset dataset;
+    /** Label showing the historical Value-at-Risk and CVaR */
+    private JLabel valueAtRiskLabel;
+    /** Combo box for choosing the Value-at-Risk confidence level */
+    private JComboBox<String> confidenceBox;
+    /** Whether a Value-at-Risk and volatility calculation is running */
+    private boolean historicalRiskRunning;
+    /** Whether the assets or the confidence changed while a calculation was running */
+    private boolean historicalRiskStale;
+    /** Covariance-based volatility, updated with new price days on each calculation */
+    private final PortfolioVolatility volatility = new PortfolioVolatility();
+    /** Tips naming the holdings that drive the volatility, from the last calculation */
+    private String holdingTips = "";
+    /** Computes the trades behind the rebalancing tips */
+    private final RebalancingOptimizer optimizer = new RebalancingOptimizer();
+    /** Value per aggregator slot, refilled for each rebalancing calculation */
+    private final double[] slotValues = new double[RiskAggregator.SLOTS];
 
     /**
      * Constructs the risk assessment screen with necessary components.
@@ -32,7 +76,6 @@ public class RiskAssessmentScreen {
     public RiskAssessmentScreen(Home home, styles styleHelper) {
         this.home = home;
         this.styleHelper = styleHelper;
-        this.assets = loadAssetsFromFile();
         initializeUI();
     }
 
@@ -42,16 +85,7 @@ public class RiskAssessmentScreen {
      * @return true if assets exist and are not empty, false otherwise
      */
     public static boolean checkAssetsExist() {
-        File file = new File(ASSETS_FILE);
-        if (!file.exists() || file.length() == 0) {
-            return false;
-        }
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            return br.readLine() != null;
-        } catch (IOException e) {
-            return false;
-        }
+        return !AssetRepository.getInstance().isEmpty();
     }
 
     /**
@@ -65,14 +99,119 @@ public class RiskAssessmentScreen {
 
     /**
      * Refreshes the risk assessment data and updates the display.
-     * Reloads assets and recreates the interface.
+     * Called when the screen is shown; it follows asset changes until the user goes back.
      */
     public void refreshData() {
-        this.assets = loadAssetsFromFile();
-        riskPanel.removeAll();
-        createMainInterface();
-        riskPanel.revalidate();
-        riskPanel.repaint();
+        if (liveAggregator == null) {
+            liveAggregator = new RiskAggregator(repository, this::updateView);
+            repository.addListener(liveAggregator);
+        }
+        if (asOfAssets == null) {
+            aggregator = liveAggregator;
+        }
+        updateView();
+    }
+
+    /**
+     * Stops following asset changes once the screen is hidden; {@link #refreshData} starts again
+     * from fresh totals.
+     */
+    private void stopListening() {
+        if (liveAggregator == null) return;
+        repository.removeListener(liveAggregator);
+        liveAggregator = null;
+        if (asOfAssets == null) {
+            aggregator = null;
+        }
+    }
+
+    /**
+     * Updates the score, advice, tips and chart without rebuilding the interface.
+     * Both the score and the chart are read from the running totals of the {@link RiskAggregator}.
+     */
+    private void updateView() {
+        int riskScore = aggregator.getRiskScore();
+        riskScoreLabel.setText("Your Risk Score: " + riskScore + "/100" + (asOfDate == null ? "" : " on " + asOfDate));
+        riskScoreLabel.setForeground(getRiskColor(riskScore));
+        riskAdviceLabel.setText(getRiskAdvice(riskScore));
+        tipsArea.setText(getMitigationTips(riskScore));
+        fillDataset();
+        refreshHistoricalRisk();
+    }
+
+    /**
+     * Recalculates the historical Value-at-Risk and the portfolio volatility in the background,
+     * shows them next to the score and adds the holdings driving the volatility to the tips.
+     * A change arriving during a calculation is picked up by one more calculation once it ends.
+     */
+    private void refreshHistoricalRisk() {
+        if (historicalRiskRunning) {
+            historicalRiskStale = true;
+            return;
+        }
+        historicalRiskRunning = true;
+        historicalRiskStale = false;
+        double[] confidence = {CONFIDENCES[confidenceBox.getSelectedIndex()]};
+        String confidenceLabel = CONFIDENCE_LABELS[confidenceBox.getSelectedIndex()];
+        List<Asset> assets = asOfAssets != null ? asOfAssets : repository.snapshot();
+
+        // Produces the text of the Value-at-Risk label followed by the holding tips
+        new SwingWorker<String[], Void>() {
+            @Override
+            protected String[] doInBackground() {
+                PortfolioRevaluer portfolio = new PortfolioRevaluer(assets, PriceStore.getInstance());
+                volatility.update(portfolio);
+                ValueAtRisk.Result[] oneDay = ValueAtRisk.compute(portfolio, 1, confidence, ValueAtRisk.DEFAULT_LOOKBACK);
+                ValueAtRisk.Result[] tenDay = ValueAtRisk.compute(portfolio, 10, confidence, ValueAtRisk.DEFAULT_LOOKBACK);
+                if (oneDay == null) {
+                    return new String[]{"Value at Risk: add price history files to " + PriceStore.PRICES_DIR
+                            + " to estimate losses.", ""};
+                }
+                CurrencyCode currency = CurrencyCode.REPORTING;
+                String text = "Volatility: " + new DecimalFormat("0.0%").format(volatility.volatility()) + " a year"
+                        + "   |   1-day VaR (" + confidenceLabel + "): " + currency.format(oneDay[0].valueAtRisk)
+                        + ", CVaR: " + currency.format(oneDay[0].expectedShortfall);
+                if (tenDay != null) {
+                    text += "   |   10-day VaR: " + currency.format(tenDay[0].valueAtRisk)
+                            + ", CVaR: " + currency.format(tenDay[0].expectedShortfall);
+                }
+                return new String[]{text, getHoldingTips()};
+            }
+
+            @Override
+            protected void done() {
+                historicalRiskRunning = false;
+                try {
+                    String[] texts = get();
+                    valueAtRiskLabel.setText(texts[0]);
+                    holdingTips = texts[1];
+                } catch (InterruptedException | ExecutionException e) {
+                    valueAtRiskLabel.setText("Value at Risk could not be calculated.");
+                    holdingTips = "";
+                    System.err.println("Error calculating Value at Risk: " + e.getMessage());
+                }
+                if (liveAggregator == null) return; // the screen was left meanwhile
+                tipsArea.setText(getMitigationTips(aggregator.getRiskScore()));
+                if (historicalRiskStale) {
+                    refreshHistoricalRisk();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Shows the analysis of the assets on a past day, or of the current assets again.
+     *
+     * @param date The past day, or null for the current assets
+     * @param assets The assets on that day, or null for the current assets
+     */
+    private void showAsOf(LocalDate date, List<Asset> assets) {
+        asOfDate = date;
+        asOfAssets = assets;
+        aggregator = assets == null ? liveAggregator : new RiskAggregator(assets);
+        if (liveAggregator != null) { // the screen is shown
+            updateView();
+        }
     }
 
     /**
@@ -92,27 +231,41 @@ public class RiskAssessmentScreen {
      */
     private void createMainInterface() {
         // Risk score display
-        int riskScore = calculateRiskScore();
-        JLabel riskScoreLabel = new JLabel("Your Risk Score: " + riskScore + "/100", SwingConstants.CENTER);
+        riskScoreLabel = new JLabel("", SwingConstants.CENTER);
         riskScoreLabel.setFont(new Font("Segoe UI", Font.BOLD, 24));
-        riskScoreLabel.setForeground(getRiskColor(riskScore));
 
         // Risk advice display
-        JLabel riskAdviceLabel = new JLabel(getRiskAdvice(riskScore), SwingConstants.CENTER);
+        riskAdviceLabel = new JLabel("", SwingConstants.CENTER);
         riskAdviceLabel.setFont(new Font("Segoe UI", Font.PLAIN, 16));
         riskAdviceLabel.setForeground(Color.DARK_GRAY);
 
-        // Panel for score and advice
+        // Value-at-Risk display with its confidence level
+        valueAtRiskLabel = new JLabel("Calculating Value at Risk...");
+        valueAtRiskLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        valueAtRiskLabel.setForeground(Color.DARK_GRAY);
+        confidenceBox = new JComboBox<>(CONFIDENCE_LABELS);
+        confidenceBox.addActionListener(e -> refreshHistoricalRisk());
+        JPanel valueAtRiskPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 5));
+        valueAtRiskPanel.setBackground(Color.decode("#f5efe7"));
+        valueAtRiskPanel.add(valueAtRiskLabel);
+        valueAtRiskPanel.add(new JLabel("Confidence:"));
+        valueAtRiskPanel.add(confidenceBox);
+
+        // Past day to analyse instead of the current assets
+        new AsOfPicker("As of", Color.decode("#f5efe7"), riskPanel, this::showAsOf).addTo(valueAtRiskPanel);
+
+        // Panel for score, advice and Value-at-Risk
         JPanel headerPanel = new JPanel(new BorderLayout());
         headerPanel.setBackground(Color.decode("#f5efe7"));
         headerPanel.add(riskScoreLabel, BorderLayout.NORTH);
-        headerPanel.add(riskAdviceLabel, BorderLayout.SOUTH);
+        headerPanel.add(riskAdviceLabel, BorderLayout.CENTER);
+        headerPanel.add(valueAtRiskPanel, BorderLayout.SOUTH);
 
         // Chart panel
         JPanel chartPanel = createRiskChart();
 
         // Tips area
-        JTextArea tipsArea = new JTextArea(getMitigationTips(riskScore));
+        tipsArea = new JTextArea();
         tipsArea.setEditable(false);
         tipsArea.setLineWrap(true);
         tipsArea.setWrapStyleWord(true);
@@ -120,7 +273,10 @@ public class RiskAssessmentScreen {
         // Back button
         JButton backButton = new JButton("Back");
         styleHelper.buttons(backButton); // Now using the instance method
-        backButton.addActionListener(e -> home.showHomeView());
+        backButton.addActionListener(e -> {
+            stopListening();
+            home.showHomeView();
+        });
 
         // Layout
         riskPanel.add(headerPanel, BorderLayout.NORTH);
@@ -129,91 +285,105 @@ public class RiskAssessmentScreen {
         riskPanel.add(backButton, BorderLayout.PAGE_END);
     }
 
-    /**
-     * Loads asset data from the assets file.
-     *
-     * @return ArrayList of assets loaded from the file
-     */
-    private ArrayList<Asset> loadAssetsFromFile() {
-        ArrayList<Asset> loadedAssets = new ArrayList<>();
-        File file = new File(ASSETS_FILE);
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                Asset asset = Asset.fromCSV(line);
-                if (asset != null) {
-                    loadedAssets.add(asset);
-                }
-            }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null,
-                    "Error reading assets file",
-                    "File Error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
-
-        return loadedAssets;
-    }
-
-    /**
-     * Calculates the overall risk score for the portfolio.
-     * Weights different asset types based on their risk levels.
-     *
-     * @return Risk score from 0 to 100
-     */
-    private int calculateRiskScore() {
-        if (assets.isEmpty()) return 0;
-
-        double totalRisk = 0;
-        for (Asset asset : assets) {
-            double assetRisk = switch (asset.type) {
-                case "Crypto" -> 0.9;
-                case "Stocks" -> 0.7;
-                case "Real Estate" -> 0.4;
-                case "Gold" -> 0.3;
-                case "Bonds" -> 0.2;
-                default -> 0.5;
-            };
-            totalRisk += assetRisk * asset.value;
-        }
-        return (int) ((totalRisk / getTotalPortfolioValue()) * 100);
-    }
-
     /**
      * Creates a pie chart showing the distribution of assets.
+     * The chart keeps drawing from the same dataset, which {@link #fillDataset} updates.
      *
      * @return JPanel containing the asset distribution chart
      */
     private JPanel createRiskChart() {
-        DefaultPieDataset dataset = new DefaultPieDataset();
-        for (Asset asset : assets) {
-            dataset.setValue(asset.type, asset.value);
-        }
+        dataset = new DefaultPieDataset();
         JFreeChart chart = ChartFactory.createPieChart(
                 "Asset Distribution", dataset, true, true, false);
         return new ChartPanel(chart);
     }
 
     /**
-     * Generates risk mitigation tips based on the risk score.
+     * Updates the chart dataset with one slice per asset type, summed by the {@link RiskAggregator};
+     * the chart redraws itself. Types without assets are left out of the chart.
+     */
+    private void fillDataset() {
+        for (int slot = 0; slot < RiskAggregator.SLOTS; slot++) {
+            String label = RiskAggregator.label(slot);
+            if (aggregator.getCount(slot) > 0) {
+                dataset.setValue(label, aggregator.getValue(slot));
+            } else if (dataset.getIndex(label) >= 0) {
+                dataset.remove(label);
+            }
+        }
+    }
+
+    /**
+     * Generates risk mitigation tips based on the risk score: the trades per asset type that bring
+     * the score down to the next lower band with the least trading, followed by the holdings that
+     * drive the portfolio's volatility.
      *
      * @param score The calculated risk score
      * @return String containing risk mitigation advice
      */
     private String getMitigationTips(int score) {
-        if (score > 70) return "High Risk! Consider adding bonds/gold (20-30%).";
-        else if (score > 40) return "Moderate Risk. Rebalance with stable assets.";
-        else return "Low Risk. Maintain current allocation.";
+        String tip;
+        if (score > 70) tip = "High Risk! " + getRebalancingTip(70, "bring your score down to 70");
+        else if (score > 40) tip = "Moderate Risk. " + getRebalancingTip(40, "reach a conservative score of 40");
+        else tip = "Low Risk. Maintain current allocation.";
+        return holdingTips.isEmpty() ? tip : tip + "\n" + holdingTips;
     }
 
     /**
-     * Calculates the total value of all assets in the portfolio.
+     * Describes the trades that move the portfolio to a target score with minimal turnover.
      *
-     * @return The sum of all asset values
+     * @param targetScore The score to reach
+     * @param goal What reaching the score means, completing "To ..."
+     * @return A sentence listing the sales and purchases per asset type
      */
-    private double getTotalPortfolioValue() {
-        return assets.stream().mapToDouble(a -> a.value).sum();
+    private String getRebalancingTip(int targetScore, String goal) {
+        for (int slot = 0; slot < RiskAggregator.SLOTS; slot++) {
+            slotValues[slot] = aggregator.getValue(slot);
+        }
+        double[] trades = optimizer.solve(slotValues, targetScore);
+        if (trades == null) return "Rebalance with stable assets such as bonds or gold.";
+
+        double minimumTrade = Math.max(1, aggregator.getTotalValue() * 0.001);
+        StringBuilder sells = new StringBuilder();
+        StringBuilder buys = new StringBuilder();
+        for (int type = 0; type < trades.length; type++) {
+            if (Math.abs(trades[type]) < minimumTrade) continue;
+            StringBuilder list = trades[type] < 0 ? sells : buys;
+            if (list.length() > 0) list.append(", ");
+            list.append(CurrencyCode.REPORTING.format(Math.abs(trades[type]))).append(" of ").append(AssetType.of(type).label);
+        }
+        if (sells.length() == 0) return "Rebalance with stable assets such as bonds or gold.";
+        return "To " + goal + ", sell " + sells + (buys.length() > 0 ? " and buy " + buys : "") + ".";
+    }
+
+    /**
+     * Names the holdings whose share of the portfolio volatility is well above their share of its
+     * value, largest first, from the last {@link PortfolioVolatility} update.
+     *
+     * @return One line per such holding, at most three, or a note that no holding stands out
+     */
+    private String getHoldingTips() {
+        if (volatility.holdings() == 0 || volatility.observations() < 2) return "";
+        Integer[] holdings = new Integer[volatility.holdings()];
+        for (int i = 0; i < holdings.length; i++) {
+            holdings[i] = i;
+        }
+        Arrays.sort(holdings, (a, b) -> Double.compare(volatility.contribution(b), volatility.contribution(a)));
+
+        DecimalFormat percent = new DecimalFormat("0%");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < holdings.length && i < 3; i++) {
+            int holding = holdings[i];
+            double contribution = volatility.contribution(holding);
+            if (contribution < volatility.weight(holding) + 0.05) break;
+            sb.append("• ").append(volatility.name(holding)).append(" is ")
+                    .append(percent.format(volatility.weight(holding))).append(" of your portfolio but drives ")
+                    .append(percent.format(contribution)).append(" of its volatility; trimming it lowers risk the most.\n");
+        }
+        if (sb.length() == 0) {
+            return "No single holding drives an outsized share of your portfolio's volatility.";
+        }
+        return sb.toString().trim();
     }
 
     /**
@@ -0,0 +1,160 @@
+package invest_wise;
+
+import java.util.Arrays;
+
+/**
+ * Covariance matrix of several return series over a rolling window of observations.
+ * Means and co-moments are updated with Welford's method as each observation arrives; once the
+ * window is full the oldest observation is taken out by running the same update in reverse, so
+ * every step costs one pass over the matrix whatever the window length.
+ *
+ * <p>The matrix is symmetric and kept as a packed upper triangle in a single {@code double[]}:
+ * row i holds columns i to n - 1, so the entry for i &lt;= j lives at
+ * {@code i * n - i * (i - 1) / 2 + (j - i)}.</p>
+ */
+class RollingCovariance {
+    /** Number of series */
+    private final int size;
+    /** Maximum number of observations kept */
+    private final int window;
+    /** Observations in the window, one row of {@link #size} returns each, used as a ring */
+    private final double[] observations;
+    /** Index of the oldest observation in the ring */
+    private int oldest;
+    /** Number of observations in the window */
+    private int count;
+    /** Mean of each series over the window */
+    private final double[] means;
+    /** Sums of products of deviations from the means, packed upper triangle */
+    private final double[] comoments;
+    /** Scratch row holding each series' deviation from its mean before an update */
+    private final double[] deviations;
+
+    /**
+     * Constructs an empty covariance matrix.
+     *
+     * @param size Number of series
+     * @param window Maximum number of observations kept
+     */
+    RollingCovariance(int size, int window) {
+        this.size = size;
+        this.window = window;
+        this.observations = new double[size * window];
+        this.means = new double[size];
+        this.comoments = new double[size * (size + 1) / 2];
+        this.deviations = new double[size];
+    }
+
+    /**
+     * Gets the number of series.
+     *
+     * @return The matrix dimension
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of observations in the window.
+     *
+     * @return The observation count
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Adds an observation, dropping the oldest one if the window is full.
+     *
+     * @param returns One return per series
+     */
+    void add(double[] returns) {
+        int row;
+        if (count == window) {
+            row = oldest;
+            remove(row);
+            oldest = (oldest + 1) % window;
+        } else {
+            row = (oldest + count) % window;
+        }
+        System.arraycopy(returns, 0, observations, row * size, size);
+
+        count++;
+        for (int i = 0; i < size; i++) {
+            deviations[i] = returns[i] - means[i];
+            means[i] += deviations[i] / count;
+        }
+        int entry = 0;
+        for (int i = 0; i < size; i++) {
+            double deviation = deviations[i];
+            for (int j = i; j < size; j++) {
+                comoments[entry++] += deviation * (returns[j] - means[j]);
+            }
+        }
+    }
+
+    /**
+     * Takes an observation out of the means and co-moments, the reverse of the update in {@link #add}.
+     *
+     * @param row Ring index of the observation
+     */
+    private void remove(int row) {
+        int base = row * size;
+        count--;
+        if (count == 0) {
+            Arrays.fill(means, 0);
+            Arrays.fill(comoments, 0);
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            double value = observations[base + i];
+            deviations[i] = value - means[i]; // deviation from the mean including the observation
+            means[i] -= deviations[i] / count;
+        }
+        int entry = 0;
+        for (int i = 0; i < size; i++) {
+            double deviation = observations[base + i] - means[i];
+            for (int j = i; j < size; j++) {
+                comoments[entry++] -= deviation * deviations[j];
+            }
+        }
+    }
+
+    /**
+     * Gets the sample covariance of two series.
+     *
+     * @param i The first series
+     * @param j The second series
+     * @return The covariance over the window, 0 with fewer than two observations
+     */
+    double covariance(int i, int j) {
+        if (count < 2) return 0;
+        if (i > j) {
+            int swap = i;
+            i = j;
+            j = swap;
+        }
+        return comoments[i * size - i * (i - 1) / 2 + (j - i)] / (count - 1);
+    }
+
+    /**
+     * Multiplies the covariance matrix by a vector.
+     *
+     * @param weights The vector, one entry per series
+     * @param out Receives the product, one entry per series
+     */
+    void multiply(double[] weights, double[] out) {
+        Arrays.fill(out, 0);
+        if (count < 2) return;
+        double scale = 1.0 / (count - 1);
+        int entry = 0;
+        for (int i = 0; i < size; i++) {
+            out[i] += comoments[entry++] * scale * weights[i];
+            for (int j = i + 1; j < size; j++) {
+                double covariance = comoments[entry++] * scale;
+                out[i] += covariance * weights[j];
+                out[j] += covariance * weights[i];
+            }
+        }
+    }
+}
@@ -98,11 +98,8 @@ public class SignUpWindow extends login_signup {
                 return;
             }
 
-            // Check if user exists
-            if (userExists(user)) {
-                JOptionPane.showMessageDialog(this, "User already exists.");
-            } else {
-                addUser(user, pass, fullName, email, phone, balance);
+            // Register the user; fails if the username is already taken
+            if (addUser(user, pass, fullName, email, phone, balance)) {
                 JOptionPane.showMessageDialog(this, "User registered successfully.");
                 new Home();
                 dispose();
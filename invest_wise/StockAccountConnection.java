@@ -3,7 +3,6 @@ package invest_wise;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.io.*;
 
 /**
  * Provides functionality for connecting stock trading accounts to the InvestWise application.
@@ -110,21 +109,15 @@ public class StockAccountConnection extends styles {
             return;
         }
 
-        // Save account info
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter("invest_wise/stock_accounts.txt", true));
-            writer.write(currentUser + "," + platform + "," + email + "," + password);
-            writer.newLine();
-            writer.close();
+        // Save account info in the background
+        PersistenceQueue.appendLine("invest_wise/stock_accounts.txt",
+                currentUser + "," + platform + "," + email + "," + password,
+                "Failed to save account information.");
 
-            JOptionPane.showMessageDialog(this, "✅ Successfully connected to " + platform + "!");
+        JOptionPane.showMessageDialog(this, "✅ Successfully connected to " + platform + "!");
 
-            // Open mock dashboard
-            new PortfolioDashboard(this, platform);
-            setVisible(false);
-
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(this, "Failed to save account information.");
-        }
+        // Open mock dashboard
+        new PortfolioDashboard(this, platform);
+        setVisible(false);
     }
 }
@@ -0,0 +1,243 @@
+package invest_wise;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * In-memory index of the users file keyed by username.
+ * The file is read once when the store is first used; afterwards logins and username
+ * checks are hash lookups, and new users are appended to the file and the index together.
+ * All operations are synchronized, so two sign-ups for the same username cannot both succeed.
+ *
+ * <p>Every user occupies a fixed-size slot in the file: the comma-separated record padded
+ * with spaces and terminated by a newline. A user's slot never moves, so a password reset
+ * rewrites just that slot with a positional write instead of copying the whole file.
+ * Slot writes run on the {@link PersistenceQueue}; the index is updated right away.</p>
+ */
+class UserStore {
+    /** Size in bytes of one user slot, including the trailing newline */
+    static final int SLOT_SIZE = 256;
+
+    /** The single shared store, created on first use */
+    private static UserStore instance;
+
+    /** User records keyed by username */
+    private final HashMap<String, UserRecord> users = new HashMap<>();
+    /** Open channel to the users file, used for positional reads and writes */
+    private final FileChannel channel;
+    /** Number of slots in the users file */
+    private int slotCount;
+
+    /**
+     * A user's fields together with the slot holding them in the users file.
+     */
+    private static class UserRecord {
+        /** The user's fields, starting with the username and password */
+        final String[] fields;
+        /** Index of the slot holding this user in the users file */
+        final int slot;
+
+        /**
+         * Constructs a record for the given fields and slot.
+         *
+         * @param fields The user's fields
+         * @param slot The slot index in the users file
+         */
+        UserRecord(String[] fields, int slot) {
+            this.fields = fields;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Creates the store by indexing every slot of the users file.
+     * A users file written before slots were introduced is converted once.
+     *
+     * @throws IOException If the users file cannot be read or converted
+     */
+    private UserStore() throws IOException {
+        Path file = Paths.get(login_signup.USERS_FILE);
+        if (Files.exists(file) && !isSlotted(file)) {
+            convertToSlots(file);
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        slotCount = (int) (channel.size() / SLOT_SIZE);
+
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE);
+        for (int slot = 0; slot < slotCount; slot++) {
+            buffer.clear();
+            channel.read(buffer, (long) slot * SLOT_SIZE);
+            String line = new String(buffer.array(), 0, SLOT_SIZE - 1, StandardCharsets.UTF_8).stripTrailing();
+            String[] creds = line.split(",");
+            if (!creds[0].isEmpty()) {
+                users.putIfAbsent(creds[0], new UserRecord(creds, slot));
+            }
+        }
+    }
+
+    /**
+     * Gets the shared user store, reading the users file on the first call.
+     *
+     * @return The shared user store
+     * @throws IOException If the users file cannot be read
+     */
+    static synchronized UserStore getInstance() throws IOException {
+        if (instance == null) {
+            instance = new UserStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Checks if a username is already registered.
+     *
+     * @param username The username to check
+     * @return true if the username exists, false otherwise
+     */
+    synchronized boolean exists(String username) {
+        return users.containsKey(username);
+    }
+
+    /**
+     * Checks a username and password against the stored credentials.
+     *
+     * @param username The username to validate
+     * @param password The password to validate
+     * @return true if the user exists and the password matches, false otherwise
+     */
+    synchronized boolean authenticate(String username, String password) {
+        UserRecord record = users.get(username);
+        return record != null && record.fields.length >= 2 && record.fields[1].equals(password);
+    }
+
+    /**
+     * Registers a new user, writing the record to a new slot at the end of the users file.
+     *
+     * @param fields The user's fields, starting with the username
+     * @return true if the user was added, false if the username is already taken
+     * @throws IllegalArgumentException If the record does not fit in a slot
+     */
+    synchronized boolean add(String... fields) {
+        if (users.containsKey(fields[0])) {
+            return false;
+        }
+        int slot = slotCount;
+        writeSlot(slot, fields, "Error writing to file.");
+        slotCount++;
+        users.put(fields[0], new UserRecord(fields, slot));
+        return true;
+    }
+
+    /**
+     * Changes a user's password by rewriting only that user's slot.
+     *
+     * @param username The username of the user whose password to update
+     * @param newPassword The new password to set
+     * @return true if the password was changed, false if the user does not exist
+     * @throws IllegalArgumentException If the updated record does not fit in its slot
+     */
+    synchronized boolean updatePassword(String username, String newPassword) {
+        UserRecord record = users.get(username);
+        if (record == null || record.fields.length < 2) {
+            return false;
+        }
+        String[] updated = record.fields.clone();
+        updated[1] = newPassword; // update only the password
+
+        writeSlot(record.slot, updated, "Error updating password.");
+        users.put(username, new UserRecord(updated, record.slot));
+        return true;
+    }
+
+    /**
+     * Queues a write of a record into the given slot of the users file.
+     * A later write to the same slot replaces one that has not run yet.
+     *
+     * @param slot The slot index
+     * @param fields The user's fields
+     * @param failureMessage Message shown to the user if the write fails
+     * @throws IllegalArgumentException If the record does not fit in a slot
+     */
+    private void writeSlot(int slot, String[] fields, String failureMessage) {
+        byte[] bytes = encodeSlot(fields);
+        PersistenceQueue.replace(login_signup.USERS_FILE + "#" + slot, () -> {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long position = (long) slot * SLOT_SIZE;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }, failureMessage);
+    }
+
+    /**
+     * Encodes a record as a space-padded, newline-terminated slot.
+     *
+     * @param fields The user's fields
+     * @return The slot bytes
+     * @throws IllegalArgumentException If the record does not fit in a slot
+     */
+    private static byte[] encodeSlot(String[] fields) {
+        byte[] record = String.join(",", fields).getBytes(StandardCharsets.UTF_8);
+        if (record.length > SLOT_SIZE - 1) {
+            throw new IllegalArgumentException("User details are too long.");
+        }
+        byte[] slot = new byte[SLOT_SIZE];
+        Arrays.fill(slot, (byte) ' ');
+        System.arraycopy(record, 0, slot, 0, record.length);
+        slot[SLOT_SIZE - 1] = '\n';
+        return slot;
+    }
+
+    /**
+     * Checks whether the users file already uses fixed-size slots.
+     *
+     * @param file The users file
+     * @return true if every line fills exactly one slot
+     * @throws IOException If the file cannot be read
+     */
+    private static boolean isSlotted(Path file) throws IOException {
+        if (Files.size(file) % SLOT_SIZE != 0) return false;
+
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.getBytes(StandardCharsets.UTF_8).length != SLOT_SIZE - 1) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rewrites a line-per-user file into fixed-size slots, replacing it atomically.
+     *
+     * @param file The users file
+     * @throws IOException If the file cannot be converted
+     */
+    private static void convertToSlots(Path file) throws IOException {
+        ArrayList<String[]> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    records.add(line.stripTrailing().split(","));
+                }
+            }
+        }
+
+        Path tempFile = Paths.get(login_signup.USERS_FILE + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+            for (String[] fields : records) {
+                out.write(encodeSlot(fields));
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,268 @@
+package invest_wise;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Value-at-Risk and expected shortfall (CVaR) by historical simulation.
+ * Each trading day of a lookback window is replayed against today's holdings: every holding is
+ * moved by the return its own price history shows over the horizon ending that day, and the moves
+ * are summed into one profit or loss scenario. VaR at a confidence level is the loss that only the
+ * worst {@code 1 - confidence} of scenarios exceed; CVaR is the average loss of those scenarios.
+ *
+ * <p>Only holdings with a price history carry risk here. Trading days are taken as weekdays, and a
+ * holding counts as unchanged on days before its history starts. Scenarios are accumulated into a
+ * primitive array per holding range, in parallel for large portfolios, and quantiles are found by
+ * selection rather than by sorting all scenarios.</p>
+ */
+class ValueAtRisk {
+    /** Trading days of history replayed by default, about three years */
+    static final int DEFAULT_LOOKBACK = 750;
+    /** Number of priced holdings from which scenarios are built in parallel */
+    private static final int PARALLEL_THRESHOLD = 256;
+    /** Holdings handled by one parallel task without splitting further */
+    private static final int HOLDINGS_PER_TASK = 64;
+
+    /**
+     * The risk of the portfolio over one horizon at one confidence level.
+     */
+    static class Result {
+        /** Horizon in trading days */
+        final int horizon;
+        /** Confidence level, for example 0.95 */
+        final double confidence;
+        /** Loss not exceeded at the confidence level */
+        final double valueAtRisk;
+        /** Average loss beyond the VaR */
+        final double expectedShortfall;
+        /** Number of scenarios replayed */
+        final int scenarios;
+
+        /**
+         * Constructs a VaR result.
+         *
+         * @param horizon Horizon in trading days
+         * @param confidence Confidence level
+         * @param valueAtRisk Loss not exceeded at the confidence level
+         * @param expectedShortfall Average loss beyond the VaR
+         * @param scenarios Number of scenarios replayed
+         */
+        Result(int horizon, double confidence, double valueAtRisk, double expectedShortfall, int scenarios) {
+            this.horizon = horizon;
+            this.confidence = confidence;
+            this.valueAtRisk = valueAtRisk;
+            this.expectedShortfall = expectedShortfall;
+            this.scenarios = scenarios;
+        }
+    }
+
+    /**
+     * Builds the scenarios of a range of holdings, splitting the range for large portfolios.
+     */
+    private static class ScenarioTask extends RecursiveTask<double[]> {
+        /** The portfolio */
+        private final PortfolioRevaluer portfolio;
+        /** Index of the first holding */
+        private final int from;
+        /** Index just past the last holding */
+        private final int to;
+        /** Trading days of the window, as epoch days */
+        private final int[] grid;
+        /** Horizon in trading days */
+        private final int horizon;
+
+        /**
+         * Constructs a task for a range of holdings.
+         *
+         * @param portfolio The portfolio
+         * @param from Index of the first holding
+         * @param to Index just past the last holding
+         * @param grid Trading days of the window, as epoch days
+         * @param horizon Horizon in trading days
+         */
+        ScenarioTask(PortfolioRevaluer portfolio, int from, int to, int[] grid, int horizon) {
+            this.portfolio = portfolio;
+            this.from = from;
+            this.to = to;
+            this.grid = grid;
+            this.horizon = horizon;
+        }
+
+        /**
+         * Builds the range's scenarios.
+         *
+         * @return Profit or loss of the range in each scenario
+         */
+        @Override
+        protected double[] compute() {
+            if (to - from <= HOLDINGS_PER_TASK) {
+                return scenarios(portfolio, from, to, grid, horizon);
+            }
+            int middle = (from + to) >>> 1;
+            ScenarioTask left = new ScenarioTask(portfolio, from, middle, grid, horizon);
+            left.fork();
+            double[] sums = new ScenarioTask(portfolio, middle, to, grid, horizon).compute();
+            double[] leftSums = left.join();
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += leftSums[i];
+            }
+            return sums;
+        }
+    }
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private ValueAtRisk() {
+    }
+
+    /**
+     * Computes VaR and CVaR of a portfolio over one horizon at several confidence levels.
+     * Horizons longer than a day use overlapping windows of that many trading days.
+     *
+     * @param portfolio The holdings and their price histories
+     * @param horizon Horizon in trading days, for example 1 or 10
+     * @param confidences Confidence levels between 0 and 1
+     * @param lookback Number of scenarios to replay, fewer if the price histories are shorter
+     * @return One result per confidence level, or null if the price histories span no full horizon
+     */
+    static Result[] compute(PortfolioRevaluer portfolio, int horizon, double[] confidences, int lookback) {
+        int holdings = portfolio.pricedHoldings();
+        if (holdings == 0) return null;
+
+        int firstDay = Integer.MAX_VALUE;
+        int lastDay = Integer.MIN_VALUE;
+        for (int h = 0; h < holdings; h++) {
+            firstDay = Math.min(firstDay, portfolio.series(h).firstDay());
+            lastDay = Math.max(lastDay, portfolio.series(h).lastDay());
+        }
+        int[] grid = tradingDays(firstDay, lastDay, lookback + horizon);
+        if (grid.length <= horizon) return null;
+        double[] profits = holdings >= PARALLEL_THRESHOLD
+                ? ForkJoinPool.commonPool().invoke(new ScenarioTask(portfolio, 0, holdings, grid, horizon))
+                : scenarios(portfolio, 0, holdings, grid, horizon);
+
+        double[] losses = profits; // reused in place: losses are negated profits
+        for (int i = 0; i < losses.length; i++) {
+            losses[i] = -losses[i];
+        }
+        Result[] results = new Result[confidences.length];
+        for (int c = 0; c < confidences.length; c++) {
+            double confidence = confidences[c];
+            int k = (int) Math.min(losses.length - 1, Math.max(0, Math.ceil(confidence * losses.length) - 1));
+            double valueAtRisk = select(losses, k);
+            double tail = 0;
+            for (int i = k; i < losses.length; i++) {
+                tail += losses[i]; // selection left every larger loss after position k
+            }
+            results[c] = new Result(horizon, confidence, valueAtRisk, tail / (losses.length - k), losses.length);
+        }
+        return results;
+    }
+
+    /**
+     * Sums the profit or loss of a range of holdings in each scenario.
+     * Each holding's prices are expanded to every calendar day of the window once and then read
+     * at the trading days, so no price is searched for.
+     *
+     * @param portfolio The portfolio
+     * @param from Index of the first holding
+     * @param to Index just past the last holding
+     * @param grid Trading days of the window, as epoch days
+     * @param horizon Horizon in trading days
+     * @return Profit or loss of the range in each of the {@code grid.length - horizon} scenarios
+     */
+    private static double[] scenarios(PortfolioRevaluer portfolio, int from, int to, int[] grid, int horizon) {
+        int scenarios = grid.length - horizon;
+        double[] profits = new double[scenarios];
+        double[] calendarPrices = new double[grid[grid.length - 1] - grid[0] + 1];
+        double[] gridPrices = new double[grid.length];
+        for (int h = from; h < to; h++) {
+            portfolio.series(h).fill(grid[0], calendarPrices);
+            for (int i = 0; i < grid.length; i++) {
+                gridPrices[i] = calendarPrices[grid[i] - grid[0]];
+            }
+            double position = portfolio.currentValue(h);
+            for (int i = 0; i < scenarios; i++) {
+                profits[i] += position * (gridPrices[i + horizon] / gridPrices[i] - 1);
+            }
+        }
+        return profits;
+    }
+
+    /**
+     * Lists the last weekdays of a range of days.
+     *
+     * @param firstDay The first day of the range, as an epoch day
+     * @param lastDay The last day of the range, as an epoch day
+     * @param count Maximum number of weekdays to list
+     * @return Up to count weekdays as ascending epoch days, ending with the last weekday of the range
+     */
+    static int[] tradingDays(int firstDay, int lastDay, int count) {
+        int[] days = new int[count];
+        int i = count;
+        for (int day = lastDay; i > 0 && day >= firstDay; day--) {
+            DayOfWeek weekday = LocalDate.ofEpochDay(day).getDayOfWeek();
+            if (weekday != DayOfWeek.SATURDAY && weekday != DayOfWeek.SUNDAY) {
+                days[--i] = day;
+            }
+        }
+        return Arrays.copyOfRange(days, i, count);
+    }
+
+    /**
+     * Finds the k-th smallest value by quickselect, partially ordering the array in place:
+     * afterwards no value before position k is larger and no value after it is smaller.
+     *
+     * @param values The values, reordered
+     * @param k The zero-based rank to find
+     * @return The k-th smallest value
+     */
+    static double select(double[] values, int k) {
+        int left = 0;
+        int right = values.length - 1;
+        while (left < right) {
+            int middle = (left + right) >>> 1; // median of three keeps sorted input fast
+            if (values[middle] < values[left]) swap(values, middle, left);
+            if (values[right] < values[left]) swap(values, right, left);
+            if (values[right] < values[middle]) swap(values, right, middle);
+            double pivot = values[middle];
+
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if (i <= j) {
+                    swap(values, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break; // values between j and i all equal the pivot
+            }
+        }
+        return values[k];
+    }
+
+    /**
+     * Swaps two values of an array.
+     *
+     * @param values The array
+     * @param i The first position
+     * @param j The second position
+     */
+    private static void swap(double[] values, int i, int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+}
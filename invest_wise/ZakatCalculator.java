@@ -8,16 +8,24 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.io.FileOutputStream;
+import java.time.LocalDate;
 
 /**
  * Provides functionality for calculating Zakat (Islamic almsgiving) based on various assets.
- * Allows users to input different types of assets and generates Zakat calculations.
+ * Allows users to input different types of assets and generates Zakat calculations,
+ * or to calculate it from the stored portfolio with the {@link ZakatEngine}.
  */
 public class ZakatCalculator extends styles {
     /** Text area for displaying calculation results */
     private JTextArea resultArea;
     /** Input fields for different types of assets */
     private JTextField goldField, cashField, stockField, realEstateField, otherField;
+    /** Shared store of the user's assets */
+    private final AssetRepository repository = AssetRepository.getInstance();
+    /** Recalculates the portfolio Zakat whenever the assets change */
+    private final AssetRepository.Listener assetListener = AssetRepository.Listener.onAnyChange(this::refreshPortfolioZakat);
+    /** Whether the summary shows the portfolio calculation rather than the text fields */
+    private boolean showingPortfolio;
 
     /**
      * Constructs the Zakat calculator window with input fields and calculation buttons.
@@ -57,12 +65,14 @@ public class ZakatCalculator extends styles {
 
         // Buttons
         JButton calcButton = styledButton("Calculate Zakat");
+        JButton portfolioButton = styledButton("From My Portfolio");
         JButton pdfButton = styledButton("Download PDF");
         JButton backButton = styledButton("Back");
 
         JPanel buttonPanel = new JPanel(new FlowLayout());
         buttonPanel.setBackground(Color.decode("#f5efe7"));
         buttonPanel.add(calcButton);
+        buttonPanel.add(portfolioButton);
         buttonPanel.add(pdfButton);
         buttonPanel.add(backButton);
 
@@ -86,11 +96,14 @@ public class ZakatCalculator extends styles {
 
         // Actions
         calcButton.addActionListener(this::calculateZakat);
+        portfolioButton.addActionListener(e -> calculatePortfolioZakat());
         pdfButton.addActionListener(this::generatePDFReport);
         backButton.addActionListener(e -> {
+            repository.removeListener(assetListener);
             previousFrame.setVisible(true);
             dispose();
         });
+        repository.addListener(assetListener);
 
         setVisible(true);
     }
@@ -102,6 +115,7 @@ public class ZakatCalculator extends styles {
      * @param e The action event that triggered the calculation
      */
     private void calculateZakat(ActionEvent e) {
+        showingPortfolio = false;
         try {
             double gold = parseInput(goldField.getText());
             double cash = parseInput(cashField.getText());
@@ -129,6 +143,52 @@ public class ZakatCalculator extends styles {
         }
     }
 
+    /**
+     * Calculates Zakat from the stored assets and keeps the summary up to date as they change.
+     */
+    private void calculatePortfolioZakat() {
+        showingPortfolio = true;
+        refreshPortfolioZakat();
+    }
+
+    /**
+     * Shows the Zakat position of the stored portfolio if the summary is showing it:
+     * the zakatable wealth held for a Hijri year per type, the nisab and the Zakat due,
+     * followed by the wealth still within its first year and the exempt wealth.
+     */
+    private void refreshPortfolioZakat() {
+        if (!showingPortfolio) return;
+        LocalDate today = LocalDate.now();
+        int day = (int) today.toEpochDay();
+        ZakatEngine.Result result = ZakatEngine.compute(repository.snapshot(), HoldingHistory.getInstance(),
+                day, ZakatEngine.nisabOn(day), FxRates.getInstance().factorsTo(ZakatEngine.CURRENCY));
+
+        StringBuilder sb = new StringBuilder();
+        for (int slot = 0; slot < RiskAggregator.SLOTS; slot++) {
+            if (result.dueByType[slot] > 0) {
+                sb.append(String.format("🔹 %s: EGP %.2f%n", RiskAggregator.label(slot), result.dueByType[slot]));
+            }
+        }
+        sb.append("===============================\n");
+        sb.append(String.format("✅ Held One Hijri Year: EGP %.2f%n", result.dueWealth));
+        if (Double.isNaN(result.nisab)) {
+            sb.append("⚠ Nisab unknown: store the gold price per gram in ")
+                    .append(PriceStore.priceFile(ZakatEngine.GOLD_PRICE_SERIES).getPath()).append("\n");
+        } else {
+            sb.append(String.format("📏 Nisab (%.0f g of gold): EGP %.2f, %s%n", ZakatEngine.NISAB_GOLD_GRAMS,
+                    result.nisab, result.nisabReached() ? "reached" : "not reached"));
+        }
+        sb.append(String.format("💰 Zakat Due (2.5%%): EGP %.2f%n", result.zakatDue()));
+        if (result.pendingWealth > 0) {
+            sb.append(String.format("⏳ Held less than a Hijri year: EGP %.2f (next due %s)%n",
+                    result.pendingWealth, LocalDate.ofEpochDay(result.nextHawlDay)));
+        }
+        if (result.exemptWealth > 0) {
+            sb.append(String.format("🏠 Not zakatable (real estate for use or rent): EGP %.2f%n", result.exemptWealth));
+        }
+        resultArea.setText(sb.toString());
+    }
+
     /**
      * Generates a PDF report of the Zakat calculation.
      * Creates a formatted document with the calculation results.
@@ -0,0 +1,141 @@
+package invest_wise;
+
+import java.util.List;
+
+/**
+ * Computes Zakat straight from the stored assets. An asset counts once it has been held for a full
+ * hawl, one Hijri year from the day recorded in the {@link HoldingHistory}; assets held for less are
+ * reported separately with the day the next one becomes due. Types that are not zakatable, such as
+ * real estate held for use or rent, are left out. Zakat of 2.5% is due when the wealth held for a
+ * hawl reaches the nisab, the value of 85 grams of gold. Asset values are converted into the currency
+ * the gold price is quoted in with one {@link FxRates} factor array, read per asset by currency ordinal.
+ *
+ * <p>The gold price per gram is read from the local price history named {@link #GOLD_PRICE_SERIES}
+ * in the {@link PriceStore}. Each asset costs one map lookup and one cached calendar lookup, so the
+ * result can be recomputed on every change, and one call per portfolio serves batches of users.</p>
+ */
+class ZakatEngine {
+    /** Share of the zakatable wealth that is due */
+    static final double RATE = 0.025;
+    /** Grams of gold that make up the nisab */
+    static final double NISAB_GOLD_GRAMS = 85;
+    /** Name of the price history holding the gold price per gram */
+    static final String GOLD_PRICE_SERIES = "gold_gram";
+    /** Currency of the gold price, and so of the nisab and every result */
+    static final CurrencyCode CURRENCY = CurrencyCode.EGP;
+
+    /**
+     * The Zakat position of one portfolio on one day.
+     */
+    static class Result {
+        /** Zakatable value held for a full hawl, per {@link RiskAggregator} slot */
+        final double[] dueByType;
+        /** Zakatable value held for a full hawl */
+        final double dueWealth;
+        /** Zakatable value whose hawl is not yet complete */
+        final double pendingWealth;
+        /** Day the next pending asset completes its hawl, or {@link HoldingHistory#UNKNOWN} */
+        final int nextHawlDay;
+        /** Value of assets of types that are not zakatable */
+        final double exemptWealth;
+        /** The nisab, or NaN if no gold price is stored */
+        final double nisab;
+
+        /**
+         * Constructs a Zakat result.
+         *
+         * @param dueByType Zakatable value held for a full hawl, per slot
+         * @param dueWealth Zakatable value held for a full hawl
+         * @param pendingWealth Zakatable value whose hawl is not yet complete
+         * @param nextHawlDay Day the next pending asset completes its hawl
+         * @param exemptWealth Value of assets of types that are not zakatable
+         * @param nisab The nisab, or NaN if unknown
+         */
+        Result(double[] dueByType, double dueWealth, double pendingWealth, int nextHawlDay,
+               double exemptWealth, double nisab) {
+            this.dueByType = dueByType;
+            this.dueWealth = dueWealth;
+            this.pendingWealth = pendingWealth;
+            this.nextHawlDay = nextHawlDay;
+            this.exemptWealth = exemptWealth;
+            this.nisab = nisab;
+        }
+
+        /**
+         * Checks whether the wealth held for a hawl reaches the nisab.
+         * Without a gold price the nisab is unknown and taken as reached.
+         *
+         * @return true if Zakat is due
+         */
+        boolean nisabReached() {
+            return Double.isNaN(nisab) || dueWealth >= nisab;
+        }
+
+        /**
+         * Gets the Zakat due.
+         *
+         * @return 2.5% of the wealth held for a hawl, or 0 below the nisab
+         */
+        double zakatDue() {
+            return nisabReached() ? dueWealth * RATE : 0;
+        }
+    }
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private ZakatEngine() {
+    }
+
+    /**
+     * Gets the nisab on a day from the stored gold price.
+     *
+     * @param day The day as an epoch day
+     * @return 85 grams of gold at that day's price, or NaN if no gold price is stored
+     */
+    static double nisabOn(int day) {
+        PriceSeries gold = PriceStore.getInstance().get(GOLD_PRICE_SERIES);
+        return gold == null ? Double.NaN : NISAB_GOLD_GRAMS * gold.priceOn(day);
+    }
+
+    /**
+     * Computes the Zakat position of a portfolio.
+     *
+     * @param assets The portfolio's assets
+     * @param history The day each asset was first held
+     * @param today The day to compute for, as an epoch day
+     * @param nisab The nisab for that day, NaN if unknown
+     * @param factors Conversion factor into the currency of the nisab, by {@link CurrencyCode} ordinal
+     * @return The zakatable wealth, what is still within its hawl and the nisab, in that currency
+     */
+    static Result compute(List<Asset> assets, HoldingHistory history, int today, double nisab,
+                          double[] factors) {
+        double[] dueByType = new double[RiskAggregator.SLOTS];
+        double pending = 0;
+        double exempt = 0;
+        int nextHawlDay = HoldingHistory.UNKNOWN;
+
+        for (Asset asset : assets) {
+            double value = asset.value * factors[asset.currency.ordinal()];
+            AssetType type = AssetType.fromLabel(asset.type);
+            if (type != null && !type.zakatable) {
+                exempt += value;
+                continue;
+            }
+            int acquired = history.acquiredDay(asset.id);
+            int hawlEnd = acquired == HoldingHistory.UNKNOWN ? today : HawlCalendar.hawlEnd(acquired);
+            if (hawlEnd > today) {
+                pending += value;
+                if (nextHawlDay == HoldingHistory.UNKNOWN || hawlEnd < nextHawlDay) nextHawlDay = hawlEnd;
+                continue;
+            }
+            dueByType[type != null ? type.ordinal() : RiskAggregator.SLOTS - 1] += value;
+        }
+
+        double due = 0;
+        for (double value : dueByType) {
+            due += value;
+        }
+        return new Result(dueByType, due, pending, nextHawlDay, exempt, nisab);
+    }
+}
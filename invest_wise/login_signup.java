@@ -133,14 +133,8 @@ class login_signup extends styles {
      * @return true if credentials are valid, false otherwise
      */
     private boolean validateLogin(String username, String password) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(USERS_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] creds = line.split(",");
-                if (creds.length >= 2 && creds[0].equals(username) && creds[1].equals(password)) {
-                    return true;
-                }
-            }
+        try {
+            return UserStore.getInstance().authenticate(username, password);
         } catch (IOException e) {
             JOptionPane.showMessageDialog(this, "Error reading user file.");
         }
@@ -154,20 +148,16 @@ class login_signup extends styles {
      * @return true if the username exists, false otherwise
      */
     boolean userExists(String username) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(USERS_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] creds = line.split(",");
-                if (creds.length >= 1 && creds[0].equals(username)) {
-                    return true;
-                }
-            }
+        try {
+            return UserStore.getInstance().exists(username);
         } catch (IOException ignored) {}
         return false;
     }
 
     /**
      * Adds a new user to the user database.
+     * The existence check and the write happen atomically, so concurrent sign-ups
+     * for the same username cannot both succeed.
      *
      * @param username The new user's username
      * @param password The new user's password
@@ -175,14 +165,20 @@ class login_signup extends styles {
      * @param email The new user's email
      * @param phone The new user's phone number
      * @param balance The new user's initial balance
+     * @return true if the user was added, false if the username is taken or the write failed
      */
-    void addUser(String username, String password, String fullName, String email, String phone, String balance) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(USERS_FILE, true))) {
-            writer.write(String.join(",", username, password, fullName, email, phone, balance));
-            writer.newLine();
+    boolean addUser(String username, String password, String fullName, String email, String phone, String balance) {
+        try {
+            if (UserStore.getInstance().add(username, password, fullName, email, phone, balance)) {
+                return true;
+            }
+            JOptionPane.showMessageDialog(this, "User already exists.");
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage());
         } catch (IOException e) {
             JOptionPane.showMessageDialog(this, "Error writing to file.");
         }
+        return false;
     }
 
     // === Function to Open Sign-Up Window ===
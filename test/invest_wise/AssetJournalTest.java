@@ -0,0 +1,164 @@
+package invest_wise;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for replaying {@link AssetJournal} segments onto a snapshot and compacting the result.
+ * Every file lives in a fresh temporary directory, never in the application's data files.
+ */
+class AssetJournalTest {
+    /** Temporary directory holding the snapshot and journal of a test */
+    private Path dir;
+    /** Snapshot file inside {@link #dir} */
+    private Path snapshot;
+    /** Journal segment inside {@link #dir} */
+    private File segment;
+
+    /**
+     * Creates the temporary directory.
+     */
+    @BeforeEach
+    void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("asset-journal-test");
+        snapshot = dir.resolve("assets.bin");
+        segment = dir.resolve("assets.journal").toFile();
+    }
+
+    /**
+     * Deletes the temporary directory.
+     */
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Without a snapshot or a journal there are no assets.
+     */
+    @Test
+    void missingFilesMeanNoAssets() throws IOException {
+        ArrayList<String> errors = new ArrayList<>();
+        assertTrue(AssetJournal.fold(snapshot, segment, errors).isEmpty());
+        assertTrue(errors.isEmpty());
+    }
+
+    /**
+     * Adds, edits and removes are applied on top of the snapshot in order, keeping the order of first addition.
+     */
+    @Test
+    void replaysChangesOntoSnapshot() throws IOException {
+        AssetSnapshot.write(snapshot, List.of(
+                new Asset(1, "Stocks", "ACME", 100, CurrencyCode.USD),
+                new Asset(2, "Gold", "Bar", 50, CurrencyCode.EUR)));
+        writeJournal(
+                CsvWriter.record(AssetJournal.DAY, "2026-01-02"),
+                AssetJournal.putRecord(AssetJournal.ADD, new Asset(3, "Crypto", "Coin, \"new\"", 7, CurrencyCode.GBP)),
+                AssetJournal.putRecord(AssetJournal.EDIT, new Asset(1, "Stocks", "ACME", 120, CurrencyCode.USD)),
+                CsvWriter.record(AssetJournal.REMOVE, 2L));
+
+        ArrayList<String> errors = new ArrayList<>();
+        LinkedHashMap<Long, Asset> state = AssetJournal.fold(snapshot, segment, errors);
+
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertEquals(List.of(1L, 3L), new ArrayList<>(state.keySet()));
+        assertEquals(120, state.get(1L).value, 0);
+        assertEquals("Coin, \"new\"", state.get(3L).name);
+        assertEquals(CurrencyCode.GBP, state.get(3L).currency);
+    }
+
+    /**
+     * A clear record drops everything before it, and records written before currencies read in the reporting currency.
+     */
+    @Test
+    void clearAndOldRecords() throws IOException {
+        AssetSnapshot.write(snapshot, List.of(new Asset(1, "Stocks", "Old", 1)));
+        writeJournal(
+                CsvWriter.record(AssetJournal.CLEAR),
+                CsvWriter.record(AssetJournal.ADD, 5L, "Bonds", "Legacy", 9.5));
+
+        LinkedHashMap<Long, Asset> state = AssetJournal.fold(snapshot, segment, new ArrayList<>());
+
+        assertEquals(List.of(5L), new ArrayList<>(state.keySet()));
+        assertEquals(CurrencyCode.REPORTING, state.get(5L).currency);
+    }
+
+    /**
+     * Malformed records, such as a line cut short by a crash, are skipped and reported.
+     */
+    @Test
+    void skipsMalformedRecords() throws IOException {
+        writeJournal(
+                AssetJournal.putRecord(AssetJournal.ADD, new Asset(1, "Stocks", "A", 1, CurrencyCode.USD)),
+                "X,1",
+                CsvWriter.record(AssetJournal.ADD, "not a number", "Stocks", "B", 2.0, "USD"),
+                CsvWriter.record(AssetJournal.ADD, 3L, "Stocks", "C", 3.0, "XYZ"),
+                CsvWriter.record(AssetJournal.DAY, "not a date"),
+                "A,4,Stocks");
+
+        ArrayList<String> errors = new ArrayList<>();
+        LinkedHashMap<Long, Asset> state = AssetJournal.fold(snapshot, segment, errors);
+
+        assertEquals(List.of(1L), new ArrayList<>(state.keySet()));
+        assertEquals(5, errors.size(), errors.toString());
+        assertTrue(errors.get(0).startsWith("assets.journal, Line 2: "), errors.get(0));
+    }
+
+    /**
+     * Writing the folded state as the snapshot keeps every asset, and folding the same segment again
+     * changes nothing, so a compaction cut short can safely be repeated.
+     */
+    @Test
+    void compactionIsRepeatable() throws IOException {
+        ArrayList<String> records = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            records.add(AssetJournal.putRecord(AssetJournal.ADD,
+                    new Asset(id, id % 2 == 0 ? "Stocks" : "Gold", "Asset " + id, id, CurrencyCode.of((int) (id % 3)))));
+        }
+        for (long id = 1; id <= 500; id += 5) {
+            records.add(CsvWriter.record(AssetJournal.REMOVE, id));
+        }
+        writeJournal(records.toArray(new String[0]));
+
+        LinkedHashMap<Long, Asset> folded = AssetJournal.fold(snapshot, segment, new ArrayList<>());
+        AssetSnapshot.write(snapshot, folded.values());
+        LinkedHashMap<Long, Asset> again = AssetJournal.fold(snapshot, segment, new ArrayList<>());
+
+        assertEquals(400, folded.size());
+        assertEquals(new ArrayList<>(folded.keySet()), new ArrayList<>(again.keySet()));
+        for (Asset asset : folded.values()) {
+            Asset reread = again.get(asset.id);
+            assertEquals(asset.type, reread.type);
+            assertEquals(asset.name, reread.name);
+            assertEquals(asset.value, reread.value, 0);
+            assertEquals(asset.currency, reread.currency);
+        }
+    }
+
+    /**
+     * Writes the journal segment, one record per line.
+     *
+     * @param records The records to write
+     */
+    private void writeJournal(String... records) throws IOException {
+        Files.write(segment.toPath(), List.of(records), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,138 @@
+package invest_wise;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link AssetStore}.
+ */
+class AssetStoreTest {
+    /** Factors that leave every value in its own currency */
+    private static final double[] ONES = ones();
+
+    /**
+     * Stored assets read back with all their fields, including types outside {@link AssetType}.
+     */
+    @Test
+    void putAndGet() {
+        AssetStore store = new AssetStore();
+        assertNull(store.put(new Asset(1, "Stocks", "ACME", 100, CurrencyCode.USD)));
+        assertNull(store.put(new Asset(2, "Art", "Painting", 50, CurrencyCode.EUR)));
+
+        Asset stock = store.get(1);
+        assertEquals("Stocks", stock.type);
+        assertEquals("ACME", stock.name);
+        assertEquals(100, stock.value, 0);
+        assertEquals(CurrencyCode.USD, stock.currency);
+        Asset art = store.get(2);
+        assertEquals("Art", art.type);
+        assertEquals(CurrencyCode.EUR, art.currency);
+        assertNull(store.get(3));
+        assertEquals(2, store.size());
+    }
+
+    /**
+     * Putting an existing id replaces its row in place and returns the old asset.
+     */
+    @Test
+    void replaceKeepsOrder() {
+        AssetStore store = new AssetStore();
+        store.put(new Asset(1, "Stocks", "A", 1));
+        store.put(new Asset(2, "Gold", "B", 2));
+        Asset previous = store.put(new Asset(1, "Bonds", "A2", 3));
+
+        assertEquals("A", previous.name);
+        assertEquals(2, store.size());
+        assertArrayEquals(new long[] {1, 2}, store.liveIds());
+        assertEquals("Bonds", store.get(1).type);
+    }
+
+    /**
+     * Removing many assets compacts the columns while lookups and order stay right.
+     */
+    @Test
+    void removeAndCompact() {
+        AssetStore store = new AssetStore();
+        List<Long> kept = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            store.put(new Asset(id, "Crypto", "Coin " + id, id));
+        }
+        for (long id = 1; id <= 1000; id++) {
+            if (id % 4 == 0) {
+                kept.add(id);
+            } else {
+                assertEquals("Coin " + id, store.remove(id).name);
+            }
+        }
+        assertNull(store.remove(1));
+        assertEquals(kept.size(), store.size());
+        assertTrue(store.rowCount() < 1000, "tombstones were compacted");
+
+        long[] ids = store.liveIds();
+        assertEquals(kept.size(), ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals((long) kept.get(i), ids[i]);
+            assertEquals("Coin " + ids[i], store.get(ids[i]).name);
+        }
+        assertEquals(kept.size(), store.toList().size());
+    }
+
+    /**
+     * Totals convert each value with the factor of its currency and skip removed assets.
+     */
+    @Test
+    void totalsUseFactors() {
+        AssetStore store = new AssetStore();
+        store.put(new Asset(1, "Stocks", "A", 100, CurrencyCode.USD));
+        store.put(new Asset(2, "Stocks", "B", 10, CurrencyCode.EUR));
+        store.put(new Asset(3, "Gold", "C", 5, CurrencyCode.USD));
+        store.put(new Asset(4, "Art", "D", 7, CurrencyCode.USD));
+        store.put(new Asset(5, "Gold", "E", 1000, CurrencyCode.USD));
+        store.remove(5);
+
+        double[] factors = ones();
+        factors[CurrencyCode.EUR.ordinal()] = 2;
+        assertEquals(132, store.totalValue(factors), 1e-9);
+        assertEquals(122, store.totalValue(ONES), 1e-9);
+
+        int types = AssetType.values().length;
+        double[] totals = new double[types + 1];
+        int[] counts = new int[types + 1];
+        store.sumByType(totals, counts, factors);
+        assertEquals(120, totals[AssetType.STOCKS.ordinal()], 1e-9);
+        assertEquals(2, counts[AssetType.STOCKS.ordinal()]);
+        assertEquals(5, totals[AssetType.GOLD.ordinal()], 1e-9);
+        assertEquals(1, counts[AssetType.GOLD.ordinal()]);
+        assertEquals(7, totals[types], 1e-9);
+        assertEquals(1, counts[types]);
+    }
+
+    /**
+     * Clearing removes every asset.
+     */
+    @Test
+    void clear() {
+        AssetStore store = new AssetStore();
+        store.put(new Asset(1, "Stocks", "A", 1));
+        store.clear();
+        assertEquals(0, store.size());
+        assertNull(store.get(1));
+        assertEquals(0, store.totalValue(ONES), 0);
+    }
+
+    /**
+     * Creates factors of one for every currency.
+     *
+     * @return The factors, by {@link CurrencyCode} ordinal
+     */
+    private static double[] ones() {
+        double[] factors = new double[CurrencyCode.values().length];
+        Arrays.fill(factors, 1);
+        return factors;
+    }
+}
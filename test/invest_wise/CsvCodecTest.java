@@ -0,0 +1,173 @@
+package invest_wise;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round-trip tests for {@link CsvWriter} and {@link CsvReader}.
+ */
+class CsvCodecTest {
+    /**
+     * Text with separators, quotes, line breaks and outer spaces reads back unchanged.
+     */
+    @Test
+    void awkwardTextRoundTrips() throws IOException {
+        String[] texts = {"plain", "a,b", "say \"hi\"", "two\nlines", "crlf\r\nend", " padded ", "", "\"",
+                "é中 ünïcode", ",", "\n"};
+        StringBuilder file = new StringBuilder();
+        for (String text : texts) {
+            file.append(CsvWriter.record("x", text, 1.5)).append('\n');
+        }
+
+        try (CsvReader csv = new CsvReader(new StringReader(file.toString()))) {
+            for (String text : texts) {
+                assertTrue(csv.next());
+                assertEquals(3, csv.fieldCount());
+                assertEquals("x", csv.getString(0));
+                assertEquals(text, csv.getString(1));
+                assertEquals(1.5, csv.getDouble(2), 0);
+                assertFalse(csv.hasErrors());
+            }
+            assertFalse(csv.next());
+            assertEquals(0, csv.errorCount());
+        }
+    }
+
+    /**
+     * Random text over a tricky alphabet reads back unchanged.
+     */
+    @Test
+    void randomTextRoundTrips() throws IOException {
+        char[] alphabet = {'a', ',', '"', '\n', '\r', ' ', '\t', 'é'};
+        Random random = new Random(3);
+        String[] texts = new String[5000];
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < texts.length; i++) {
+            char[] text = new char[random.nextInt(12)];
+            for (int j = 0; j < text.length; j++) {
+                text[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            texts[i] = new String(text);
+            file.append(CsvWriter.record(texts[i], (long) i)).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+
+        try (CsvReader csv = new CsvReader(new StringReader(file.toString()))) {
+            for (int i = 0; i < texts.length; i++) {
+                assertTrue(csv.next(), "record " + i);
+                assertEquals(texts[i], csv.getString(0));
+                assertEquals(i, csv.getLong(1));
+            }
+            assertFalse(csv.next());
+            assertEquals(0, csv.errorCount());
+        }
+    }
+
+    /**
+     * Numbers parse to the same double as {@link Double#parseDouble}, on and off the fast path.
+     */
+    @Test
+    void numbersMatchParseDouble() throws IOException {
+        Random random = new Random(11);
+        String[] numbers = new String[20000];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = switch (i % 4) {
+                case 0 -> Double.toString(random.nextDouble() * 1e6);
+                case 1 -> String.format("%.2f", random.nextDouble() * 1e9);
+                case 2 -> Long.toString(random.nextLong());
+                default -> Double.toString(Double.longBitsToDouble(random.nextLong() & 0x7fefffffffffffffL));
+            };
+        }
+        StringBuilder file = new StringBuilder();
+        for (String number : numbers) {
+            file.append(number).append('\n');
+        }
+
+        try (CsvReader csv = new CsvReader(new StringReader(file.toString()))) {
+            for (String number : numbers) {
+                assertTrue(csv.next());
+                assertEquals(Double.parseDouble(number), csv.getDouble(0), 0);
+            }
+        }
+    }
+
+    /**
+     * Blank lines are skipped, line numbers count the lines inside quoted fields,
+     * and spaces around unquoted fields are ignored.
+     */
+    @Test
+    void lineNumbersAndBlankLines() throws IOException {
+        String file = "a, b ,c\n\n\"multi\nline\",x\n  \nlast,1\n";
+        try (CsvReader csv = new CsvReader(new StringReader(file))) {
+            assertTrue(csv.next());
+            assertEquals(1, csv.lineNumber());
+            assertEquals("b", csv.getString(1));
+            assertTrue(csv.next());
+            assertEquals(3, csv.lineNumber());
+            assertEquals("multi\nline", csv.getString(0));
+            assertTrue(csv.next());
+            assertEquals(6, csv.lineNumber());
+            assertEquals("last", csv.getString(0));
+            assertFalse(csv.next());
+            assertEquals(6, csv.linesRead());
+        }
+    }
+
+    /**
+     * Badly quoted records are flagged and reported with their line numbers.
+     */
+    @Test
+    void reportsMalformedRecords() throws IOException {
+        String file = "ok,1\n\"closed\" extra,2\nfine,3\n\"never closed,4\n";
+        try (CsvReader csv = new CsvReader(new StringReader(file))) {
+            assertTrue(csv.next());
+            assertFalse(csv.hasErrors());
+            assertTrue(csv.next());
+            assertTrue(csv.hasErrors());
+            assertTrue(csv.next());
+            assertFalse(csv.hasErrors());
+            assertTrue(csv.next());
+            assertTrue(csv.hasErrors());
+            assertFalse(csv.next());
+
+            assertEquals(2, csv.errorCount());
+            assertTrue(csv.errors().get(0).startsWith("Line 2: "), csv.errors().get(0));
+            assertTrue(csv.errors(10).get(1).startsWith("Line 14: "), csv.errors(10).get(1));
+        }
+    }
+
+    /**
+     * Fields longer than the reader's buffer are read whole.
+     */
+    @Test
+    void longFields() throws IOException {
+        String longText = "x".repeat(200_000) + ",\n" + "y".repeat(100_000);
+        String file = CsvWriter.record("short", longText) + "\n" + CsvWriter.record("after", "z") + "\n";
+        try (CsvReader csv = new CsvReader(new StringReader(file))) {
+            assertTrue(csv.next());
+            assertEquals(longText, csv.getString(1));
+            assertTrue(csv.next());
+            assertEquals("after", csv.getString(0));
+            assertEquals("z", csv.getString(1));
+        }
+    }
+
+    /**
+     * Interned fields return the same instance for equal text.
+     */
+    @Test
+    void internsRepeatedValues() throws IOException {
+        try (CsvReader csv = new CsvReader(new StringReader("Stocks,1\nStocks,2\nGold,3\n"))) {
+            csv.next();
+            String first = csv.getInterned(0);
+            csv.next();
+            assertSame(first, csv.getInterned(0));
+            csv.next();
+            assertEquals("Gold", csv.getInterned(0));
+        }
+    }
+}
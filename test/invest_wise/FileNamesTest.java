@@ -0,0 +1,74 @@
+package invest_wise;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link FileNames}.
+ */
+class FileNamesTest {
+    /**
+     * Plain lower-case names are kept as they are.
+     */
+    @Test
+    void keepsSafeCharacters() {
+        assertEquals("alice_01-x", FileNames.escape("alice_01-x"));
+    }
+
+    /**
+     * Names differing only in case get different files, even on case-insensitive file systems.
+     */
+    @Test
+    void separatesCase() {
+        String upper = FileNames.escape("Bob");
+        String lower = FileNames.escape("bob");
+        assertNotEquals(upper, lower);
+        assertNotEquals(upper.toLowerCase(), lower.toLowerCase());
+    }
+
+    /**
+     * An escaped character followed by a digit cannot be read as a longer escape.
+     */
+    @Test
+    void escapesHaveFixedWidth() {
+        assertNotEquals(FileNames.escape("é1"), FileNames.escape("ຑ"));
+        assertNotEquals(FileNames.escape("%"), FileNames.escape("%0025"));
+    }
+
+    /**
+     * Escaped names only use characters that are safe in file names on every platform.
+     */
+    @Test
+    void producesSafeNames() {
+        String escaped = FileNames.escape("a/b\\c:d*e?\"<>|. é中");
+        for (char c : escaped.toCharArray()) {
+            assertTrue(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || "-_^%".indexOf(c) >= 0,
+                    "unsafe character " + c + " in " + escaped);
+        }
+    }
+
+    /**
+     * Random names over a small alphabet of tricky characters never collide, ignoring case.
+     */
+    @Test
+    void isInjective() {
+        char[] alphabet = {'a', 'A', 'b', 'B', '0', '1', '9', 'e', 'E', '%', '^', '_', '-', ' ', 'é', 'ຑ'};
+        Random random = new Random(42);
+        HashMap<String, String> seen = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            char[] name = new char[1 + random.nextInt(5)];
+            for (int j = 0; j < name.length; j++) {
+                name[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String original = new String(name);
+            String previous = seen.putIfAbsent(FileNames.escape(original).toLowerCase(), original);
+            if (previous != null) {
+                assertEquals(previous, original, "both escape to " + FileNames.escape(original));
+            }
+        }
+    }
+}
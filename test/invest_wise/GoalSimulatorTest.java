@@ -0,0 +1,72 @@
+package invest_wise;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link GoalSimulator}.
+ */
+class GoalSimulatorTest {
+    /** Assumptions without any randomness, so every path is the same */
+    private static final GoalSimulator.Assumptions CERTAIN = new GoalSimulator.Assumptions(0.12, 0);
+
+    /**
+     * A goal without progress is never reached and ends at zero, instead of giving infinite logs.
+     */
+    @Test
+    void zeroProgressNeverGrows() {
+        GoalSimulator.Result result = GoalSimulator.simulate(0, 1000, 120,
+                new GoalSimulator.Assumptions(0.07, 0.18), 1000);
+        assertEquals(0, result.successProbability, 0);
+        for (double band : result.bands) {
+            assertEquals(0, band, 0);
+        }
+    }
+
+    /**
+     * Negative progress is treated like no progress.
+     */
+    @Test
+    void negativeProgressNeverGrows() {
+        GoalSimulator.Result result = GoalSimulator.simulate(-5, 1000, 12, CERTAIN, 100);
+        assertEquals(0, result.successProbability, 0);
+        assertEquals(0, result.bands[1], 0);
+    }
+
+    /**
+     * A goal already reached succeeds on every path, even with the deadline passed.
+     */
+    @Test
+    void reachedGoalAlwaysSucceeds() {
+        GoalSimulator.Result result = GoalSimulator.simulate(1000, 500, 0,
+                new GoalSimulator.Assumptions(0.07, 0.18), 1000);
+        assertEquals(1, result.successProbability, 0);
+        assertEquals(1000, result.bands[0], 1e-9);
+    }
+
+    /**
+     * Without volatility every path compounds the expected return exactly.
+     */
+    @Test
+    void certainReturnCompounds() {
+        GoalSimulator.Result reached = GoalSimulator.simulate(100, 111.9, 12, CERTAIN, 200);
+        assertEquals(1, reached.successProbability, 0);
+        for (double band : reached.bands) {
+            assertEquals(112, band, 1e-6);
+        }
+        GoalSimulator.Result missed = GoalSimulator.simulate(100, 112.1, 12, CERTAIN, 200);
+        assertEquals(0, missed.successProbability, 0);
+    }
+
+    /**
+     * Percentiles are reported from the lowest to the highest balance.
+     */
+    @Test
+    void bandsAreOrdered() {
+        GoalSimulator.Result result = GoalSimulator.simulate(100, 200, 60,
+                new GoalSimulator.Assumptions(0.07, 0.18), 20_000);
+        assertTrue(result.bands[0] < result.bands[1] && result.bands[1] < result.bands[2]);
+        assertTrue(result.successProbability > 0 && result.successProbability < 1);
+    }
+}
@@ -0,0 +1,95 @@
+package invest_wise;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link LongIntMap}.
+ */
+class LongIntMapTest {
+    /**
+     * Stored values are found, replaced and removed.
+     */
+    @Test
+    void putGetRemove() {
+        LongIntMap map = new LongIntMap(4);
+        map.put(7, 1);
+        map.put(-3, 2);
+        map.put(0, 3);
+        assertEquals(1, map.get(7, -1));
+        assertEquals(2, map.get(-3, -1));
+        assertEquals(3, map.get(0, -1));
+        assertEquals(-1, map.get(8, -1));
+
+        map.put(7, 10);
+        assertEquals(10, map.get(7, -1));
+        assertEquals(3, map.size());
+
+        map.remove(7);
+        map.remove(99); // not present
+        assertEquals(-1, map.get(7, -1));
+        assertEquals(2, map.size());
+    }
+
+    /**
+     * The table grows past its initial capacity without losing entries.
+     */
+    @Test
+    void grows() {
+        LongIntMap map = new LongIntMap(2);
+        for (int i = 0; i < 10000; i++) {
+            map.put(i * 31L, i);
+        }
+        assertEquals(10000, map.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, map.get(i * 31L, -1));
+        }
+    }
+
+    /**
+     * Clearing empties the map and keeps it usable.
+     */
+    @Test
+    void clear() {
+        LongIntMap map = new LongIntMap(16);
+        map.put(1, 1);
+        map.put(2, 2);
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(1, -1));
+        map.put(2, 5);
+        assertEquals(5, map.get(2, -1));
+    }
+
+    /**
+     * Random puts and removals agree with a {@link HashMap}, so removal keeps every probe run intact.
+     */
+    @Test
+    void matchesHashMap() {
+        LongIntMap map = new LongIntMap(16);
+        HashMap<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            long key = random.nextInt(2000) - 1000L; // a small key range gives long probe runs
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = -1000; key < 1000; key++) {
+            assertEquals(expected.getOrDefault(key, -1).intValue(), map.get(key, -1), "key " + key);
+        }
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey(), -1));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package invest_wise;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link LotBook}: lot matching, and rebuilding the book from its ledger and snapshot.
+ * Every book is kept in a fresh temporary directory, never in the application's data files.
+ */
+class LotBookTest {
+    /** Day of the first trade */
+    private static final int DAY = 20000;
+
+    /** Temporary directory holding the ledger and snapshot of a test */
+    private Path dir;
+    /** Ledger file inside {@link #dir} */
+    private String ledger;
+    /** Snapshot file inside {@link #dir} */
+    private String snapshot;
+
+    /**
+     * Creates the temporary directory.
+     */
+    @BeforeEach
+    void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("lot-book-test");
+        ledger = dir.resolve("lots.csv").toString();
+        snapshot = dir.resolve("lots.bin").toString();
+    }
+
+    /**
+     * Waits for the queued writes and deletes the temporary directory.
+     */
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        PersistenceQueue.flush();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * FIFO sales consume the oldest lots first.
+     */
+    @Test
+    void fifo() {
+        LotBook book = twoLots();
+        assertEquals(10 * 30 + 5 * 10, book.sell("ACME", 15, 130, DAY + 2, LotBook.Matching.FIFO, 0), 1e-9);
+        int holding = book.indexOf("ACME");
+        assertEquals(5, book.quantity(holding), 1e-9);
+        assertEquals(5 * 120, book.costBasis(holding), 1e-9);
+        assertEquals(2, book.lots(holding).id(0));
+    }
+
+    /**
+     * LIFO sales consume the newest lots first.
+     */
+    @Test
+    void lifo() {
+        LotBook book = twoLots();
+        assertEquals(10 * 10 + 5 * 30, book.sell("ACME", 15, 130, DAY + 2, LotBook.Matching.LIFO, 0), 1e-9);
+        int holding = book.indexOf("ACME");
+        assertEquals(5 * 100, book.costBasis(holding), 1e-9);
+        assertEquals(1, book.lots(holding).id(0));
+    }
+
+    /**
+     * A specific sale only consumes the chosen lot, and cannot sell more than it holds.
+     */
+    @Test
+    void specificLot() {
+        LotBook book = twoLots();
+        assertThrows(IllegalArgumentException.class,
+                () -> book.sell("ACME", 11, 130, DAY + 2, LotBook.Matching.SPECIFIC, 2));
+        assertEquals(4 * 10, book.sell("ACME", 4, 130, DAY + 2, LotBook.Matching.SPECIFIC, 2), 1e-9);
+        int holding = book.indexOf("ACME");
+        assertEquals(2, book.lots(holding).size());
+        assertEquals(10, book.lots(holding).quantity(0), 1e-9);
+        assertEquals(6, book.lots(holding).quantity(1), 1e-9);
+    }
+
+    /**
+     * Selling more than is held is refused and changes nothing; selling everything closes every lot.
+     */
+    @Test
+    void oversellAndSellOut() {
+        LotBook book = twoLots();
+        assertThrows(IllegalArgumentException.class,
+                () -> book.sell("ACME", 21, 130, DAY + 2, LotBook.Matching.FIFO, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> book.sell("Unknown", 1, 1, DAY + 2, LotBook.Matching.FIFO, 0));
+        int holding = book.indexOf("ACME");
+        assertEquals(20, book.quantity(holding), 1e-9);
+
+        book.sell("ACME", 20, 90, DAY + 3, LotBook.Matching.FIFO, 0);
+        assertEquals(0, book.lots(holding).size());
+        assertEquals(0, book.quantity(holding), 0);
+        assertEquals(0, book.costBasis(holding), 0);
+        assertEquals(20 * 90 - 10 * 100 - 10 * 120, book.realized(holding), 1e-9);
+    }
+
+    /**
+     * Cash follows deposits, purchases and sale proceeds; unrealized gains follow the prices.
+     */
+    @Test
+    void cashAndUnrealized() {
+        LotBook book = new LotBook(ledger, snapshot);
+        book.cashFlow(5000, DAY);
+        book.buy("ACME", 10, 100, DAY);
+        book.buy("Gold", 2, 50, DAY);
+        book.sell("ACME", 4, 110, DAY + 1, LotBook.Matching.FIFO, 0);
+        book.cashFlow(-100, DAY + 1);
+
+        assertEquals(5000 - 1000 - 100 + 440 - 100, book.cash(), 1e-9);
+        int acme = book.indexOf("ACME");
+        int gold = book.indexOf("Gold");
+        assertEquals(6 * 20, book.unrealized(acme, 120), 1e-9);
+        double[] prices = new double[book.holdings()];
+        prices[acme] = 120;
+        prices[gold] = Double.NaN;
+        assertEquals(120, book.unrealizedTotal(prices), 1e-9);
+        assertEquals(-1, book.indexOf("Nothing"));
+    }
+
+    /**
+     * A book reloaded from its ledger holds the same lots, sums and cash.
+     */
+    @Test
+    void reloadsFromLedger() {
+        LotBook book = twoLots();
+        book.cashFlow(10000, DAY);
+        book.sell("ACME", 3, 150, DAY + 2, LotBook.Matching.SPECIFIC, 2);
+        book.buy("Name, with \"quotes\"", 1, 5, DAY + 3);
+        PersistenceQueue.flush();
+
+        assertSameBook(book, new LotBook(ledger, snapshot));
+        assertFalse(Files.exists(Path.of(snapshot)), "no snapshot before enough records");
+    }
+
+    /**
+     * Once enough records were logged a snapshot is written, and a book loaded from the snapshot and the
+     * records after it, including names spanning several lines, matches the book that wrote them.
+     * A damaged snapshot is ignored and the whole ledger replayed instead.
+     */
+    @Test
+    void reloadsFromSnapshot() throws IOException {
+        LotBook book = new LotBook(ledger, snapshot);
+        book.cashFlow(1_000_000, DAY);
+        String[] names = {"ACME", "multi\nline", "Gold"};
+        for (int i = 0; i < 2500; i++) {
+            String name = names[i % names.length];
+            book.buy(name, 1 + i % 7, 10 + i % 13, DAY + i / 10);
+            if (i % 4 == 3) {
+                book.sell(name, 2, 15, DAY + i / 10, i % 8 == 3 ? LotBook.Matching.FIFO : LotBook.Matching.LIFO, 0);
+            }
+        }
+        PersistenceQueue.flush();
+        assertTrue(Files.exists(Path.of(snapshot)), "snapshot written");
+
+        assertSameBook(book, new LotBook(ledger, snapshot));
+
+        Files.write(Path.of(snapshot), new byte[] {1, 2, 3});
+        assertSameBook(book, new LotBook(ledger, snapshot));
+    }
+
+    /**
+     * Creates a book holding two lots of ACME: lot 1 of 10 units at 100, then lot 2 of 10 units at 120.
+     *
+     * @return The book
+     */
+    private LotBook twoLots() {
+        LotBook book = new LotBook(ledger, snapshot);
+        assertEquals(1, book.buy("ACME", 10, 100, DAY));
+        assertEquals(2, book.buy("ACME", 10, 120, DAY + 1));
+        return book;
+    }
+
+    /**
+     * Checks that two books hold the same holdings, lots, sums and cash.
+     *
+     * @param expected The book that logged the records
+     * @param actual The book loaded from the files
+     */
+    private static void assertSameBook(LotBook expected, LotBook actual) {
+        assertEquals(expected.cash(), actual.cash(), 1e-6);
+        assertEquals(expected.holdings(), actual.holdings());
+        for (int h = 0; h < expected.holdings(); h++) {
+            int holding = actual.indexOf(expected.name(h));
+            assertTrue(holding >= 0, "holding " + expected.name(h));
+            assertEquals(expected.quantity(h), actual.quantity(holding), 1e-6);
+            assertEquals(expected.costBasis(h), actual.costBasis(holding), 1e-6);
+            assertEquals(expected.realized(h), actual.realized(holding), 1e-6);
+            LotDeque expectedLots = expected.lots(h);
+            LotDeque actualLots = actual.lots(holding);
+            assertEquals(expectedLots.size(), actualLots.size());
+            for (int i = 0; i < expectedLots.size(); i++) {
+                assertEquals(expectedLots.id(i), actualLots.id(i));
+                assertEquals(expectedLots.quantity(i), actualLots.quantity(i), 1e-9);
+                assertEquals(expectedLots.unitCost(i), actualLots.unitCost(i), 0);
+                assertEquals(expectedLots.day(i), actualLots.day(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package invest_wise;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link RebalancingOptimizer}.
+ */
+class RebalancingOptimizerTest {
+    /** Number of tradable types */
+    private static final int TYPES = AssetType.values().length;
+
+    /**
+     * An empty portfolio has no trades.
+     */
+    @Test
+    void emptyPortfolio() {
+        assertNull(new RebalancingOptimizer().solve(new double[TYPES + 1], 50));
+    }
+
+    /**
+     * Targets beyond the riskiest or the safest possible portfolio cannot be reached.
+     */
+    @Test
+    void unreachableTarget() {
+        RebalancingOptimizer optimizer = new RebalancingOptimizer();
+        double[] values = new double[TYPES + 1];
+        values[AssetType.STOCKS.ordinal()] = 1000;
+        assertNull(optimizer.solve(values, 95)); // above the riskiest weight
+        assertNull(optimizer.solve(values, 5)); // below the safest weight
+
+        values[TYPES] = 9000; // mostly untradable assets leave little room
+        assertNull(optimizer.solve(values, 20));
+    }
+
+    /**
+     * A portfolio already at the target needs no trades.
+     */
+    @Test
+    void alreadyAtTarget() {
+        double[] values = new double[TYPES + 1];
+        values[AssetType.STOCKS.ordinal()] = 500;
+        values[AssetType.BONDS.ordinal()] = 500;
+        double[] trades = new RebalancingOptimizer().solve(values, score(values, new double[TYPES]));
+        assertNotNull(trades);
+        for (double trade : trades) {
+            assertEquals(0, trade, 1e-9);
+        }
+    }
+
+    /**
+     * On random portfolios the trades keep the value, reach the target, never sell more than is held,
+     * and cannot be improved by any small change that keeps to the constraints.
+     */
+    @Test
+    void reachesTargetWithinBounds() {
+        RebalancingOptimizer optimizer = new RebalancingOptimizer();
+        Random random = new Random(17);
+        int solved = 0;
+        for (int run = 0; run < 2000; run++) {
+            double[] values = new double[TYPES + 1];
+            for (int slot = 0; slot < values.length; slot++) {
+                values[slot] = random.nextInt(3) == 0 ? 0 : random.nextDouble() * 10000;
+            }
+            double target = 15 + random.nextDouble() * 80;
+            double[] trades = optimizer.solve(values, target);
+            if (trades == null) {
+                assertFalse(reachable(values, target - 0.01) && reachable(values, target + 0.01),
+                        "run " + run + " found no trades for a reachable target");
+                continue;
+            }
+            solved++;
+            double total = 0;
+            double tradeSum = 0;
+            for (int slot = 0; slot < values.length; slot++) {
+                total += values[slot];
+            }
+            for (int type = 0; type < TYPES; type++) {
+                tradeSum += trades[type];
+                assertTrue(trades[type] >= -values[type] - 1e-6 * total, "run " + run + " oversells type " + type);
+            }
+            assertEquals(0, tradeSum, 1e-6 * total);
+            assertEquals(target, score(values, trades), 1e-6);
+            assertOptimal(values, trades, 1e-6 * total);
+        }
+        assertTrue(solved > 1000, "only " + solved + " runs were solvable");
+    }
+
+    /**
+     * Checks that no feasible direction lowers the sum of squared trades: moving money between three
+     * types while keeping the total and the score, where each type sold out may only be bought back.
+     *
+     * @param values Value held per slot
+     * @param trades The trades to check
+     * @param tolerance Allowed rounding in the directional derivative
+     */
+    private static void assertOptimal(double[] values, double[] trades, double tolerance) {
+        for (int a = 0; a < TYPES; a++) {
+            for (int b = 0; b < TYPES; b++) {
+                for (int c = b + 1; c < TYPES; c++) {
+                    if (a == b || a == c) continue;
+                    double wa = AssetType.of(a).riskWeight;
+                    double wb = AssetType.of(b).riskWeight;
+                    double wc = AssetType.of(c).riskWeight;
+                    if (Math.abs(wb - wc) < 1e-12) continue;
+                    // d = +1 on a, db on b, dc on c, with d summing to zero and keeping the score
+                    double db = (wc - wa) / (wb - wc);
+                    double dc = -1 - db;
+                    for (int sign = -1; sign <= 1; sign += 2) {
+                        double[] d = {sign, sign * db, sign * dc};
+                        int[] types = {a, b, c};
+                        boolean feasible = true;
+                        double slope = 0;
+                        for (int k = 0; k < 3; k++) {
+                            boolean soldOut = trades[types[k]] <= -values[types[k]] + tolerance;
+                            if (soldOut && d[k] < 0) feasible = false;
+                            slope += 2 * trades[types[k]] * d[k];
+                        }
+                        if (feasible) {
+                            assertTrue(slope >= -tolerance * 10, "trades can be improved by moving between "
+                                    + a + ", " + b + " and " + c + ": slope " + slope);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether some trades could bring the portfolio to a score, by selling everything tradable
+     * into the riskiest or the safest type.
+     *
+     * @param values Value held per slot
+     * @param target The score
+     * @return true if the score lies between the safest and the riskiest reachable portfolio
+     */
+    private static boolean reachable(double[] values, double target) {
+        double total = 0;
+        double tradable = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            total += values[slot];
+            if (slot < TYPES) tradable += values[slot];
+        }
+        double safest = Double.MAX_VALUE;
+        double riskiest = 0;
+        for (AssetType type : AssetType.values()) {
+            safest = Math.min(safest, type.riskWeight);
+            riskiest = Math.max(riskiest, type.riskWeight);
+        }
+        double fixed = values[TYPES] * AssetType.UNKNOWN_RISK_WEIGHT;
+        double lowest = 100 * (fixed + tradable * safest) / total;
+        double highest = 100 * (fixed + tradable * riskiest) / total;
+        return total > 0 && target >= lowest && target <= highest;
+    }
+
+    /**
+     * Computes the risk score of a portfolio after some trades.
+     *
+     * @param values Value held per slot
+     * @param trades Trade per tradable type
+     * @return The score from 0 to 100
+     */
+    private static double score(double[] values, double[] trades) {
+        double total = 0;
+        double risk = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            double value = values[slot] + (slot < TYPES ? trades[slot] : 0);
+            total += value;
+            risk += value * (slot < TYPES ? AssetType.of(slot).riskWeight : AssetType.UNKNOWN_RISK_WEIGHT);
+        }
+        return 100 * risk / total;
+    }
+}
@@ -0,0 +1,118 @@
+package invest_wise;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link RollingCovariance} against the covariance computed directly from the window.
+ */
+class RollingCovarianceTest {
+    /** Number of series */
+    private static final int SIZE = 5;
+    /** Window length */
+    private static final int WINDOW = 30;
+
+    /**
+     * Fewer than two observations give no covariance.
+     */
+    @Test
+    void emptyWindow() {
+        RollingCovariance covariance = new RollingCovariance(2, WINDOW);
+        assertEquals(0, covariance.covariance(0, 1), 0);
+        covariance.add(new double[] {0.1, 0.2});
+        assertEquals(1, covariance.count());
+        assertEquals(0, covariance.covariance(0, 0), 0);
+        double[] out = new double[2];
+        covariance.multiply(new double[] {1, 1}, out);
+        assertArrayEquals(new double[] {0, 0}, out, 0);
+    }
+
+    /**
+     * Every entry matches the direct covariance of the observations in the window, while the window
+     * fills and long after it starts dropping old observations.
+     */
+    @Test
+    void matchesDirectCovariance() {
+        RollingCovariance covariance = new RollingCovariance(SIZE, WINDOW);
+        ArrayList<double[]> history = new ArrayList<>();
+        Random random = new Random(5);
+        for (int step = 0; step < 500; step++) {
+            double[] returns = new double[SIZE];
+            double market = random.nextGaussian() * 0.02;
+            for (int i = 0; i < SIZE; i++) {
+                returns[i] = 0.001 * i + market * (i + 1) / SIZE + random.nextGaussian() * 0.01 * (i + 1);
+            }
+            covariance.add(returns);
+            history.add(returns);
+
+            double[][] expected = direct(history.subList(Math.max(0, history.size() - WINDOW), history.size()));
+            assertEquals(Math.min(history.size(), WINDOW), covariance.count());
+            for (int i = 0; i < SIZE; i++) {
+                for (int j = 0; j < SIZE; j++) {
+                    assertEquals(expected[i][j], covariance.covariance(i, j), 1e-12,
+                            "step " + step + " entry " + i + "," + j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Multiplying by weights gives the same result as the full matrix.
+     */
+    @Test
+    void multiplyMatchesMatrix() {
+        RollingCovariance covariance = new RollingCovariance(SIZE, WINDOW);
+        ArrayList<double[]> history = new ArrayList<>();
+        Random random = new Random(9);
+        for (int step = 0; step < WINDOW + 17; step++) {
+            double[] returns = new double[SIZE];
+            for (int i = 0; i < SIZE; i++) {
+                returns[i] = random.nextGaussian() * 0.05;
+            }
+            covariance.add(returns);
+            history.add(returns);
+        }
+        double[][] matrix = direct(history.subList(history.size() - WINDOW, history.size()));
+        double[] weights = {0.3, -0.1, 0.5, 0.2, 0.1};
+        double[] out = new double[SIZE];
+        covariance.multiply(weights, out);
+        for (int i = 0; i < SIZE; i++) {
+            double expected = 0;
+            for (int j = 0; j < SIZE; j++) {
+                expected += matrix[i][j] * weights[j];
+            }
+            assertEquals(expected, out[i], 1e-12);
+        }
+    }
+
+    /**
+     * Computes the sample covariance matrix of some observations with the two-pass formula.
+     *
+     * @param observations One row of returns per observation
+     * @return The covariance matrix
+     */
+    private static double[][] direct(List<double[]> observations) {
+        int n = observations.size();
+        double[] means = new double[SIZE];
+        for (double[] row : observations) {
+            for (int i = 0; i < SIZE; i++) {
+                means[i] += row[i] / n;
+            }
+        }
+        double[][] matrix = new double[SIZE][SIZE];
+        if (n < 2) return matrix;
+        for (double[] row : observations) {
+            for (int i = 0; i < SIZE; i++) {
+                for (int j = 0; j < SIZE; j++) {
+                    matrix[i][j] += (row[i] - means[i]) * (row[j] - means[j]) / (n - 1);
+                }
+            }
+        }
+        return matrix;
+    }
+}